@@ -0,0 +1,135 @@
+package com.cloudcraft.engine.pathfinding;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Off-heap passability cache: native memory per loaded chunk, block query
+ * throughput and chunk fill cost.
+ *
+ * Synthetic 384-block-tall chunks in one of two shapes: {@code flat} is
+ * solid ground below sea level with open air above and a water puddle on the
+ * surface, so most sections stay uniform; {@code caves} carves air and
+ * water pockets through the ground, so every underground section needs its
+ * buffer. Memory per chunk is the {@code bytesPerChunk} secondary result of
+ * {@code fillChunk}. Reads take no locks; run with {@code -t 4} to see them
+ * scale across threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class PassabilityCacheBenchmark {
+    private static final int MIN_Y = -64;
+    private static final int MAX_Y = 320;
+    private static final int SEA_LEVEL = 62;
+    private static final int QUERIES = 4096;
+
+    @Param({"64", "1024"})
+    public int chunkCount;
+
+    @Param({"flat", "caves"})
+    public String shape;
+
+    private PassabilityCache cache;
+    private PassabilityCache.BlockSource source;
+    private int side;
+    private int[] xs;
+    private int[] ys;
+    private int[] zs;
+    private int next;
+
+    @Setup
+    public void setup() {
+        source = "caves".equals(shape) ? PassabilityCacheBenchmark::caves : PassabilityCacheBenchmark::flat;
+        cache = new PassabilityCache(Logger.getLogger("benchmark"));
+        side = (int) Math.ceil(Math.sqrt(chunkCount));
+        for (int c = 0; c < chunkCount; c++) {
+            cache.loadNow(0, c % side, c / side, MIN_Y, MAX_Y, source);
+        }
+
+        // Mobs query near the surface; spread the queries over every chunk
+        SplittableRandom random = new SplittableRandom(42);
+        xs = new int[QUERIES];
+        ys = new int[QUERIES];
+        zs = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            int chunk = random.nextInt(chunkCount);
+            xs[i] = (chunk % side) * 16 + random.nextInt(16);
+            zs[i] = (chunk / side) * 16 + random.nextInt(16);
+            ys[i] = SEA_LEVEL - 16 + random.nextInt(32);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        cache.shutdown();
+    }
+
+    /** One block lookup at a random position; includes the chunk map lookup. */
+    @Benchmark
+    public int randomQuery() {
+        int i = next++ & (QUERIES - 1);
+        return cache.flags(0, xs[i], ys[i], zs[i]);
+    }
+
+    /**
+     * The reads one A* expansion makes around a node, through a search's
+     * {@link Terrain} view with its one-chunk lookup cache.
+     */
+    @Benchmark
+    public void neighbourhood(Blackhole blackhole) {
+        int i = next++ & (QUERIES - 1);
+        Terrain terrain = cache.terrain(0, MIN_Y, MAX_Y);
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                for (int dy = -1; dy <= 2; dy++) {
+                    blackhole.consume(terrain.isPassable(xs[i] + dx, ys[i] + dy, zs[i] + dz));
+                    blackhole.consume(terrain.isSolid(xs[i] + dx, ys[i] + dy, zs[i] + dz));
+                }
+            }
+        }
+    }
+
+    /** Filling one chunk, as a chunk load does off-thread. */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void fillChunk(ChunkMemory memory) {
+        int c = next++ % chunkCount;
+        cache.loadNow(0, c % side, c / side, MIN_Y, MAX_Y, source);
+        memory.bytesPerChunk = cache.nativeBytes() / cache.chunkCount();
+    }
+
+    /** Off-heap bytes per cached chunk, reported next to the fill time. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ChunkMemory {
+        public long bytesPerChunk;
+    }
+
+    private static int flat(int x, int y, int z) {
+        if (y < SEA_LEVEL)
+            return PassabilityCache.SOLID;
+        if (y == SEA_LEVEL && x >= 4 && x < 8 && z >= 4 && z < 8)
+            return PassabilityCache.PASSABLE | PassabilityCache.LIQUID;
+        return PassabilityCache.PASSABLE;
+    }
+
+    private static int caves(int x, int y, int z) {
+        if (y >= SEA_LEVEL)
+            return PassabilityCache.PASSABLE;
+        // Cheap deterministic noise: roughly one block in eight is open
+        int hash = (x * 73856093) ^ (y * 19349663) ^ (z * 83492791);
+        hash ^= hash >>> 13;
+        hash *= 0x5bd1e995;
+        if ((hash & 7) != 0)
+            return PassabilityCache.SOLID;
+        return y < 0 ? PassabilityCache.PASSABLE | PassabilityCache.LIQUID : PassabilityCache.PASSABLE;
+    }
+}
@@ -0,0 +1,82 @@
+package com.cloudcraft.engine.threading;
+
+import com.cloudcraft.engine.ai.BehaviorRegistry;
+import org.bukkit.entity.EntityType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cluster consolidation of dropped items and experience orbs.
+ *
+ * A synthetic item flood at fixed density (one stackable per 4 square
+ * blocks, as under a farm's collection point): mostly dropped items of eight
+ * kinds in half-full stacks, with every fourth entity an experience orb.
+ * Measures the link sweep, union and cluster emission on {@code threads}
+ * workers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class ItemClustersBenchmark {
+    private static final double BLOCKS_PER_ENTITY = 4.0;
+    private static final int ITEM_KINDS = 8;
+
+    @Param({"1000", "5000", "20000", "80000"})
+    public int entityCount;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private SnapshotBuffer snapshot;
+    private SpatialHash hash;
+    private BehaviorTable table;
+    private ItemClusters clusters;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        double side = Math.sqrt(entityCount * BLOCKS_PER_ENTITY);
+
+        snapshot = new SnapshotBuffer(entityCount);
+        snapshot.begin(0, 0);
+        for (int i = 0; i < entityCount; i++) {
+            boolean orb = (i & 3) == 3;
+            int slot = snapshot.append(random.nextLong(), random.nextLong(),
+                    orb ? EntityType.EXPERIENCE_ORB : EntityType.DROPPED_ITEM, 0,
+                    random.nextDouble(side) - side / 2, 64 + random.nextDouble(1), random.nextDouble(side) - side / 2,
+                    20 + random.nextInt(6000), SnapshotBuffer.FLAG_ACTIVE, 1);
+            if (orb) {
+                snapshot.setStack(slot, 0, 1 + random.nextInt(7), Integer.MAX_VALUE);
+            } else {
+                snapshot.setStack(slot, random.nextInt(ITEM_KINDS), 1 + random.nextInt(32), 64);
+            }
+        }
+        snapshot.seal();
+
+        hash = new SpatialHash(8.0);
+        hash.build(entityCount, snapshot.worldArray(), snapshot.xArray(), snapshot.yArray(), snapshot.zArray());
+        table = BehaviorTable.from(BehaviorRegistry.withDefaults());
+        clusters = new ItemClusters();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /** Link sweep, union-find and cluster emission over the whole snapshot. */
+    @Benchmark
+    public int cluster() {
+        pool.invoke(ForkJoinTask.adapt(() -> clusters.run(snapshot, hash, table)));
+        return clusters.clusterCount();
+    }
+}
@@ -0,0 +1,99 @@
+package com.cloudcraft.engine.threading;
+
+import com.cloudcraft.engine.ai.BehaviorRegistry;
+import org.bukkit.entity.EntityType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched pairing join vs. the per-entity radius query it replaced.
+ *
+ * A synthetic snapshot of cows and sheep at fixed density (one entity per
+ * 16 square blocks); a third of them can breed. The per-entity path runs
+ * one {@link SpatialHash#findAny} per due pairable entity, as the passive
+ * behavior used to, and lets several entities claim the same mate. The join
+ * finds each pair once and matches them one-to-one, on {@code threads}
+ * workers. Stackables cluster instead of pairing; see
+ * {@link ItemClustersBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class PairJoinBenchmark {
+    private static final double BLOCKS_PER_ENTITY = 16.0;
+
+    @Param({"1000", "5000", "20000", "80000"})
+    public int entityCount;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private SnapshotBuffer snapshot;
+    private SpatialHash hash;
+    private BehaviorTable table;
+    private PairJoin join;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        double side = Math.sqrt(entityCount * BLOCKS_PER_ENTITY);
+
+        snapshot = new SnapshotBuffer(entityCount);
+        snapshot.begin(0, 0);
+        for (int i = 0; i < entityCount; i++) {
+            EntityType type = (i & 1) == 0 ? EntityType.COW : EntityType.SHEEP;
+            int flags = SnapshotBuffer.FLAG_ACTIVE | (i % 3 == 0 ? SnapshotBuffer.FLAG_CAN_BREED : 0);
+            snapshot.append(random.nextLong(), random.nextLong(), type, 0,
+                    random.nextDouble(side) - side / 2, 64 + random.nextDouble(4), random.nextDouble(side) - side / 2,
+                    random.nextInt(24000), flags, 1);
+        }
+        snapshot.seal();
+
+        hash = new SpatialHash(8.0);
+        hash.build(entityCount, snapshot.worldArray(), snapshot.xArray(), snapshot.yArray(), snapshot.zArray());
+        table = BehaviorTable.from(BehaviorRegistry.withDefaults());
+        join = new PairJoin();
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /** One radius query per due pairable entity; mates may be claimed twice. */
+    @Benchmark
+    public void perEntityQuery(Blackhole blackhole) {
+        for (int slot = 0; slot < entityCount; slot++) {
+            int type = snapshot.typeOrdinal(slot);
+            if (!table.isDue(snapshot, slot) || !pairable(slot))
+                continue;
+            int self = slot;
+            blackhole.consume(hash.findAny(0, snapshot.x(slot), snapshot.y(slot), snapshot.z(slot),
+                    table.pairRadii[type],
+                    other -> other != self && snapshot.typeOrdinal(other) == type && pairable(other)));
+        }
+    }
+
+    /** Cell-pair sweep plus greedy matching; every entity in at most one pair. */
+    @Benchmark
+    public int pairJoin() {
+        pool.invoke(ForkJoinTask.adapt(() -> join.run(snapshot, hash, table)));
+        return join.pairCount();
+    }
+
+    private boolean pairable(int slot) {
+        return table.pairRadii[snapshot.typeOrdinal(slot)] > 0
+                && snapshot.hasFlag(slot, SnapshotBuffer.FLAG_CAN_BREED)
+                && !snapshot.hasFlag(slot, SnapshotBuffer.FLAG_IN_LOVE);
+    }
+}
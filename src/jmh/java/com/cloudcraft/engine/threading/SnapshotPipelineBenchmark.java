@@ -0,0 +1,80 @@
+package com.cloudcraft.engine.threading;
+
+import com.cloudcraft.engine.ai.BehaviorRegistry;
+import com.cloudcraft.engine.config.EngineConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The async half of the pipeline - what {@code processSnapshotAsync} runs -
+ * over one captured {@link SyntheticWorld} snapshot, with the default config
+ * and behaviors and pathfinding off.
+ *
+ * {@code process} is the whole per-tick job; {@code index} and
+ * {@code decide} split it into the shared indexing (spatial hash, regions,
+ * pairs, clusters) and the parallel decision building, so a change in one
+ * shows up where it belongs. Denser worlds mean more neighbours per query;
+ * {@code threads} sizes the region pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class SnapshotPipelineBenchmark {
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+
+    @Param({"1000", "5000", "20000", "80000"})
+    public int entityCount;
+
+    /** Square blocks per entity; 4 is a packed farm, 64 open terrain. */
+    @Param({"4", "16", "64"})
+    public double density;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private SnapshotBuffer snapshot;
+    private BehaviorTable table;
+    private SnapshotPipeline pipeline;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        snapshot = new SnapshotBuffer(entityCount);
+        new SyntheticWorld(entityCount, density, 42).capture(snapshot, 0, 0);
+        snapshot.seal();
+
+        table = BehaviorTable.from(BehaviorRegistry.withDefaults());
+        pipeline = new SnapshotPipeline(EngineConfig.defaults(), null, null, null);
+        pool = new ForkJoinPool(threads);
+        // decide() works on the last indexed snapshot
+        pool.invoke(ForkJoinTask.adapt(() -> pipeline.index(snapshot, table)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int process() {
+        return pool.invoke(ForkJoinTask.adapt(() -> pipeline.process(snapshot, table, NEVER_CANCELLED))).size();
+    }
+
+    @Benchmark
+    public int index() {
+        pool.invoke(ForkJoinTask.adapt(() -> pipeline.index(snapshot, table)));
+        return pipeline.regionCount();
+    }
+
+    @Benchmark
+    public int decide() {
+        return pool.invoke(ForkJoinTask.adapt(() -> pipeline.decide(snapshot, table, NEVER_CANCELLED))).size();
+    }
+}
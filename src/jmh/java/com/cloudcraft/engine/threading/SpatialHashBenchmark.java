@@ -0,0 +1,78 @@
+package com.cloudcraft.engine.threading;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling benchmark for {@link SpatialHash}.
+ *
+ * The spawn area grows with the entity count so density stays fixed for
+ * each {@code density}. At fixed density every query touches a constant
+ * number of entities, so the per-op time should grow linearly with
+ * {@code entityCount}; the old linear-scan index grew quadratically here.
+ * Denser worlds put more entities in each cell a query visits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class SpatialHashBenchmark {
+    @Param({"1000", "5000", "20000", "80000"})
+    public int entityCount;
+
+    /** Square blocks per entity; 16 is roughly a busy mob farm. */
+    @Param({"4", "16", "64"})
+    public double density;
+
+    private int[] worlds;
+    private double[] xs;
+    private double[] ys;
+    private double[] zs;
+    private SpatialHash hash;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        double side = Math.sqrt(entityCount * density);
+
+        worlds = new int[entityCount];
+        xs = new double[entityCount];
+        ys = new double[entityCount];
+        zs = new double[entityCount];
+        for (int i = 0; i < entityCount; i++) {
+            xs[i] = random.nextDouble(side) - side / 2;
+            ys[i] = 64 + random.nextDouble(4);
+            zs[i] = random.nextDouble(side) - side / 2;
+        }
+
+        hash = new SpatialHash(8.0);
+        hash.build(entityCount, worlds, xs, ys, zs);
+    }
+
+    @Benchmark
+    public void build() {
+        hash.build(entityCount, worlds, xs, ys, zs);
+    }
+
+    /** One 8-block "find a mate" query per entity, as the passive AI does. */
+    @Benchmark
+    public void radiusQueryPerEntity(Blackhole blackhole) {
+        for (int i = 0; i < entityCount; i++) {
+            int self = i;
+            blackhole.consume(hash.findAny(0, xs[i], ys[i], zs[i], 8.0, other -> other != self && (other & 7) == 0));
+        }
+    }
+
+    /** One 16-block nearest-neighbour query per entity, as hostile targeting does. */
+    @Benchmark
+    public void nearestQueryPerEntity(Blackhole blackhole) {
+        for (int i = 0; i < entityCount; i++) {
+            blackhole.consume(hash.nearest(0, xs[i], ys[i], zs[i], 16.0, other -> (other & 63) == 0));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.cloudcraft.engine.threading;
+
+import com.cloudcraft.engine.config.EngineConfig;
+import org.bukkit.entity.EntityType;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * A flat synthetic world for the pipeline benchmarks, standing in for what
+ * capture reads from Bukkit.
+ *
+ * Entities are spread over a square sized for {@code blocksPerEntity}
+ * square blocks each: hostile, passive and stackable types in equal thirds,
+ * a third of the animals able to breed, items in a handful of materials.
+ * Players stand on a {@value #PLAYER_SPACING}-block grid over the square, so
+ * every entity falls into some activation tier of the default config and
+ * the tier mix follows from the density.
+ */
+final class SyntheticWorld {
+    static final double PLAYER_SPACING = 96.0;
+
+    private static final EntityType[] MIX = {
+            EntityType.ZOMBIE, EntityType.SKELETON, EntityType.CREEPER,
+            EntityType.COW, EntityType.SHEEP, EntityType.PIG,
+            EntityType.DROPPED_ITEM, EntityType.DROPPED_ITEM, EntityType.EXPERIENCE_ORB};
+    private static final int MATERIALS = 8;
+
+    final int entityCount;
+    private final UUID[] ids;
+    private final EntityType[] types;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final int[] ticksLived;
+    private final int[] flags;
+    private final long[] stackKeys;
+    private final int[] amounts;
+    private final int[] stackLimits;
+
+    private final UUID[] playerIds;
+    private final double[] playerXs;
+    private final double[] playerZs;
+
+    // Activation tiers of the default config, nearest first
+    private final double[] tierRadiusSq;
+    private final int[] tierInterval;
+    private final double coverageRadius;
+
+    SyntheticWorld(int entityCount, double blocksPerEntity, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double side = Math.sqrt(entityCount * blocksPerEntity);
+
+        this.entityCount = entityCount;
+        ids = new UUID[entityCount];
+        types = new EntityType[entityCount];
+        xs = new double[entityCount];
+        ys = new double[entityCount];
+        zs = new double[entityCount];
+        ticksLived = new int[entityCount];
+        flags = new int[entityCount];
+        stackKeys = new long[entityCount];
+        amounts = new int[entityCount];
+        stackLimits = new int[entityCount];
+        for (int i = 0; i < entityCount; i++) {
+            EntityType type = MIX[random.nextInt(MIX.length)];
+            ids[i] = new UUID(random.nextLong(), random.nextLong());
+            types[i] = type;
+            xs[i] = random.nextDouble(side) - side / 2;
+            ys[i] = 64 + random.nextDouble(4);
+            zs[i] = random.nextDouble(side) - side / 2;
+            ticksLived[i] = random.nextInt(24000);
+            if (type == EntityType.COW || type == EntityType.SHEEP || type == EntityType.PIG) {
+                flags[i] = random.nextInt(3) == 0 ? SnapshotBuffer.FLAG_CAN_BREED : 0;
+            } else if (type == EntityType.DROPPED_ITEM) {
+                stackKeys[i] = (long) random.nextInt(MATERIALS) << 32;
+                amounts[i] = 1 + random.nextInt(16);
+                stackLimits[i] = 64;
+            } else if (type == EntityType.EXPERIENCE_ORB) {
+                amounts[i] = 1 + random.nextInt(10);
+                stackLimits[i] = Integer.MAX_VALUE;
+            }
+        }
+
+        int perSide = Math.max(1, (int) Math.ceil(side / PLAYER_SPACING));
+        playerIds = new UUID[perSide * perSide];
+        playerXs = new double[perSide * perSide];
+        playerZs = new double[perSide * perSide];
+        for (int p = 0; p < playerIds.length; p++) {
+            playerIds[p] = new UUID(random.nextLong(), random.nextLong());
+            playerXs[p] = -side / 2 + (p % perSide + 0.5) * side / perSide;
+            playerZs[p] = -side / 2 + (p / perSide + 0.5) * side / perSide;
+        }
+
+        List<EngineConfig.ActivationTier> tiers = EngineConfig.defaults().activationTiers();
+        tierRadiusSq = new double[tiers.size()];
+        tierInterval = new int[tiers.size()];
+        for (int t = 0; t < tiers.size(); t++) {
+            tierRadiusSq[t] = tiers.get(t).radius() * tiers.get(t).radius();
+            tierInterval[t] = tiers.get(t).interval();
+        }
+        coverageRadius = tiers.get(tiers.size() - 1).radius();
+    }
+
+    int playerCount() {
+        return playerIds.length;
+    }
+
+    /**
+     * Everything {@link EntityProcessor#captureSnapshot} does once an entity
+     * has been read: index the players, then tier, schedule and append each
+     * entity. Leaves the buffer unsealed.
+     */
+    void capture(SnapshotBuffer buffer, long epoch, int tick) {
+        buffer.begin(epoch, tick);
+        PlayerIndex players = buffer.players();
+        for (int p = 0; p < playerIds.length; p++) {
+            players.add(playerIds[p], 0, playerXs[p], 64, playerZs[p], true);
+        }
+        players.build(coverageRadius);
+
+        for (int i = 0; i < entityCount; i++) {
+            int tier = tierFor(players.nearestDistanceSq(0, xs[i], ys[i], zs[i]));
+            if (tier < 0)
+                continue;
+            UUID id = ids[i];
+            int entityFlags = flags[i];
+            if (EntityProcessor.isDue(id, tick, tierInterval[tier])) {
+                entityFlags |= SnapshotBuffer.FLAG_ACTIVE;
+            }
+            int slot = buffer.append(id.getMostSignificantBits(), id.getLeastSignificantBits(), types[i], 0,
+                    xs[i], ys[i], zs[i], ticksLived[i], entityFlags, tierInterval[tier]);
+            if (stackLimits[i] > 0) {
+                buffer.setStack(slot, stackKeys[i], amounts[i], stackLimits[i]);
+            }
+        }
+    }
+
+    private int tierFor(double distanceSq) {
+        for (int t = 0; t < tierRadiusSq.length; t++) {
+            if (distanceSq <= tierRadiusSq[t])
+                return t;
+        }
+        return -1;
+    }
+}
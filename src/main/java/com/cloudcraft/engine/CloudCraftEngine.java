@@ -1,7 +1,12 @@
 package com.cloudcraft.engine;
 
+import com.cloudcraft.engine.config.EngineConfig;
 import com.cloudcraft.engine.licensing.BetaLimitations;
+import com.cloudcraft.engine.metrics.LatencyHistogram;
+import com.cloudcraft.engine.metrics.MetricsEndpoint;
 import com.cloudcraft.engine.metrics.MetricsCollector;
+import com.cloudcraft.engine.pathfinding.FlowFieldService;
+import com.cloudcraft.engine.pathfinding.PathService;
 import com.cloudcraft.engine.testing.StressTest;
 import com.cloudcraft.engine.threading.EntityProcessor;
 import net.kyori.adventure.text.Component;
@@ -12,78 +17,29 @@ import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import org.bukkit.World;
-import org.bukkit.entity.Entity;
-import org.bukkit.entity.Player;
+import org.bukkit.entity.EntityType;
 import org.bukkit.scheduler.BukkitTask;
 
 public class CloudCraftEngine extends JavaPlugin {
-    private static final String DEBUG_PERMISSION = "cloudcraft.debug";
-    private final Map<UUID, Long> lastProcessTimes = new ConcurrentHashMap<>();
-    private final Map<UUID, AtomicInteger> processingCounts = new ConcurrentHashMap<>();
-
-    public Map<UUID, Long> getLastProcessTimes() {
-        return lastProcessTimes;
-    }
-
-    public Map<UUID, AtomicInteger> getProcessingCounts() {
-        return processingCounts;
-    }
+    private static final String JFR_SETTINGS = "cloudcraft.jfc";
+    private @Nullable EngineConfig engineConfig;
     private @Nullable EntityProcessor entityProcessor;
     private @Nullable MetricsCollector metricsCollector;
+    private @Nullable MetricsEndpoint metricsEndpoint;
     private @Nullable StressTest stressTest;
     private @Nullable BukkitTask processingTask;
+    // Set by StressTest's A/B mode: the pipeline skips its ticks entirely
+    private volatile boolean engineBypassed;
 
     @Override
     public void onEnable() {
-        // Register debug command
-        getCommand("ccdebug").setExecutor((sender, command, label, args) -> {
-            if (!sender.hasPermission(DEBUG_PERMISSION)) {
-                sender.sendMessage("§cYou don't have permission to use this command.");
-                return true;
-            }
-
-            // Get all entities
-            int totalEntities = 0;
-            int processedEntities = 0;
-            long now = System.nanoTime();
-
-            for (World world : getServer().getWorlds()) {
-                for (Entity entity : world.getEntities()) {
-                    totalEntities++;
-
-                    UUID id = entity.getUniqueId();
-                    Long lastProcess = lastProcessTimes.get(id);
-                    AtomicInteger count = processingCounts.get(id);
-
-                    if (lastProcess != null && count != null) {
-                        processedEntities++;
-                        double timeSinceProcess = (now - lastProcess) / 1_000_000.0; // ms
-                        sender.sendMessage(String.format(
-                                "§e%s§r (ID: %s) - Processed §a%d§r times, §6%.2f§rms ago",
-                                entity.getType(),
-                                entity.getUniqueId(),
-                                count.get(),
-                                timeSinceProcess));
-                    }
-                }
-            }
-
-            sender.sendMessage(String.format(
-                    "§6=== CloudCraft Debug ===\n" +
-                            "§7Total Entities: §f%d\n" +
-                            "§7Processed Entities: §f%d\n" +
-                            "§7Processing Rate: §f%.1f%%",
-                    totalEntities,
-                    processedEntities,
-                    (processedEntities * 100.0) / totalEntities));
-
-            return true;
-        });
+        getCommand("ccdebug").setExecutor(new DebugCommand(this));
         // Check beta expiration
         if (BetaLimitations.isExpired()) {
             getLogger().severe("=====================================");
@@ -106,36 +62,52 @@ public class CloudCraftEngine extends JavaPlugin {
         
         // Initialize with fallback to single-threaded mode if virtual threads are not available
         try {
-            this.entityProcessor = new EntityProcessor(this);
+            this.engineConfig = EngineConfig.load(this);
+            saveFlightRecorderSettings();
+            this.entityProcessor = new EntityProcessor(this, engineConfig);
             this.metricsCollector = new MetricsCollector(this);
+            getServer().getPluginManager().registerEvents(metricsCollector, this);
+
+            // Seed the live entity registry, then let events keep it current
+            entityProcessor.getEntityRegistry().rebuild(getServer());
+            getServer().getPluginManager().registerEvents(entityProcessor.getEntityRegistry(), this);
+            getServer().getPluginManager().registerEvents(entityProcessor.getProcessingStats(), this);
+            if (entityProcessor.getTerrainListener() != null) {
+                getServer().getPluginManager().registerEvents(entityProcessor.getTerrainListener(), this);
+                entityProcessor.getTerrainListener().loadAll();
+            }
+
+            // Optional OpenMetrics endpoint; a bind failure only costs the telemetry
+            if (engineConfig.metricsEndpointEnabled()) {
+                MetricsEndpoint endpoint = new MetricsEndpoint(getLogger(), new InetSocketAddress(
+                        engineConfig.metricsEndpointAddress(), engineConfig.metricsEndpointPort()),
+                        entityProcessor::writeMetrics);
+                try {
+                    endpoint.start();
+                    this.metricsEndpoint = endpoint;
+                } catch (IOException e) {
+                    getLogger().warning("Metrics endpoint failed to start: " + e.getMessage());
+                }
+            }
 
             // OPTIMIZED SNAPSHOT-PROCESS-APPLY PIPELINE
             getLogger().info("Starting optimized entity processing pipeline...");
             this.processingTask = getServer().getScheduler().runTaskTimer(this, () -> {
-                if (entityProcessor == null || !entityProcessor.isRunning())
+                if (entityProcessor == null || !entityProcessor.isRunning() || engineBypassed)
                     return;
 
                 // Phase 3: Apply previous tick's results (non-blocking)
                 entityProcessor.applyPendingResults();
 
                 // Phase 1: Capture minimal snapshot (fast)
-                long captureStart = System.nanoTime();
                 entityProcessor.captureSnapshot();
-                long captureTime = (System.nanoTime() - captureStart) / 1_000_000;
 
                 // Phase 2: Trigger async processing (non-blocking)
                 entityProcessor.processAsync();
 
-                // Log performance every 100 ticks (5 seconds)
-                if (getServer().getCurrentTick() % 100 == 0) {
-                    EntityProcessor.PerformanceMetrics metrics = entityProcessor.getMetrics();
-                    getLogger().info(String.format(
-                            "Pipeline: Capture=%dms, Process=%dms, Apply=%dms | Entities: %d processed, %d culled",
-                            captureTime,
-                            metrics.avgProcessTime(),
-                            metrics.avgApplyTime(),
-                            metrics.entitiesProcessed(),
-                            metrics.entitiesCulled()));
+                // Log performance once per metrics window (100 ticks, 5 seconds)
+                if (getServer().getCurrentTick() % EntityProcessor.METRICS_WINDOW_TICKS == 0) {
+                    logMetrics(entityProcessor.getMetrics());
                 }
             }, 0L, 1L); // Run every tick
 
@@ -151,6 +123,16 @@ public class CloudCraftEngine extends JavaPlugin {
         getCommand("stresstest").setExecutor(this);
     }
 
+    /**
+     * Writes the JFR profile enabling the pipeline events next to the config,
+     * where -XX:StartFlightRecording or jcmd JFR.start can point at it.
+     */
+    private void saveFlightRecorderSettings() {
+        if (!new File(getDataFolder(), JFR_SETTINGS).exists()) {
+            saveResource(JFR_SETTINGS, false);
+        }
+    }
+
     @Override
     public void onDisable() {
         getLogger().info("Shutting down CloudCraft Engine...");
@@ -161,6 +143,9 @@ public class CloudCraftEngine extends JavaPlugin {
             getLogger().info("Entity processing task stopped");
         }
 
+        if (metricsEndpoint != null) {
+            metricsEndpoint.stop();
+        }
         if (entityProcessor != null) {
             entityProcessor.shutdown();
         }
@@ -217,10 +202,28 @@ public class CloudCraftEngine extends JavaPlugin {
                 }
             }
 
-            this.stressTest = new StressTest(this)
+            int phase = StressTest.DEFAULT_PHASE_SECONDS;
+            if (args.length >= 4) {
+                try {
+                    phase = Integer.parseInt(args[3]);
+                } catch (NumberFormatException e) {
+                    sender.sendMessage(Component.text("Invalid phase length: " + args[3])
+                        .color(NamedTextColor.RED));
+                    return false;
+                }
+            }
+
+            if (metricsCollector == null) {
+                sender.sendMessage(Component.text("CloudCraft Engine is not running.")
+                    .color(NamedTextColor.RED));
+                return true;
+            }
+
+            this.stressTest = new StressTest(this, metricsCollector)
                 .withPlayerCount(players)
                 .withWarmup(warmup)
                 .withDuration(duration)
+                .withPhaseLength(phase)
                 .withSamplingInterval(20);
 
             this.stressTest.startTest(sender);
@@ -230,6 +233,100 @@ public class CloudCraftEngine extends JavaPlugin {
         return false;
     }
 
+    /** One metrics window, as a few labelled lines: pipeline, AI, apply backlog, pathfinding. */
+    private void logMetrics(EntityProcessor.PerformanceMetrics metrics) {
+        getLogger().info(String.format("Pipeline: tick %s | capture %s | process %s | apply %s",
+                formatTicks(metricsCollector.getTickSummary(EntityProcessor.METRICS_WINDOW_TICKS)),
+                formatLatency(metrics.capture()), formatLatency(metrics.process()), formatLatency(metrics.apply())));
+        getLogger().info(String.format("AI: %d processed, %d culled | %d regions | %d lookups saved | tiers %s | decide %s",
+                metrics.entitiesProcessed(), metrics.entitiesCulled(), metrics.regions(), metrics.lookupsSaved(),
+                formatTiers(metrics.tiers()), formatDecisions(metrics.decisions())));
+        getLogger().info(String.format("Backlog: decisions %d deferred, %d dropped | async %d skipped, %d stale, %d overruns, depth %d",
+                metrics.decisionsDeferred(), metrics.decisionsDropped(),
+                metrics.skippedTicks(), metrics.staleDrops(), metrics.overruns(), metrics.inFlightDepth()));
+        getLogger().info(String.format("Pathfinding: paths %s | flow fields %s",
+                formatPaths(metrics.paths()), formatFlows(metrics.flows())));
+    }
+
+    /** Server tick durations, e.g. "mean 12.40 p50 11.90 p95 18.20 p99 24.75 max 31.02ms". */
+    private static String formatTicks(MetricsCollector.TickSummary summary) {
+        return String.format("mean %.2f p50 %.2f p95 %.2f p99 %.2f max %.2fms",
+                summary.meanMillis(), summary.p50Millis(), summary.p95Millis(), summary.p99Millis(),
+                summary.maxMillis());
+    }
+
+    /** Percentiles in milliseconds, e.g. "p50 0.21 p90 0.40 p99 1.85 p999 3.02 max 3.10ms". */
+    private static String formatLatency(LatencyHistogram.Summary summary) {
+        return String.format("p50 %.2f p90 %.2f p99 %.2f p999 %.2f max %.2fms",
+                summary.p50() / 1e6, summary.p90() / 1e6, summary.p99() / 1e6, summary.p999() / 1e6,
+                summary.max() / 1e6);
+    }
+
+    /** Per-type decision percentiles in microseconds, slowest p99 first, at most five types. */
+    private static String formatDecisions(Map<EntityType, LatencyHistogram.Summary> decisions) {
+        StringBuilder builder = new StringBuilder();
+        decisions.entrySet().stream()
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<EntityType, LatencyHistogram.Summary> entry) -> entry.getValue().p99()).reversed())
+                .limit(5)
+                .forEach(entry -> {
+                    LatencyHistogram.Summary summary = entry.getValue();
+                    if (!builder.isEmpty())
+                        builder.append(", ");
+                    builder.append(String.format("%s p50 %.1f p99 %.1f max %.1fus", entry.getKey(),
+                            summary.p50() / 1e3, summary.p99() / 1e3, summary.max() / 1e3));
+                });
+        return builder.isEmpty() ? "-" : builder.toString();
+    }
+
+    /** "16m/1t 40/40, 32m/4t 25/100" - active/captured entities per activation tier. */
+    private static String formatTiers(List<EntityProcessor.TierMetrics> tiers) {
+        StringBuilder builder = new StringBuilder();
+        for (EntityProcessor.TierMetrics tier : tiers) {
+            if (!builder.isEmpty())
+                builder.append(", ");
+            builder.append(String.format("%.0fm/%dt %d/%d", tier.radius(), tier.interval(), tier.active(), tier.entities()));
+        }
+        return builder.toString();
+    }
+
+    /** "120 cached, 900/40 hit/miss, 35 solved, 5 unreachable, 0 dropped, 48 chunks 96 KiB" - path cache and block cache. */
+    private static String formatPaths(PathService.PathMetrics paths) {
+        return String.format("%d cached, %d/%d hit/miss, %d solved, %d unreachable, %d dropped, %d chunks %d KiB",
+                paths.cached(), paths.hits(), paths.misses(), paths.solved(), paths.unreachable(), paths.dropped(),
+                paths.blockChunks(), paths.blockBytes() / 1024);
+    }
+
+    /** "3 players, 12 built, avg 420 max 900us, 6.5 mobs/field (max 14)" - per-player flow fields. */
+    private static String formatFlows(FlowFieldService.FlowMetrics flows) {
+        return String.format("%d players, %d built, avg %d max %dus, %.1f mobs/field (max %d)",
+                flows.players(), flows.builds(), flows.avgBuildMicros(), flows.maxBuildMicros(),
+                flows.mobsPerField(), flows.maxMobsPerField());
+    }
+
+    public @Nullable EngineConfig getEngineConfig() {
+        return engineConfig;
+    }
+
+    /**
+     * Skips the whole pipeline while true, leaving the server as if the
+     * engine were not installed; for A/B measurements. Results still in
+     * flight when the engine comes back are aged out by the stale-result
+     * policy.
+     */
+    public void setEngineBypassed(boolean bypassed) {
+        this.engineBypassed = bypassed;
+    }
+
+    public boolean isEngineBypassed() {
+        return engineBypassed;
+    }
+
+    /** Tick durations and stress test samples; null until enabled. */
+    public @Nullable MetricsCollector getMetricsCollector() {
+        return metricsCollector;
+    }
+
     public @Nullable EntityProcessor getEntityProcessor() {
         return entityProcessor;
     }
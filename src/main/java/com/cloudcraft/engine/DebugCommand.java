@@ -0,0 +1,167 @@
+package com.cloudcraft.engine;
+
+import com.cloudcraft.engine.threading.EntityProcessor;
+import com.cloudcraft.engine.threading.EntityRegistry;
+import com.cloudcraft.engine.threading.ProcessingStats;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * {@code /ccdebug [types|chunks|entities|verify] [filter] [page]}.
+ *
+ * Reads the bounded {@link ProcessingStats} instead of walking every
+ * entity, and shows at most {@value #PAGE_SIZE} rows per page, in one
+ * message. The filter is a case-insensitive substring of an entity type
+ * or world name.
+ */
+final class DebugCommand implements CommandExecutor {
+    private static final String PERMISSION = "cloudcraft.debug";
+    private static final int PAGE_SIZE = 10;
+
+    private final CloudCraftEngine plugin;
+
+    DebugCommand(@NotNull CloudCraftEngine plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command,
+                             @NotNull String label, @NotNull String[] args) {
+        if (!sender.hasPermission(PERMISSION)) {
+            sender.sendMessage("§cYou don't have permission to use this command.");
+            return true;
+        }
+        EntityProcessor processor = plugin.getEntityProcessor();
+        if (processor == null) {
+            sender.sendMessage("§cEntity processor is not running.");
+            return true;
+        }
+
+        // Anything after the view is a page number or a filter, in either order
+        String filter = null;
+        int page = 1;
+        for (int i = 1; i < args.length; i++) {
+            try {
+                page = Integer.parseInt(args[i]);
+            } catch (NumberFormatException e) {
+                filter = args[i].toLowerCase(Locale.ROOT);
+            }
+        }
+
+        ProcessingStats stats = processor.getProcessingStats();
+        String view = args.length > 0 ? args[0].toLowerCase(Locale.ROOT) : "";
+        switch (view) {
+            case "verify" -> verify(sender, processor.getEntityRegistry());
+            case "types" -> types(sender, stats, filter, page);
+            case "chunks" -> chunks(sender, stats, filter, page);
+            case "entities" -> entities(sender, stats, filter, page);
+            default -> summary(sender, processor, stats);
+        }
+        return true;
+    }
+
+    private void summary(CommandSender sender, EntityProcessor processor, ProcessingStats stats) {
+        int entities = stats.lastEntities();
+        sender.sendMessage(String.format(
+                "§6=== CloudCraft Debug ===\n" +
+                        "§7Tracked Entities: §f%d\n" +
+                        "§7Last Snapshot: §f%d §7entities, §f%d §7decisions (tick %d)\n" +
+                        "§7Processing Rate: §f%.1f%%\n" +
+                        "§7Sampled Entities: §f%d §7(1 in %d)\n" +
+                        "§7Usage: /ccdebug <types|chunks|entities|verify> [filter] [page]",
+                processor.getEntityRegistry().size(),
+                entities, stats.lastDecisions(), stats.lastTick(),
+                entities == 0 ? 0.0 : stats.lastDecisions() * 100.0 / entities,
+                stats.samples().size(), ProcessingStats.SAMPLE_EVERY));
+    }
+
+    private void verify(CommandSender sender, EntityRegistry registry) {
+        // Compare the live entity registry against a full world scan
+        EntityRegistry.ConsistencyReport report = registry.verify(plugin.getServer());
+        sender.sendMessage(String.format(
+                "§6=== Entity Registry ===\n" +
+                        "§7Scanned: §f%d §7Tracked: §f%d\n" +
+                        "§7Missing: §f%d §7Stale: §f%d §7Misplaced: §f%d\n" +
+                        "%s",
+                report.scanned(), report.tracked(),
+                report.missing(), report.stale(), report.misplaced(),
+                report.isConsistent() ? "§aConsistent" : "§cInconsistent"));
+    }
+
+    private void types(CommandSender sender, ProcessingStats stats, @Nullable String filter, int page) {
+        List<ProcessingStats.TypeStats> rows = new ArrayList<>();
+        for (ProcessingStats.TypeStats type : stats.types()) {
+            if (matches(filter, type.type().name())) {
+                rows.add(type);
+            }
+        }
+        rows.sort(Comparator.comparingLong(ProcessingStats.TypeStats::decided).reversed());
+        sendPage(sender, "Entity Types", rows, page, type -> String.format(
+                "§e%s§r §7last: §f%d§7/§f%d §7decided, total: §f%d§7/§f%d",
+                type.type(), type.lastDecided(), type.lastCaptured(), type.decided(), type.captured()));
+    }
+
+    private void chunks(CommandSender sender, ProcessingStats stats, @Nullable String filter, int page) {
+        List<World> worlds = plugin.getServer().getWorlds();
+        List<ProcessingStats.ChunkStats> rows = new ArrayList<>();
+        for (ProcessingStats.ChunkStats chunk : stats.chunks()) {
+            if (matches(filter, worldName(worlds, chunk.world()))) {
+                rows.add(chunk);
+            }
+        }
+        sendPage(sender, "Busiest Chunks", rows, page, chunk -> String.format(
+                "§e%s§r (%d, %d) §7entities: §f%d §7decisions: §f%d",
+                worldName(worlds, chunk.world()), chunk.chunkX(), chunk.chunkZ(),
+                chunk.entities(), chunk.decisions()));
+    }
+
+    private void entities(CommandSender sender, ProcessingStats stats, @Nullable String filter, int page) {
+        List<World> worlds = plugin.getServer().getWorlds();
+        int tick = plugin.getServer().getCurrentTick();
+        List<ProcessingStats.EntitySample> rows = new ArrayList<>();
+        for (ProcessingStats.EntitySample sample : stats.samples()) {
+            if (matches(filter, sample.type().name()) || matches(filter, worldName(worlds, sample.world()))) {
+                rows.add(sample);
+            }
+        }
+        rows.sort(Comparator.comparingLong(ProcessingStats.EntitySample::decisions).reversed());
+        sendPage(sender, "Sampled Entities", rows, page, sample -> String.format(
+                "§e%s§r (ID: %s) §7in %s (%d, %d) - Processed §a%d§r of %d times, %s",
+                sample.type(), sample.id(), worldName(worlds, sample.world()), sample.chunkX(), sample.chunkZ(),
+                sample.decisions(), sample.captures(),
+                sample.lastDecided() < 0 ? "§6never" : "§6" + (tick - sample.lastDecided()) + "§r ticks ago"));
+    }
+
+    private static <T> void sendPage(CommandSender sender, String title, List<T> rows, int page,
+                                     Function<T, String> format) {
+        int pages = Math.max(1, (rows.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        page = Math.clamp(page, 1, pages);
+        StringBuilder message = new StringBuilder(String.format(
+                "§6=== %s (page %d/%d, %d rows) ===", title, page, pages, rows.size()));
+        if (rows.isEmpty()) {
+            message.append("\n§7Nothing to show.");
+        }
+        for (int n = (page - 1) * PAGE_SIZE; n < Math.min(rows.size(), page * PAGE_SIZE); n++) {
+            message.append('\n').append(format.apply(rows.get(n)));
+        }
+        sender.sendMessage(message.toString());
+    }
+
+    private static boolean matches(@Nullable String filter, String name) {
+        return filter == null || name.toLowerCase(Locale.ROOT).contains(filter);
+    }
+
+    private static String worldName(List<World> worlds, int index) {
+        return index < worlds.size() ? worlds.get(index).getName() : "#" + index;
+    }
+}
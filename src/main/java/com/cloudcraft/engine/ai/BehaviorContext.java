@@ -0,0 +1,128 @@
+package com.cloudcraft.engine.ai;
+
+import org.bukkit.entity.EntityType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * What a behavior sees and writes while deciding for one entity.
+ *
+ * Entities are addressed by snapshot slot and players by player index; both
+ * are only meaningful for the duration of the {@link EntityBehavior#decide}
+ * call that received them. All positions are as captured at the start of
+ * the tick. Decisions written here are applied on the main thread later.
+ */
+public interface BehaviorContext {
+    /** Slot of the entity being decided for. */
+    int self();
+
+    @NotNull EntityType type(int slot);
+
+    double x(int slot);
+
+    double y(int slot);
+
+    double z(int slot);
+
+    int ticksLived(int slot);
+
+    /** True if the animal in {@code slot} is old enough to breed. */
+    boolean canBreed(int slot);
+
+    /** True if the animal in {@code slot} is already in love mode. */
+    boolean isInLove(int slot);
+
+    /**
+     * True if something meant to happen every {@code period} ticks is due for
+     * this entity on this run, regardless of how often it is activated.
+     */
+    boolean every(int period);
+
+    /**
+     * Draw {@code n} of this entity's random stream for this tick, uniform in
+     * [0, 1). Derived from the world seed, tick and entity id, so replays
+     * reproduce it exactly.
+     */
+    double random(int n);
+
+    /** Number of neighbours of the declared types within the query radius, never including self. */
+    int neighborCount();
+
+    /** Slot of neighbour {@code i}, {@code 0 <= i < neighborCount()}. */
+    int neighbor(int i);
+
+    /**
+     * The partner matched to this entity by the pairing join, or -1. A pair
+     * is reported once, to the member that is due this tick (the lower slot
+     * if both are), so the two never act on each other twice; the other
+     * member sees -1.
+     */
+    int pairPartner();
+
+    /**
+     * Size of the stackable cluster this entity leads, itself included, or 0
+     * if it leads none. A cluster is offered to exactly one member: the
+     * lowest slot among those due this tick.
+     */
+    int clusterSize();
+
+    /** Slot of cluster member {@code i}, {@code 0 <= i < clusterSize()}; member 0 is this entity. */
+    int clusterMember(int i);
+
+    /**
+     * Closest player within {@code radius} that mobs may target (alive,
+     * survival or adventure), or -1. The radius is capped at the engine's
+     * player coverage radius.
+     */
+    int nearestTargetablePlayer(double radius);
+
+    double playerX(int player);
+
+    double playerY(int player);
+
+    double playerZ(int player);
+
+    /** Squared distance from this entity to {@code player}. */
+    double playerDistanceSq(int player);
+
+    /** Sets this entity's velocity. */
+    void move(double velocityX, double velocityY, double velocityZ);
+
+    /**
+     * Walks this entity along an A* path towards the goal at {@code speed}
+     * blocks per tick. Paths are computed in the background and shared
+     * through a cache, and only those published before this snapshot was
+     * captured count; returns false - and moves nothing - while no path is
+     * ready or the goal is unreachable, so the caller can fall back to its
+     * own movement.
+     */
+    boolean followPath(double goalX, double goalY, double goalZ, double speed);
+
+    /**
+     * Steps this entity towards {@code player} at {@code speed} blocks per
+     * tick along the flow field every mob chasing that player shares, as
+     * published when this snapshot was captured. Returns false - and moves
+     * nothing - while the player has no field yet, or this entity is outside
+     * it, cannot reach the player through it, or is already at the player's
+     * block.
+     */
+    boolean followFlow(int player, double speed);
+
+    /** Damages {@code player}, attributed to this entity. */
+    void attackPlayer(int player, double damage);
+
+    /** Makes this mob target {@code player}. */
+    void targetPlayer(int player);
+
+    /** Puts this animal and the one in {@code mateSlot} into love mode. */
+    void breedWith(int mateSlot);
+
+    /** Merges the item in {@code otherSlot} into this one if they stack. */
+    void mergeWith(int otherSlot);
+
+    /**
+     * Folds the cluster this entity leads into as few entities as possible:
+     * item stacks are refilled up to their stack size, experience orbs are
+     * combined into this one. Does nothing if this entity leads no cluster.
+     */
+    void mergeCluster();
+}
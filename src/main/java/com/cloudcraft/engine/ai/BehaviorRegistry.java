@@ -0,0 +1,73 @@
+package com.cloudcraft.engine.ai;
+
+import org.bukkit.entity.EntityType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Entity type -> {@link EntityBehavior}. Types without a behavior are still
+ * captured (other behaviors may see them as neighbours) but never decide
+ * anything themselves.
+ *
+ * Registration is copy-on-write: workers read a consistent table without
+ * locking, and a change takes effect from the next processed snapshot.
+ */
+public final class BehaviorRegistry {
+    private static final EntityType[] TYPES = EntityType.values();
+
+    private volatile EntityBehavior[] behaviors = new EntityBehavior[TYPES.length];
+    private volatile int version;
+
+    /** Registry with the built-in hostile, passive and item/experience orb behaviors. */
+    public static @NotNull BehaviorRegistry withDefaults() {
+        BehaviorRegistry registry = new BehaviorRegistry();
+        HostileBehavior hostile = new HostileBehavior();
+        for (EntityType type : new EntityType[]{EntityType.ZOMBIE, EntityType.SKELETON, EntityType.CREEPER}) {
+            registry.register(type, hostile);
+        }
+        PassiveBehavior passive = new PassiveBehavior();
+        for (EntityType type : new EntityType[]{EntityType.COW, EntityType.SHEEP, EntityType.PIG,
+                EntityType.CHICKEN, EntityType.RABBIT, EntityType.HORSE}) {
+            registry.register(type, passive);
+        }
+        ItemBehavior stackable = new ItemBehavior();
+        registry.register(EntityType.DROPPED_ITEM, stackable);
+        registry.register(EntityType.EXPERIENCE_ORB, stackable);
+        return registry;
+    }
+
+    /** Registers {@code behavior} for {@code type}, replacing any previous one. */
+    public synchronized void register(@NotNull EntityType type, @NotNull EntityBehavior behavior) {
+        if (behavior.tickInterval() < 1)
+            throw new IllegalArgumentException("tickInterval must be at least 1: " + behavior.tickInterval());
+        if (behavior.queryRadius() < 0)
+            throw new IllegalArgumentException("queryRadius must not be negative: " + behavior.queryRadius());
+        if (behavior.pairRadius() < 0)
+            throw new IllegalArgumentException("pairRadius must not be negative: " + behavior.pairRadius());
+        if (behavior.clusterRadius() < 0)
+            throw new IllegalArgumentException("clusterRadius must not be negative: " + behavior.clusterRadius());
+
+        EntityBehavior[] updated = Arrays.copyOf(behaviors, behaviors.length);
+        updated[type.ordinal()] = behavior;
+        behaviors = updated;
+        version++;
+    }
+
+    public synchronized void unregister(@NotNull EntityType type) {
+        EntityBehavior[] updated = Arrays.copyOf(behaviors, behaviors.length);
+        updated[type.ordinal()] = null;
+        behaviors = updated;
+        version++;
+    }
+
+    public @Nullable EntityBehavior get(@NotNull EntityType type) {
+        return behaviors[type.ordinal()];
+    }
+
+    /** Incremented on every change; lets the engine cache derived tables. */
+    public int version() {
+        return version;
+    }
+}
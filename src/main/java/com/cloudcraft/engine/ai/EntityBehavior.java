@@ -0,0 +1,75 @@
+package com.cloudcraft.engine.ai;
+
+import org.bukkit.entity.EntityType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+
+/**
+ * AI for one or more entity types, registered in a {@link BehaviorRegistry}.
+ *
+ * A behavior declares its footprint up front - how often it runs, how far it
+ * looks and which neighbour types it cares about - so the engine can skip
+ * entities that are not due and gather every due entity's neighbours in one
+ * bulk pass per region before any behavior runs. {@link #decide} then only
+ * reads the prepared {@link BehaviorContext} and writes decisions into it.
+ *
+ * Behaviors run on worker threads, concurrently for different entities, and
+ * must not touch the Bukkit API or shared mutable state. Randomness should
+ * come from {@link BehaviorContext#random} so outcomes stay reproducible.
+ */
+public interface EntityBehavior {
+    /**
+     * Run every this many ticks. Combined with the entity's activation tier:
+     * an entity that is only activated every few ticks still runs the
+     * behavior once per interval.
+     */
+    default int tickInterval() {
+        return 1;
+    }
+
+    /** Radius of the neighbour search in blocks, or 0 if the behavior needs no neighbours. */
+    default double queryRadius() {
+        return 0;
+    }
+
+    /** Entity types collected as neighbours within {@link #queryRadius()}. */
+    default @NotNull Set<EntityType> neighborTypes() {
+        return Set.of();
+    }
+
+    /**
+     * Radius within which entities of the same type are paired one-to-one
+     * (breeding, merging), or 0 if the behavior does not pair. Pairing runs
+     * as one batched join per tick before any behavior decides: every
+     * candidate pair is found once, and a greedy closest-first matching
+     * guarantees each entity ends up in at most one pair. Each pair is
+     * reported through {@link BehaviorContext#pairPartner()}.
+     */
+    default double pairRadius() {
+        return 0;
+    }
+
+    /**
+     * Whether the entity in {@code slot} can be paired this tick. Called
+     * during the join, so only the slot-level accessors of {@code context}
+     * are meaningful.
+     */
+    default boolean isPairable(@NotNull BehaviorContext context, int slot) {
+        return true;
+    }
+
+    /**
+     * Linking radius for consolidating stackables (dropped items, experience
+     * orbs), or 0. Each tick, compatible entities of the same type within
+     * this radius of each other are clustered (transitively), and each
+     * cluster is offered to one due member through
+     * {@link BehaviorContext#clusterSize()} to fold in a single action.
+     */
+    default double clusterRadius() {
+        return 0;
+    }
+
+    /** Decides what the entity in {@code context} does this tick. */
+    void decide(@NotNull BehaviorContext context);
+}
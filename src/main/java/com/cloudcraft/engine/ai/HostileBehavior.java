@@ -0,0 +1,53 @@
+package com.cloudcraft.engine.ai;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Hostile mob AI (targeting, combat, pathfinding): attack the nearest
+ * player in reach, chase one within 16 blocks, otherwise wander.
+ */
+public class HostileBehavior implements EntityBehavior {
+    private static final double TARGET_RADIUS = 16.0;
+    private static final double ATTACK_RANGE = 2.0;
+    private static final double CHASE_SPEED = 0.2;
+
+    @Override
+    public void decide(@NotNull BehaviorContext context) {
+        int self = context.self();
+
+        // Find nearest player within 16 blocks
+        int nearestPlayer = context.nearestTargetablePlayer(TARGET_RADIUS);
+
+        if (nearestPlayer >= 0) {
+            double distance = Math.sqrt(context.playerDistanceSq(nearestPlayer));
+
+            // Attack if close
+            if (distance < ATTACK_RANGE) {
+                context.attackPlayer(nearestPlayer, 3.0);
+            }
+            // Move toward target if medium distance: down the player's shared
+            // flow field, else along a path of our own around obstacles,
+            // straight at it until either is ready
+            else if (distance < TARGET_RADIUS) {
+                double playerX = context.playerX(nearestPlayer);
+                double playerY = context.playerY(nearestPlayer);
+                double playerZ = context.playerZ(nearestPlayer);
+                if (!context.followFlow(nearestPlayer, CHASE_SPEED)
+                        && !context.followPath(playerX, playerY, playerZ, CHASE_SPEED)) {
+                    double scale = CHASE_SPEED / distance;
+                    context.move(
+                            (playerX - context.x(self)) * scale,
+                            (playerY - context.y(self)) * scale,
+                            (playerZ - context.z(self)) * scale);
+                }
+                context.targetPlayer(nearestPlayer);
+            }
+        } else {
+            // Random wandering if no target
+            context.move(
+                    (context.random(0) - 0.5) * 0.1,
+                    0,
+                    (context.random(1) - 0.5) * 0.1);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.cloudcraft.engine.ai;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stackable consolidation AI for dropped items and experience orbs: fold
+ * every compatible stack linked within 2 blocks into as few entities as
+ * possible, one cluster per action.
+ */
+public class ItemBehavior implements EntityBehavior {
+    // Process only every 20 ticks
+    @Override
+    public int tickInterval() {
+        return 20;
+    }
+
+    @Override
+    public double clusterRadius() {
+        return 2.0;
+    }
+
+    @Override
+    public void decide(@NotNull BehaviorContext context) {
+        // Clusters come from the snapshot-wide clustering pass; only one member leads each
+        if (context.clusterSize() > 1) {
+            context.mergeCluster();
+        }
+    }
+}
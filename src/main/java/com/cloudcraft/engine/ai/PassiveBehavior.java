@@ -0,0 +1,42 @@
+package com.cloudcraft.engine.ai;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Passive mob AI (breeding, wandering): pair up with a breedable animal of
+ * the same type within 8 blocks, and wander now and then.
+ */
+public class PassiveBehavior implements EntityBehavior {
+    // Process only every 5 ticks to reduce load
+    @Override
+    public int tickInterval() {
+        return 5;
+    }
+
+    @Override
+    public double pairRadius() {
+        return 8.0;
+    }
+
+    @Override
+    public boolean isPairable(@NotNull BehaviorContext context, int slot) {
+        return context.canBreed(slot) && !context.isInLove(slot);
+    }
+
+    @Override
+    public void decide(@NotNull BehaviorContext context) {
+        // Mates come from the pairing join: same type, breedable, never ourselves
+        int mate = context.pairPartner();
+        if (mate >= 0) {
+            context.breedWith(mate);
+        }
+
+        // Random wandering
+        if (context.every(100)) {
+            context.move(
+                    (context.random(0) - 0.5) * 0.15,
+                    0,
+                    (context.random(1) - 0.5) * 0.15);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.cloudcraft.engine.config;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Typed view of cloudcraft.yml, read once on enable.
+ *
+ * Every value has a default, so a missing key (or an old config file from a
+ * previous version) never prevents the engine from starting.
+ */
+public final class EngineConfig {
+    public static final String FILE_NAME = "cloudcraft.yml";
+
+    // Region partitioning
+    private final int regionSizeChunks;
+    private final int regionMaxEntities;
+    private final int regionMinEntities;
+
+    // Threading
+    private final int maxThreads;
+
+    // Activation tiers, nearest first
+    private final List<ActivationTier> activationTiers;
+
+    // AI
+    private final OptionalLong aiSeed;
+
+    // Async pipeline
+    private final int maxResultAgeTicks;
+    private final StaleResultPolicy staleResultPolicy;
+    private final long watchdogTimeoutMillis;
+
+    // Apply phase
+    private final long applyBudgetMicros;
+
+    // Pathfinding
+    private final boolean pathfindingEnabled;
+    private final int pathRequestsPerTick;
+    private final int pathMaxNodes;
+    private final int pathCacheSize;
+    private final int pathCacheTtlTicks;
+    private final int flowFieldRadius;
+    private final int flowFieldBuildsPerTick;
+
+    // Telemetry
+    private final boolean metricsEndpointEnabled;
+    private final String metricsEndpointAddress;
+    private final int metricsEndpointPort;
+
+    private EngineConfig(@NotNull ConfigurationSection config) {
+        this.regionSizeChunks = Math.max(1, config.getInt("region.size", 8));
+        this.regionMaxEntities = Math.max(1, config.getInt("region.max-entities", 1000));
+        this.regionMinEntities = Math.clamp(config.getInt("region.min-entities", 100), 0, regionMaxEntities);
+        this.maxThreads = Math.max(1, config.getInt("threading.max-threads", 256));
+        this.activationTiers = parseTiers(config.getMapList("activation.tiers"));
+        this.aiSeed = config.isSet("ai.seed") ? OptionalLong.of(config.getLong("ai.seed", 0)) : OptionalLong.empty();
+        this.maxResultAgeTicks = Math.max(0, config.getInt("pipeline.max-result-age-ticks", 3));
+        this.staleResultPolicy = StaleResultPolicy.parse(config.getString("pipeline.stale-results", "partial"));
+        this.watchdogTimeoutMillis = Math.max(50, config.getLong("pipeline.watchdog-timeout-ms", 500));
+        this.applyBudgetMicros = Math.max(100, config.getLong("apply.budget-us", 2000));
+        this.pathfindingEnabled = config.getBoolean("pathfinding.enabled", true);
+        this.pathRequestsPerTick = Math.max(1, config.getInt("pathfinding.max-requests-per-tick", 16));
+        this.pathMaxNodes = Math.max(64, config.getInt("pathfinding.max-nodes", 2000));
+        this.pathCacheSize = Math.max(16, config.getInt("pathfinding.cache-size", 4096));
+        this.pathCacheTtlTicks = Math.max(1, config.getInt("pathfinding.cache-ttl-ticks", 200));
+        this.flowFieldRadius = Math.clamp(config.getInt("pathfinding.flow-field-radius", 24), 0, 64);
+        this.flowFieldBuildsPerTick = Math.max(1, config.getInt("pathfinding.flow-field-builds-per-tick", 4));
+        this.metricsEndpointEnabled = config.getBoolean("telemetry.endpoint.enabled", false);
+        this.metricsEndpointAddress = config.getString("telemetry.endpoint.address", "127.0.0.1");
+        this.metricsEndpointPort = Math.clamp(config.getInt("telemetry.endpoint.port", 9464), 1, 65535);
+    }
+
+    /**
+     * Loads cloudcraft.yml from the plugin's data folder, writing the bundled
+     * default first if the file does not exist yet.
+     */
+    public static @NotNull EngineConfig load(@NotNull JavaPlugin plugin) {
+        File file = new File(plugin.getDataFolder(), FILE_NAME);
+        if (!file.exists()) {
+            plugin.saveResource(FILE_NAME, false);
+        }
+        return new EngineConfig(YamlConfiguration.loadConfiguration(file));
+    }
+
+    /** All defaults - for running the pipeline without a plugin (benchmarks). */
+    public static @NotNull EngineConfig defaults() {
+        return new EngineConfig(new YamlConfiguration());
+    }
+
+    /** Edge length of a base processing region, in chunks. */
+    public int regionSizeChunks() {
+        return regionSizeChunks;
+    }
+
+    /** Regions holding more entities than this are split into quadrants. */
+    public int regionMaxEntities() {
+        return regionMaxEntities;
+    }
+
+    /** Regions holding fewer entities than this are merged with a neighbour. */
+    public int regionMinEntities() {
+        return regionMinEntities;
+    }
+
+    /** Upper bound on processing threads; the pool never exceeds the core count either. */
+    public int maxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * Distance tiers for AI activation, sorted by radius. Entities beyond the
+     * last tier's radius are not processed at all.
+     */
+    public @NotNull List<ActivationTier> activationTiers() {
+        return activationTiers;
+    }
+
+    /**
+     * Fixed seed for AI randomness in place of each world's seed, for
+     * reproducible benchmark runs; empty when not configured.
+     */
+    public @NotNull OptionalLong aiSeed() {
+        return aiSeed;
+    }
+
+    /** Age in ticks beyond which a freshly arrived result batch counts as stale. */
+    public int maxResultAgeTicks() {
+        return maxResultAgeTicks;
+    }
+
+    /** What to do with a stale result batch. */
+    public @NotNull StaleResultPolicy staleResultPolicy() {
+        return staleResultPolicy;
+    }
+
+    /** Processing time after which the watchdog cancels in-flight work, in milliseconds. */
+    public long watchdogTimeoutMillis() {
+        return watchdogTimeoutMillis;
+    }
+
+    /** Main-thread time allowed for applying decisions each tick, in microseconds. */
+    public long applyBudgetMicros() {
+        return applyBudgetMicros;
+    }
+
+    /** Whether hostile mobs chase along A* paths instead of straight lines. */
+    public boolean pathfindingEnabled() {
+        return pathfindingEnabled;
+    }
+
+    /** Path searches started per tick; further requests wait to be asked again. */
+    public int pathRequestsPerTick() {
+        return pathRequestsPerTick;
+    }
+
+    /** Nodes one A* search may expand before giving up. */
+    public int pathMaxNodes() {
+        return pathMaxNodes;
+    }
+
+    /** Cached paths kept before the least recently used are evicted. */
+    public int pathCacheSize() {
+        return pathCacheSize;
+    }
+
+    /** Ticks a cached path stays valid if no block change invalidates it first. */
+    public int pathCacheTtlTicks() {
+        return pathCacheTtlTicks;
+    }
+
+    /** Half the width of a chased player's shared flow field, in blocks; 0 disables flow fields. */
+    public int flowFieldRadius() {
+        return flowFieldRadius;
+    }
+
+    /** Flow fields rebuilt per tick; players over the budget keep their previous field a while longer. */
+    public int flowFieldBuildsPerTick() {
+        return flowFieldBuildsPerTick;
+    }
+
+    /** Whether to serve OpenMetrics at {@code /metrics}. */
+    public boolean metricsEndpointEnabled() {
+        return metricsEndpointEnabled;
+    }
+
+    /** Address the metrics endpoint binds to; keep it local unless scrapes come from elsewhere. */
+    public @NotNull String metricsEndpointAddress() {
+        return metricsEndpointAddress;
+    }
+
+    public int metricsEndpointPort() {
+        return metricsEndpointPort;
+    }
+
+    /** Entities within {@code radius} blocks of a player run their AI every {@code interval} ticks. */
+    public record ActivationTier(double radius, int interval) {
+    }
+
+    private static List<ActivationTier> parseTiers(List<Map<?, ?>> entries) {
+        List<ActivationTier> tiers = new ArrayList<>();
+        if (entries != null) {
+            for (Map<?, ?> entry : entries) {
+                if (entry.get("radius") instanceof Number radius && radius.doubleValue() > 0) {
+                    int interval = entry.get("interval") instanceof Number n ? Math.max(1, n.intValue()) : 1;
+                    tiers.add(new ActivationTier(radius.doubleValue(), interval));
+                }
+            }
+        }
+        if (tiers.isEmpty()) {
+            tiers.add(new ActivationTier(16, 1));
+            tiers.add(new ActivationTier(32, 4));
+            tiers.add(new ActivationTier(64, 20));
+        }
+        tiers.sort(Comparator.comparingDouble(ActivationTier::radius));
+        return List.copyOf(tiers);
+    }
+
+    public enum StaleResultPolicy {
+        /** Discard the whole batch. */
+        DROP,
+        /** Apply combat and interaction decisions, discard plain movement. */
+        PARTIAL;
+
+        static StaleResultPolicy parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return PARTIAL;
+            }
+        }
+    }
+}
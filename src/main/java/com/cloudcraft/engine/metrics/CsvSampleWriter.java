@@ -0,0 +1,120 @@
+package com.cloudcraft.engine.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Streams a {@link SampleRing} to a CSV file on its own daemon thread.
+ *
+ * Every second the thread appends whatever was sampled since its last
+ * pass, reusing one line buffer, and flushes to disk every
+ * {@value #FLUSH_SECONDS} seconds, so the file stays current during long
+ * runs while the main thread only ever writes into the ring.
+ */
+final class CsvSampleWriter {
+    private static final long DRAIN_SECONDS = 1;
+    private static final int FLUSH_SECONDS = 5;
+
+    private final SampleRing ring;
+    private final Path path;
+    private final Logger logger;
+    private final BufferedWriter writer;
+    private final ScheduledExecutorService executor;
+
+    // Writer thread only
+    private final StringBuilder line = new StringBuilder(96);
+    private char[] chars = new char[96];
+    private long next;
+    private long lost;
+    private int drains;
+    private boolean failed;
+
+    private CsvSampleWriter(SampleRing ring, Path path, Logger logger, BufferedWriter writer) {
+        this.ring = ring;
+        this.path = path;
+        this.logger = logger;
+        this.writer = writer;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CloudCraft-MetricsExport");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Creates {@code path}, writes the header and starts streaming {@code ring} into it. */
+    static @NotNull CsvSampleWriter start(@NotNull SampleRing ring, @NotNull Path path, @NotNull Logger logger)
+            throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(path);
+        writer.write(SampleRing.CSV_HEADER);
+        writer.newLine();
+        writer.flush();
+        CsvSampleWriter export = new CsvSampleWriter(ring, path, logger, writer);
+        export.executor.scheduleWithFixedDelay(export::drain, DRAIN_SECONDS, DRAIN_SECONDS, TimeUnit.SECONDS);
+        return export;
+    }
+
+    private void drain() {
+        if (failed)
+            return;
+        try {
+            long count = ring.count();
+            long oldest = count - ring.capacity();
+            if (next < oldest) {
+                lost += oldest - next;
+                next = oldest;
+            }
+            for (; next < count; next++) {
+                line.setLength(0);
+                if (!ring.appendCsv(next, line)) {
+                    lost++;
+                    continue;
+                }
+                line.append(System.lineSeparator());
+                if (chars.length < line.length()) {
+                    chars = new char[line.length() * 2];
+                }
+                line.getChars(0, line.length(), chars, 0);
+                writer.write(chars, 0, line.length());
+            }
+            if (++drains % FLUSH_SECONDS == 0) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            failed = true;
+            logger.log(Level.SEVERE, "Failed to stream metrics to " + path, e);
+        }
+    }
+
+    /**
+     * Writes the remaining samples, closes the file and stops the thread.
+     * Returns at once; the final write happens on the writer thread.
+     */
+    void close() {
+        try {
+            executor.execute(() -> {
+                drain();
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Failed to close " + path, e);
+                }
+                if (lost > 0) {
+                    logger.warning(lost + " metric samples were overwritten before they reached " + path);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return; // already closed
+        }
+        executor.shutdown();
+    }
+}
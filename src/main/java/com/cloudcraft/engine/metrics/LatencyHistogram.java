@@ -0,0 +1,158 @@
+package com.cloudcraft.engine.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free nanosecond latency histogram over rolling windows.
+ *
+ * Buckets are log-linear: every power of two is split into
+ * {@value #SUB_BUCKETS} equal sub-buckets, so a recorded value is known to
+ * within about 6% from 1 ns up to about 18 minutes, in a fixed
+ * {@value #BUCKETS}-bucket array. Any thread may {@link #record}; recording
+ * is one atomic increment plus, for a new maximum, a compare-and-set.
+ *
+ * Time is split into windows. The owner calls {@link #rotate} once per
+ * window (e.g. every 100 ticks); {@link #summary} reads the most recent
+ * closed windows, so percentiles always describe a whole window rather than
+ * one still filling. A value recorded while its window is being closed may
+ * land in the window either side - harmless for percentiles. The count and
+ * sum of everything ever recorded are kept as well, for exporters that
+ * expect cumulative totals.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values up to 2^40 ns; anything longer counts into the last bucket
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final int windows;
+    // Window w's buckets at [w * BUCKETS, (w + 1) * BUCKETS); its max at maxima[w]
+    private final AtomicLongArray counts;
+    private final AtomicLongArray maxima;
+    private final AtomicInteger current = new AtomicInteger();
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    /** A histogram keeping {@code windows} closed windows besides the one filling. */
+    public LatencyHistogram(int windows) {
+        if (windows < 1)
+            throw new IllegalArgumentException("windows must be at least 1");
+        this.windows = windows + 1;
+        this.counts = new AtomicLongArray(this.windows * BUCKETS);
+        this.maxima = new AtomicLongArray(this.windows);
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        int window = current.get();
+        counts.incrementAndGet(window * BUCKETS + bucket(nanos));
+        totalCount.increment();
+        totalNanos.add(nanos);
+        long max = maxima.get(window);
+        while (nanos > max && !maxima.compareAndSet(window, max, nanos)) {
+            max = maxima.get(window);
+        }
+    }
+
+    /**
+     * Closes the filling window and starts the next, dropping the oldest.
+     * One thread only.
+     */
+    public void rotate() {
+        int next = (current.get() + 1) % windows;
+        for (int b = next * BUCKETS; b < (next + 1) * BUCKETS; b++) {
+            counts.set(b, 0);
+        }
+        maxima.set(next, 0);
+        current.set(next);
+    }
+
+    /** Percentiles over the last {@code count} closed windows (at most those kept). */
+    public @NotNull Summary summary(int count) {
+        long[] values = new long[6];
+        summarize(count, new long[BUCKETS], values);
+        if (values[0] == 0)
+            return Summary.EMPTY;
+        return new Summary(values[0], values[1], values[2], values[3], values[4], values[5]);
+    }
+
+    /** Values recorded since creation. */
+    public long totalCount() {
+        return totalCount.sum();
+    }
+
+    /** Sum of the values recorded since creation, in nanoseconds. */
+    public long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Allocation-free {@link #summary}: fills {@code out} with count, p50,
+     * p90, p99, p999 and max, using {@code merged} ({@value #BUCKETS} longs)
+     * as scratch.
+     */
+    void summarize(int count, long[] merged, long[] out) {
+        count = Math.min(count, windows - 1);
+        Arrays.fill(merged, 0);
+        long total = 0;
+        long max = 0;
+        int window = current.get();
+        for (int w = 0; w < count; w++) {
+            window = (window + windows - 1) % windows;
+            for (int b = 0; b < BUCKETS; b++) {
+                long n = counts.get(window * BUCKETS + b);
+                merged[b] += n;
+                total += n;
+            }
+            max = Math.max(max, maxima.get(window));
+        }
+        out[0] = total;
+        out[1] = total == 0 ? 0 : percentile(merged, total, 0.50, max);
+        out[2] = total == 0 ? 0 : percentile(merged, total, 0.90, max);
+        out[3] = total == 0 ? 0 : percentile(merged, total, 0.99, max);
+        out[4] = total == 0 ? 0 : percentile(merged, total, 0.999, max);
+        out[5] = max;
+    }
+
+    /** Upper bound of the bucket holding the {@code quantile}, capped at the observed maximum. */
+    private static long percentile(long[] buckets, long total, double quantile, long max) {
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets[b];
+            if (seen >= rank)
+                return Math.min(upperBound(b), max);
+        }
+        return max;
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long base = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return base + (1L << shift) - 1;
+    }
+
+    /** Nanosecond percentiles of one or more windows; all zero when nothing was recorded. */
+    public record Summary(long count, long p50, long p90, long p99, long p999, long max) {
+        public static final Summary EMPTY = new Summary(0, 0, 0, 0, 0, 0);
+    }
+}
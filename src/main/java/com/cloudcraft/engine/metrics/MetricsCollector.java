@@ -1,150 +1,197 @@
 package com.cloudcraft.engine.metrics;
 
 import com.cloudcraft.engine.CloudCraftEngine;
+import com.cloudcraft.engine.threading.EntityProcessor;
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import com.destroystokyo.paper.event.server.ServerTickStartEvent;
 import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 /**
- * Collects and analyzes performance metrics during stress testing
+ * Server tick durations and stress test samples, shared by the engine and
+ * {@link com.cloudcraft.engine.testing.StressTest}.
+ *
+ * Tick durations come from Paper's tick start and end events: the time from
+ * the start of a tick to the end of the same tick, in nanoseconds, kept in a
+ * ring of the last {@value #TICK_HISTORY} ticks for rolling percentiles.
+ * The plugin registers the collector as a listener; nothing is scheduled.
+ *
+ * Stress test samples go into a fixed {@link SampleRing} of the last
+ * {@value #SAMPLE_CAPACITY}, with running sums for the run averages, and
+ * are optionally streamed to CSV by a {@link CsvSampleWriter} thread, so a
+ * run of any length costs constant memory. Main thread only.
  */
-public class MetricsCollector {
+public class MetricsCollector implements Listener {
+    /** Ticks of history kept for percentiles: one minute at 20 TPS. */
+    public static final int TICK_HISTORY = 1200;
+    // Ticks averaged by getCurrentMSPT: one second at 20 TPS
+    private static final int MSPT_TICKS = 20;
+    /** Samples kept in memory: an hour at one sample per second. */
+    public static final int SAMPLE_CAPACITY = 3600;
+
     private final CloudCraftEngine plugin;
-    private final List<MetricSample> samples;
     private final AtomicBoolean isCollecting;
-    private final AtomicLong lastTickTime;
     private long startTime;
-    
+
+    // The current run's samples and their running sums
+    private SampleRing samples = new SampleRing(SAMPLE_CAPACITY);
+    private @Nullable CsvSampleWriter export;
+    private long sampleCount;
+    private double tpsSum;
+    private double msptSum;
+    private long memorySum;
+
+    // Ring of tick durations; tick n lands at n % TICK_HISTORY
+    private final long[] tickNanos = new long[TICK_HISTORY];
+    private long ticksRecorded;
+    private long tickStart;
+
     public MetricsCollector(@NotNull CloudCraftEngine plugin) {
         this.plugin = plugin;
-        this.samples = new ArrayList<>();
         this.isCollecting = new AtomicBoolean(false);
-        this.lastTickTime = new AtomicLong(System.nanoTime());
-        
-        // Setup tick time measurement
-        Bukkit.getScheduler().runTaskTimer(plugin, () -> {
-            long now = System.nanoTime();
-            lastTickTime.set(now);
-        }, 1L, 1L);
+    }
+
+    // Lowest priority starts the clock before, and monitor stops it after,
+    // other plugins' tick handlers, which are part of the tick
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onTickStart(ServerTickStartEvent event) {
+        tickStart = System.nanoTime();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onTickEnd(ServerTickEndEvent event) {
+        if (tickStart == 0)
+            return; // registered mid-tick
+        tickNanos[(int) (ticksRecorded % TICK_HISTORY)] = System.nanoTime() - tickStart;
+        ticksRecorded++;
     }
     
-    public void start() {
-        samples.clear();
+    /**
+     * Starts a new sampling run, streaming its samples to {@code csv} if
+     * given. A CSV that cannot be created only costs the export.
+     */
+    public void start(@Nullable Path csv) {
+        stop();
+        samples = new SampleRing(SAMPLE_CAPACITY);
+        sampleCount = 0;
+        tpsSum = 0;
+        msptSum = 0;
+        memorySum = 0;
+        if (csv != null) {
+            try {
+                export = CsvSampleWriter.start(samples, csv, plugin.getLogger());
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to export metrics to CSV", e);
+            }
+        }
         startTime = System.currentTimeMillis();
         isCollecting.set(true);
     }
-    
+
+    /** Ends the run; the CSV, if any, is completed and closed in the background. */
     public void stop() {
         isCollecting.set(false);
+        if (export != null) {
+            export.close();
+            export = null;
+        }
     }
 
     public boolean isCollecting() {
         return isCollecting.get();
     }
 
+    /** Mean duration of the last second's ticks, in milliseconds; 0 before the first tick. */
     public double getCurrentMSPT() {
-        long now = System.nanoTime();
-        long last = lastTickTime.get();
-        return (now - last) / 1_000_000.0; // Convert to milliseconds
+        int count = (int) Math.min(MSPT_TICKS, ticksRecorded);
+        long total = 0;
+        for (int n = 1; n <= count; n++) {
+            total += tickNanos[(int) ((ticksRecorded - n) % TICK_HISTORY)];
+        }
+        return count == 0 ? 0 : total / (count * 1e6);
+    }
+
+    /** Percentiles of the last {@code ticks} tick durations (at most {@value #TICK_HISTORY}). */
+    public @NotNull TickSummary getTickSummary(int ticks) {
+        int count = (int) Math.min(Math.min(ticks, TICK_HISTORY), ticksRecorded);
+        if (count == 0)
+            return TickSummary.EMPTY;
+
+        long[] sorted = new long[count];
+        long total = 0;
+        for (int n = 0; n < count; n++) {
+            sorted[n] = tickNanos[(int) ((ticksRecorded - 1 - n) % TICK_HISTORY)];
+            total += sorted[n];
+        }
+        Arrays.sort(sorted);
+        return new TickSummary(count, total / (count * 1e6),
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted[count - 1] / 1e6);
+    }
+
+    /** Nearest-rank percentile of ascending nanoseconds, in milliseconds. */
+    private static double percentile(long[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1e6;
+    }
+
+    /** Ticks recorded since the collector was registered. */
+    public long getTicksRecorded() {
+        return ticksRecorded;
+    }
+
+    /** Duration of the most recently completed tick in nanoseconds; 0 before the first. */
+    public long getLastTickNanos() {
+        return ticksRecorded == 0 ? 0 : tickNanos[(int) ((ticksRecorded - 1) % TICK_HISTORY)];
     }
     
     public void sample() {
         if (!isCollecting.get()) return;
-        
-        double[] tps = Bukkit.getTPS();
+
+        double tps = Bukkit.getTPS()[0];
+        double mspt = getCurrentMSPT();
         Runtime runtime = Runtime.getRuntime();
-        
-        // Count total entities across all worlds
-        int totalEntities = plugin.getServer().getWorlds().stream()
-                .mapToInt(world -> world.getEntities().size())
-                .sum();
-
-        samples.add(new MetricSample(
-            System.currentTimeMillis() - startTime,
-            tps[0], // Current TPS
-            getCurrentMSPT(),
-            (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024, // Heap usage in MB
-            Thread.activeCount(),
-                plugin.getServer().getOnlinePlayers().size(),
-                totalEntities
-        ));
-    }
-    
-    public void exportToCSV(@NotNull Path path) {
-        try {
-            List<String> lines = new ArrayList<>();
-            lines.add("Timestamp,TPS,MSPT,Memory(MB),Threads,Players,Entities");
-            
-            for (MetricSample sample : samples) {
-                lines.add(String.format("%d,%.2f,%.2f,%d,%d,%d,%d",
-                    sample.timestamp(),
-                    sample.tps(),
-                    sample.mspt(),
-                    sample.memoryUsage(),
-                    sample.threadCount(),
-                        sample.playerCount(),
-                        sample.entityCount()
-                ));
-            }
-            
-            Files.write(path, lines);
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to export metrics to CSV", e);
-        }
+        long memoryMb = (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024;
+
+        // Tracked by the entity registry already; no world scan
+        EntityProcessor processor = plugin.getEntityProcessor();
+        int entities = processor != null ? processor.getEntityRegistry().size() : 0;
+
+        samples.add(System.currentTimeMillis() - startTime, tps, mspt, memoryMb,
+                Thread.activeCount(), plugin.getServer().getOnlinePlayers().size(), entities,
+                !plugin.isEngineBypassed());
+        sampleCount++;
+        tpsSum += tps;
+        msptSum += mspt;
+        memorySum += memoryMb;
     }
-    
+
+    /** Averages over every sample of the current (or last) run. */
     public Summary getSummary() {
-        if (samples.isEmpty()) {
-            return new Summary(20.0, 20.0, 50.0, 50.0, 1024, 1024);
+        if (sampleCount == 0) {
+            return new Summary(0, 0.0, 0.0, 0);
         }
-        
-        double avgTps = samples.stream().mapToDouble(MetricSample::tps).average().orElse(20.0);
-        double avgMspt = samples.stream().mapToDouble(MetricSample::mspt).average().orElse(50.0);
-        long avgMemory = Math.round(samples.stream().mapToLong(MetricSample::memoryUsage).average().orElse(1024));
-        
-        // NOTE: For accurate vanilla comparison, we'd need baseline measurements
-        // without CloudCraft Engine running. These are estimated values based on
-        // typical vanilla performance with similar entity loads.
-        // 
-        // For proper benchmarking, run vanilla first, then CloudCraft with same conditions.
-        double estimatedVanillaTps = Math.max(avgTps * 0.85, 8.0); // Estimate vanilla would be 15% slower
-        double estimatedVanillaMspt = Math.min(avgMspt * 1.5, 75.0); // Estimate vanilla would have 50% higher MSPT
-        long estimatedVanillaMemory = Math.min(avgMemory * 2, 4096); // Estimate vanilla would use 2x memory
-
-        return new Summary(
-                estimatedVanillaTps,
-                avgTps,
-                estimatedVanillaMspt,
-                avgMspt,
-                estimatedVanillaMemory,
-                avgMemory
-        );
+        return new Summary(sampleCount, tpsSum / sampleCount, msptSum / sampleCount,
+                Math.round((double) memorySum / sampleCount));
     }
-    
-    private record MetricSample(
-        long timestamp,
-        double tps,
-        double mspt,
-        long memoryUsage,
-        int threadCount,
-            int playerCount,
-            int entityCount
-    ) {}
-    
-    public record Summary(
-        double vanillaTps,
-        double cloudcraftTps,
-        double vanillaMspt,
-        double cloudcraftMspt,
-        long vanillaMemory,
-        long cloudcraftMemory
-    ) {}
-}
\ No newline at end of file
+
+    /** Tick durations in milliseconds over {@code ticks} ticks; all zero when none were recorded. */
+    public record TickSummary(int ticks, double meanMillis, double p50Millis, double p95Millis,
+                              double p99Millis, double maxMillis) {
+        public static final TickSummary EMPTY = new TickSummary(0, 0, 0, 0, 0, 0);
+    }
+
+    /** Run averages; MSPT is the mean of each sample's one-second tick mean. */
+    public record Summary(long samples, double averageTps, double averageMspt, long averageMemoryMb) {
+    }
+}
@@ -0,0 +1,82 @@
+package com.cloudcraft.engine.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Optional OpenMetrics endpoint at {@code /metrics} on the JDK's built-in
+ * HTTP server.
+ *
+ * Scrapes are served on one dedicated daemon thread, which renders the
+ * {@link Source} into a reused {@link OpenMetricsWriter}; sources read only
+ * counters and histograms that are safe from any thread, so a scrape never
+ * waits for, or runs on, the main thread.
+ */
+public final class MetricsEndpoint {
+    private static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    /** Writes the current metric families; called on the scrape thread. */
+    @FunctionalInterface
+    public interface Source {
+        void write(@NotNull OpenMetricsWriter out);
+    }
+
+    private final Logger logger;
+    private final InetSocketAddress address;
+    private final Source source;
+    private final OpenMetricsWriter writer = new OpenMetricsWriter();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetricsEndpoint(@NotNull Logger logger, @NotNull InetSocketAddress address, @NotNull Source source) {
+        this.logger = logger;
+        this.address = address;
+        this.source = source;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(address, 0);
+        server.createContext("/metrics", this::handle);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "CloudCraft-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Metrics endpoint listening on http://" + address.getHostString() + ":" + address.getPort() + "/metrics");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            writer.reset();
+            source.write(writer);
+            writer.finish();
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, writer.length());
+            exchange.getResponseBody().write(writer.buffer(), 0, writer.length());
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Metrics scrape failed", e);
+        }
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+}
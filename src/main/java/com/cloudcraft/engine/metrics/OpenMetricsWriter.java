@@ -0,0 +1,170 @@
+package com.cloudcraft.engine.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Renders OpenMetrics text into one reusable ASCII byte buffer.
+ *
+ * Names, label keys and label values are written character by character
+ * and numbers digit by digit, so once the buffer has grown to the size of a
+ * full exposition, rendering allocates nothing. A sample is written as
+ * {@link #sample}, any number of {@link #label}s, then one value call.
+ * Not thread-safe; one writer per scrape thread.
+ */
+public final class OpenMetricsWriter {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final String[] QUANTILES = {"0.5", "0.9", "0.99", "0.999"};
+
+    private byte[] buffer = new byte[16 * 1024];
+    private int length;
+    private boolean inLabels;
+
+    // Scratch for rendering histograms
+    private final long[] merged = new long[LatencyHistogram.BUCKETS];
+    private final long[] values = new long[6];
+
+    public void reset() {
+        length = 0;
+        inLabels = false;
+    }
+
+    /** Writes a metric family's {@code # TYPE}, optional {@code # UNIT} and {@code # HELP} lines. */
+    public void family(@NotNull String name, @NotNull String type, @Nullable String unit, @NotNull String help) {
+        text("# TYPE ").text(name).text(" ").text(type).newline();
+        if (unit != null) {
+            text("# UNIT ").text(name).text(" ").text(unit).newline();
+        }
+        text("# HELP ").text(name).text(" ").text(help).newline();
+    }
+
+    /** A counter family with its single {@code _total} sample. */
+    public void counter(@NotNull String name, @NotNull String help, long value) {
+        family(name, "counter", null, help);
+        sample(name).text("_total").value(value);
+    }
+
+    /** A gauge family with its single sample. */
+    public void gauge(@NotNull String name, @NotNull String help, long value) {
+        family(name, "gauge", null, help);
+        sample(name).value(value);
+    }
+
+    /** Starts a sample line; {@code name} includes any suffix such as {@code _total}. */
+    public @NotNull OpenMetricsWriter sample(@NotNull String name) {
+        text(name);
+        inLabels = false;
+        return this;
+    }
+
+    /** Adds a label; values must not need escaping (no quotes, backslashes or newlines). */
+    public @NotNull OpenMetricsWriter label(@NotNull String key, @NotNull String value) {
+        put(inLabels ? (byte) ',' : (byte) '{');
+        inLabels = true;
+        text(key).text("=\"").text(value).put((byte) '"');
+        return this;
+    }
+
+    public void value(long value) {
+        endLabels();
+        number(value);
+        newline();
+    }
+
+    /** Writes a nanosecond duration in seconds, to the nanosecond. */
+    public void seconds(long nanos) {
+        endLabels();
+        if (nanos < 0) {
+            put((byte) '-');
+            nanos = -nanos;
+        }
+        number(nanos / NANOS_PER_SECOND);
+        put((byte) '.');
+        long fraction = nanos % NANOS_PER_SECOND;
+        for (long digit = NANOS_PER_SECOND / 10; digit > 0; digit /= 10) {
+            put((byte) ('0' + fraction / digit % 10));
+        }
+        newline();
+    }
+
+    /**
+     * Writes a histogram as summary samples labelled {@code key=value}:
+     * quantiles in seconds over its last {@code windows} closed windows,
+     * and cumulative {@code _count} and {@code _sum}. The family line is the
+     * caller's.
+     */
+    public void summary(@NotNull String name, @NotNull String key, @NotNull String value,
+                        @NotNull LatencyHistogram histogram, int windows) {
+        histogram.summarize(windows, merged, values);
+        for (int q = 0; q < QUANTILES.length; q++) {
+            sample(name).label(key, value).label("quantile", QUANTILES[q]).seconds(values[q + 1]);
+        }
+        sample(name).text("_count").label(key, value).value(histogram.totalCount());
+        sample(name).text("_sum").label(key, value).seconds(histogram.totalNanos());
+    }
+
+    /** Terminates the exposition. */
+    public void finish() {
+        text("# EOF").newline();
+    }
+
+    public byte @NotNull [] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    private void endLabels() {
+        if (inLabels) {
+            put((byte) '}');
+            inLabels = false;
+        }
+        put((byte) ' ');
+    }
+
+    private OpenMetricsWriter text(String text) {
+        ensureCapacity(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[length++] = (byte) text.charAt(i);
+        }
+        return this;
+    }
+
+    private void number(long value) {
+        if (value == Long.MIN_VALUE) {
+            text("-9223372036854775808");
+            return;
+        }
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        long digit = 1;
+        while (value / digit >= 10) {
+            digit *= 10;
+        }
+        for (; digit > 0; digit /= 10) {
+            put((byte) ('0' + value / digit % 10));
+        }
+    }
+
+    private void newline() {
+        put((byte) '\n');
+    }
+
+    private OpenMetricsWriter put(byte b) {
+        ensureCapacity(1);
+        buffer[length++] = b;
+        return this;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(length + extra, buffer.length * 2));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.cloudcraft.engine.metrics;
+
+/**
+ * Fixed-capacity ring of stress test samples, one primitive array per
+ * column, so hours of sampling cost a constant few hundred kilobytes and no
+ * per-sample objects.
+ *
+ * One thread appends ({@link #add}); one other thread may read samples
+ * behind it ({@link #appendCsv}). Sample {@code n} lives in slot
+ * {@code n % capacity} until sample {@code n + capacity} overwrites it; a
+ * reader that falls that far behind loses the overwritten samples and is
+ * told so.
+ */
+final class SampleRing {
+    static final String CSV_HEADER = "Timestamp,TPS,MSPT,Memory(MB),Threads,Players,Entities,Engine";
+
+    private final int capacity;
+    private final long[] timestamps;
+    private final double[] tps;
+    private final double[] mspt;
+    private final long[] memoryMb;
+    private final int[] threads;
+    private final int[] players;
+    private final int[] entities;
+    private final boolean[] engine;
+    // Samples added; published after the slot is written
+    private volatile long count;
+
+    SampleRing(int capacity) {
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.tps = new double[capacity];
+        this.mspt = new double[capacity];
+        this.memoryMb = new long[capacity];
+        this.threads = new int[capacity];
+        this.players = new int[capacity];
+        this.entities = new int[capacity];
+        this.engine = new boolean[capacity];
+    }
+
+    /** {@code engine} is false for samples taken while the engine was bypassed. */
+    void add(long timestamp, double tps, double mspt, long memoryMb, int threads, int players, int entities,
+             boolean engine) {
+        long n = count;
+        int slot = (int) (n % capacity);
+        this.timestamps[slot] = timestamp;
+        this.tps[slot] = tps;
+        this.mspt[slot] = mspt;
+        this.memoryMb[slot] = memoryMb;
+        this.threads[slot] = threads;
+        this.players[slot] = players;
+        this.entities[slot] = entities;
+        this.engine[slot] = engine;
+        count = n + 1;
+    }
+
+    /** Samples added, including overwritten ones. */
+    long count() {
+        return count;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Appends sample {@code n} to {@code line} as one CSV row without a line
+     * break. Returns false, with {@code line} unchanged, if the sample has
+     * already been overwritten.
+     */
+    boolean appendCsv(long n, StringBuilder line) {
+        int slot = (int) (n % capacity);
+        int start = line.length();
+        line.append(timestamps[slot]).append(',');
+        appendFixed(line, tps[slot]);
+        line.append(',');
+        appendFixed(line, mspt[slot]);
+        line.append(',').append(memoryMb[slot])
+                .append(',').append(threads[slot])
+                .append(',').append(players[slot])
+                .append(',').append(entities[slot])
+                .append(',').append(engine[slot] ? 1 : 0);
+        // The writer may have lapped us while we read the slot
+        if (count - n >= capacity) {
+            line.setLength(start);
+            return false;
+        }
+        return true;
+    }
+
+    /** Two decimal places, like "%.2f", without a formatter. */
+    private static void appendFixed(StringBuilder line, double value) {
+        long hundredths = Math.round(value * 100);
+        if (hundredths < 0) {
+            line.append('-');
+            hundredths = -hundredths;
+        }
+        line.append(hundredths / 100).append('.');
+        if (hundredths % 100 < 10) {
+            line.append('0');
+        }
+        line.append(hundredths % 100);
+    }
+}
@@ -0,0 +1,219 @@
+package com.cloudcraft.engine.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * A* over a {@link Terrain} for a two-block-tall walking mob, moving as
+ * {@link Moves} allows. Costs are in tenths of a block (10 straight, 14
+ * diagonal, plus a penalty for climbing), with the octile distance as the
+ * heuristic.
+ *
+ * One instance per search; all storage is primitive arrays sized by the
+ * node budget.
+ */
+final class AStar {
+    private static final int STRAIGHT = 10;
+    private static final int DIAGONAL = 14;
+    private static final int CLIMB = 10;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final Terrain terrain;
+    private final int maxNodes;
+
+    // Nodes: position, cost so far, parent, and whether already expanded
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] zs;
+    private final int[] costs;
+    private final int[] parents;
+    private final boolean[] closed;
+    private int nodeCount;
+
+    // Position -> node index, open addressing
+    private final long[] tableKeys;
+    private final int[] tableNodes;
+    private final int tableMask;
+
+    // Open set: binary min-heap of (f << 32 | node)
+    private final long[] heap;
+    private int heapSize;
+
+    private int goalX;
+    private int goalY;
+    private int goalZ;
+
+    AStar(Terrain terrain, int maxNodes) {
+        this.terrain = terrain;
+        this.maxNodes = maxNodes;
+        this.xs = new int[maxNodes];
+        this.ys = new int[maxNodes];
+        this.zs = new int[maxNodes];
+        this.costs = new int[maxNodes];
+        this.parents = new int[maxNodes];
+        this.closed = new boolean[maxNodes];
+        int tableSize = Integer.highestOneBit(maxNodes) << 2;
+        this.tableKeys = new long[tableSize];
+        this.tableNodes = new int[tableSize];
+        this.tableMask = tableSize - 1;
+        Arrays.fill(tableKeys, EMPTY);
+        // Every node can be pushed once per improvement; 8 neighbours bound it
+        this.heap = new long[maxNodes * 8 + 1];
+    }
+
+    /**
+     * Finds a route from the start to within one block of the goal, as
+     * x, y, z triples from start to end; null if the goal is unreachable
+     * within the node budget or the start is not standable.
+     */
+    int[] find(int startX, int startY, int startZ, int goalX, int goalY, int goalZ) {
+        // Mid-jump or on a slab edge: try the block below as the start
+        if (!Moves.isStandable(terrain, startX, startY, startZ)) {
+            if (!Moves.isStandable(terrain, startX, startY - 1, startZ))
+                return null;
+            startY--;
+        }
+        this.goalX = goalX;
+        this.goalY = goalY;
+        this.goalZ = goalZ;
+
+        int start = node(startX, startY, startZ);
+        costs[start] = 0;
+        parents[start] = -1;
+        push(start);
+
+        while (heapSize > 0) {
+            int current = pop();
+            if (closed[current])
+                continue;
+            closed[current] = true;
+
+            if (Math.abs(xs[current] - goalX) <= 1 && Math.abs(zs[current] - goalZ) <= 1
+                    && Math.abs(ys[current] - goalY) <= 2)
+                return trace(current);
+
+            for (int d = 0; d < Moves.DIRECTIONS; d++) {
+                if (!expand(current, d))
+                    return null; // node budget exhausted
+            }
+        }
+        return null;
+    }
+
+    /** Relaxes the move from {@code current} in direction {@code d}; false when out of nodes. */
+    private boolean expand(int current, int d) {
+        int y = ys[current];
+        int targetY = Moves.target(terrain, xs[current], y, zs[current], d);
+        if (targetY == Moves.NONE)
+            return true;
+        int x = xs[current] + Moves.DX[d];
+        int z = zs[current] + Moves.DZ[d];
+        int cost = Moves.isDiagonal(d) ? DIAGONAL : STRAIGHT;
+        if (targetY > y) {
+            cost += CLIMB;
+        }
+
+        int existing = lookup(x, targetY, z);
+        int newCost = costs[current] + cost;
+        if (existing >= 0) {
+            if (closed[existing] || newCost >= costs[existing])
+                return true;
+        } else {
+            if (nodeCount == maxNodes)
+                return false;
+            existing = node(x, targetY, z);
+        }
+        costs[existing] = newCost;
+        parents[existing] = current;
+        push(existing);
+        return true;
+    }
+
+    private int heuristic(int node) {
+        int dx = Math.abs(xs[node] - goalX);
+        int dz = Math.abs(zs[node] - goalZ);
+        return STRAIGHT * Math.max(dx, dz) + (DIAGONAL - STRAIGHT) * Math.min(dx, dz);
+    }
+
+    private int[] trace(int end) {
+        int length = 0;
+        for (int n = end; n >= 0; n = parents[n]) {
+            length++;
+        }
+        int[] path = new int[length * 3];
+        int i = length;
+        for (int n = end; n >= 0; n = parents[n]) {
+            i--;
+            path[i * 3] = xs[n];
+            path[i * 3 + 1] = ys[n];
+            path[i * 3 + 2] = zs[n];
+        }
+        return path;
+    }
+
+    private int node(int x, int y, int z) {
+        int node = nodeCount++;
+        xs[node] = x;
+        ys[node] = y;
+        zs[node] = z;
+        long key = pack(x, y, z);
+        int slot = slot(key);
+        while (tableKeys[slot] != EMPTY) {
+            slot = (slot + 1) & tableMask;
+        }
+        tableKeys[slot] = key;
+        tableNodes[slot] = node;
+        return node;
+    }
+
+    private int lookup(int x, int y, int z) {
+        long key = pack(x, y, z);
+        for (int slot = slot(key); tableKeys[slot] != EMPTY; slot = (slot + 1) & tableMask) {
+            if (tableKeys[slot] == key)
+                return tableNodes[slot];
+        }
+        return -1;
+    }
+
+    private int slot(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & tableMask;
+    }
+
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    private void push(int node) {
+        long entry = ((long) (costs[node] + heuristic(node)) << 32) | node;
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry)
+                break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    private int pop() {
+        int top = (int) heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize)
+                break;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child])
+                child++;
+            if (last <= heap[child])
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+}
@@ -0,0 +1,46 @@
+package com.cloudcraft.engine.pathfinding;
+
+import org.bukkit.Material;
+
+/** How pathfinding treats a block type; shared by every {@link Terrain}. */
+public final class BlockClass {
+    private static final Material[] MATERIALS = Material.values();
+    private static final boolean[] SOLID = new boolean[MATERIALS.length];
+    private static final boolean[] LIQUID = new boolean[MATERIALS.length];
+    private static final boolean[] DANGEROUS = new boolean[MATERIALS.length];
+
+    static {
+        for (Material material : MATERIALS) {
+            SOLID[material.ordinal()] = material.isSolid();
+        }
+        for (Material material : new Material[]{Material.WATER, Material.LAVA, Material.BUBBLE_COLUMN}) {
+            LIQUID[material.ordinal()] = true;
+        }
+        for (Material material : new Material[]{Material.LAVA, Material.FIRE, Material.SOUL_FIRE, Material.CACTUS,
+                Material.MAGMA_BLOCK, Material.SWEET_BERRY_BUSH, Material.WITHER_ROSE, Material.POWDER_SNOW,
+                Material.CAMPFIRE, Material.SOUL_CAMPFIRE, Material.COBWEB}) {
+            DANGEROUS[material.ordinal()] = true;
+        }
+    }
+
+    private BlockClass() {
+    }
+
+    public static boolean isSolid(Material material) {
+        return SOLID[material.ordinal()];
+    }
+
+    public static boolean isLiquid(Material material) {
+        return LIQUID[material.ordinal()];
+    }
+
+    /** Not solid, and not a liquid that hurts; water counts as passable. */
+    public static boolean isPassable(Material material) {
+        int ordinal = material.ordinal();
+        return !SOLID[ordinal] && !(LIQUID[ordinal] && DANGEROUS[ordinal]);
+    }
+
+    public static boolean isDangerous(Material material) {
+        return DANGEROUS[material.ordinal()];
+    }
+}
@@ -0,0 +1,168 @@
+package com.cloudcraft.engine.pathfinding;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Breadth-first distance field towards one player over the passable area
+ * around them: for every node a mob can stand on within the field, the move
+ * that brings it one step closer. Any number of mobs sample it in constant
+ * time, instead of each pathing or steering on its own.
+ *
+ * The field is a box of {@code 2 * radius + 1} blocks square and
+ * {@code 2 * height + 1} tall around the player's node, and stores one byte
+ * per block: the direction index of the next move plus the height change,
+ * or -1 where the player cannot be reached (or is already there). Moves are
+ * those of {@link Moves}, searched backwards from the player. Immutable once
+ * built, so shared freely between threads.
+ */
+public final class FlowField {
+    private static final byte NO_STEP = -1;
+
+    private final int world;
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    private final int radius;
+    private final int height;
+    private final int size;
+    private final byte[] steps;
+    private int reached;
+
+    // Mobs that sampled the field since the service last counted them
+    final AtomicInteger users = new AtomicInteger();
+
+    private FlowField(int world, int originX, int originY, int originZ, int radius, int height, byte[] steps) {
+        this.world = world;
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.radius = radius;
+        this.height = height;
+        this.size = 2 * radius + 1;
+        this.steps = steps;
+    }
+
+    /**
+     * Builds the field towards the player at block {@code (x, y, z)}, or
+     * null if they are not standing anywhere a mob could reach (flying,
+     * swimming, in an unloaded chunk).
+     */
+    static @Nullable FlowField build(Terrain terrain, int world, int x, int y, int z, int radius, int height) {
+        // Mid-jump or falling: the player's node is the ground beneath them
+        int originY = y;
+        while (!Moves.isStandable(terrain, x, originY, z)) {
+            if (--originY < y - Moves.MAX_DROP - 1)
+                return null;
+        }
+
+        int size = 2 * radius + 1;
+        int layers = 2 * height + 1;
+        byte[] steps = new byte[size * size * layers];
+        Arrays.fill(steps, NO_STEP);
+        // Per node: 0 unknown, 1 standable, 2 not, 3 already queued
+        byte[] state = new byte[steps.length];
+        int[] queue = new int[steps.length];
+
+        FlowField field = new FlowField(world, x, originY, z, radius, height, steps);
+        int origin = field.index(x, originY, z);
+        state[origin] = 3;
+        queue[0] = origin;
+        int head = 0;
+        int tail = 1;
+
+        // Backwards from the player: find every node whose move in some
+        // direction lands on the node being expanded
+        while (head < tail) {
+            int node = queue[head++];
+            int nodeX = field.blockX(node);
+            int nodeY = field.blockY(node);
+            int nodeZ = field.blockZ(node);
+            for (int d = 0; d < Moves.DIRECTIONS; d++) {
+                int fromX = nodeX - Moves.DX[d];
+                int fromZ = nodeZ - Moves.DZ[d];
+                // Level, stepping up onto the node, or dropping down to it
+                for (int fromY = nodeY - 1; fromY <= nodeY + Moves.MAX_DROP; fromY++) {
+                    int from = field.index(fromX, fromY, fromZ);
+                    if (from < 0 || state[from] >= 2)
+                        continue;
+                    if (state[from] == 0) {
+                        state[from] = (byte) (Moves.isStandable(terrain, fromX, fromY, fromZ) ? 1 : 2);
+                        if (state[from] == 2)
+                            continue;
+                    }
+                    if (Moves.target(terrain, fromX, fromY, fromZ, d) != nodeY)
+                        continue;
+                    state[from] = 3;
+                    steps[from] = (byte) (d | (nodeY - fromY + Moves.MAX_DROP) << 3);
+                    queue[tail++] = from;
+                }
+            }
+        }
+        field.reached = tail;
+        return field;
+    }
+
+    public int world() {
+        return world;
+    }
+
+    /** Nodes the player can be reached from, the player's own included. */
+    public int reached() {
+        return reached;
+    }
+
+    /**
+     * The node a mob at block {@code (x, y, z)} should move to next, or -1
+     * when it is outside the field, cannot reach the player, or is already
+     * at the player's node. A mob mid-jump is sampled from the block below.
+     */
+    public int next(int x, int y, int z) {
+        for (int standY = y; standY >= y - 1; standY--) {
+            int node = index(x, standY, z);
+            if (node < 0 || steps[node] == NO_STEP)
+                continue;
+            int step = steps[node];
+            int d = step & 7;
+            return index(x + Moves.DX[d], standY + (step >>> 3) - Moves.MAX_DROP, z + Moves.DZ[d]);
+        }
+        return -1;
+    }
+
+    /** Centre of node {@code node}'s block. */
+    public double nodeX(int node) {
+        return blockX(node) + 0.5;
+    }
+
+    public double nodeY(int node) {
+        return blockY(node);
+    }
+
+    public double nodeZ(int node) {
+        return blockZ(node) + 0.5;
+    }
+
+    /** Node index of a block, or -1 outside the field. */
+    private int index(int x, int y, int z) {
+        int ix = x - originX + radius;
+        int iy = y - originY + height;
+        int iz = z - originZ + radius;
+        if (ix < 0 || ix >= size || iz < 0 || iz >= size || iy < 0 || iy > 2 * height)
+            return -1;
+        return (iy * size + iz) * size + ix;
+    }
+
+    private int blockX(int node) {
+        return originX - radius + node % size;
+    }
+
+    private int blockY(int node) {
+        return originY - height + node / (size * size);
+    }
+
+    private int blockZ(int node) {
+        return originZ - radius + (node / size) % size;
+    }
+}
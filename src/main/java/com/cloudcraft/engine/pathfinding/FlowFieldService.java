@@ -0,0 +1,231 @@
+package com.cloudcraft.engine.pathfinding;
+
+import com.cloudcraft.engine.config.EngineConfig;
+import com.cloudcraft.engine.metrics.OpenMetricsWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One {@link FlowField} per chased player, shared by every hostile mob
+ * around them.
+ *
+ * AI workers {@link #sample} a player's field while deciding; asking for it
+ * is what makes a player worth a field at all. Each tick the main thread
+ * {@link #track}s every targetable player and rebuilds the field of those
+ * that were asked for and have crossed into another
+ * {@value #CELL_SIZE}-block cell since their field was built, or whose
+ * field saw a block change. Builds run on virtual threads over the
+ * {@link PassabilityCache}, up to {@code flow-field-builds-per-tick} per
+ * tick; until a rebuild lands, mobs keep following the previous field.
+ *
+ * A finished build becomes visible to workers only when {@link #finishTick}
+ * publishes the fields at capture, into one view per snapshot epoch parity
+ * like the snapshot buffers, so a batch sees the same fields however long
+ * it or the builds take.
+ */
+public final class FlowFieldService {
+    /** Edge length of the cells a player must cross to trigger a rebuild, in blocks. */
+    public static final int CELL_SIZE = 4;
+    // Blocks above and below the player a field reaches
+    private static final int HEIGHT = 12;
+
+    private final Logger logger;
+    private final PassabilityCache blocks;
+    private final int radius;
+    private final int buildsPerTick;
+    private final ExecutorService builds = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ConcurrentHashMap<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private int startedThisTick;
+
+    // Published fields by snapshot epoch parity. Written by the main thread
+    // at capture, while no worker holds a snapshot of that parity.
+    @SuppressWarnings("unchecked")
+    private final Map<UUID, FlowField>[] views = new Map[]{new HashMap<>(), new HashMap<>()};
+
+    private final AtomicLong built = new AtomicLong();
+    private final AtomicLong buildNanos = new AtomicLong();
+    private final AtomicLong maxBuildNanos = new AtomicLong();
+    // Sharing over the last tick, written by the main thread
+    private int fieldsUsed;
+    private int mobsSampling;
+    private volatile int maxMobsPerField;
+
+    public FlowFieldService(@NotNull Logger logger, @NotNull EngineConfig config, @NotNull PassabilityCache blocks) {
+        this.logger = logger;
+        this.blocks = blocks;
+        this.radius = config.flowFieldRadius();
+        this.buildsPerTick = config.flowFieldBuildsPerTick();
+    }
+
+    /** A player's field and what the main thread knows about it. */
+    private static final class Entry {
+        volatile @Nullable FlowField field;
+        volatile boolean building;
+        // Set by workers asking for the field, cleared when a build starts
+        volatile boolean wanted;
+
+        // Main thread only: where the current field was built, and whether a block changed in it
+        int world = -1;
+        int x;
+        int z;
+        int cellX;
+        int cellY;
+        int cellZ;
+        boolean stale;
+        long seenTick;
+    }
+
+    /**
+     * The field towards {@code player} as published for the snapshot of
+     * {@code epoch}, or null if none was; either way the field is requested
+     * for the next build. Safe from any thread processing that snapshot.
+     */
+    public @Nullable FlowField sample(long epoch, @NotNull UUID player) {
+        Entry entry = entries.get(player);
+        if (entry != null && !entry.wanted) {
+            entry.wanted = true;
+        }
+        FlowField field = views[(int) (epoch & 1)].get(player);
+        if (field != null) {
+            field.users.incrementAndGet();
+        }
+        return field;
+    }
+
+    /**
+     * Records where a targetable player is this tick and starts a rebuild of
+     * their field if it is wanted and out of date. Main thread.
+     */
+    public void track(@NotNull UUID player, int world, int minY, int maxY, double x, double y, double z, long tick) {
+        Entry entry = entries.computeIfAbsent(player, id -> new Entry());
+        entry.seenTick = tick;
+
+        int blockX = (int) Math.floor(x);
+        int blockY = (int) Math.floor(y);
+        int blockZ = (int) Math.floor(z);
+        int cellX = Math.floorDiv(blockX, CELL_SIZE);
+        int cellY = Math.floorDiv(blockY, CELL_SIZE);
+        int cellZ = Math.floorDiv(blockZ, CELL_SIZE);
+        boolean moved = world != entry.world || cellX != entry.cellX || cellY != entry.cellY || cellZ != entry.cellZ;
+        if (!entry.wanted || entry.building || startedThisTick == buildsPerTick)
+            return;
+        if (!moved && !entry.stale && entry.field != null)
+            return;
+
+        entry.world = world;
+        entry.x = blockX;
+        entry.z = blockZ;
+        entry.cellX = cellX;
+        entry.cellY = cellY;
+        entry.cellZ = cellZ;
+        entry.stale = false;
+        entry.wanted = false;
+        entry.building = true;
+        try {
+            builds.execute(() -> build(entry, world, minY, maxY, blockX, blockY, blockZ));
+            startedThisTick++;
+        } catch (RejectedExecutionException e) {
+            entry.building = false; // shutting down
+        }
+    }
+
+    private void build(Entry entry, int world, int minY, int maxY, int x, int y, int z) {
+        try {
+            long start = System.nanoTime();
+            FlowField field = FlowField.build(blocks.terrain(world, minY, maxY), world, x, y, z, radius, HEIGHT);
+            long nanos = System.nanoTime() - start;
+            built.incrementAndGet();
+            buildNanos.addAndGet(nanos);
+            maxBuildNanos.accumulateAndGet(nanos, Math::max);
+            entry.field = field;
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Flow field build failed", e);
+        } finally {
+            entry.building = false;
+        }
+    }
+
+    /**
+     * Forgets the players not tracked this tick, publishes the built fields
+     * for the snapshot of {@code epoch} and counts how many mobs shared each
+     * field since the last call. Main thread, after the last {@link #track}
+     * of the tick and before the snapshot is handed to the workers.
+     */
+    public void finishTick(long tick, long epoch) {
+        startedThisTick = 0;
+        fieldsUsed = 0;
+        mobsSampling = 0;
+        maxMobsPerField = 0;
+        Map<UUID, FlowField> view = views[(int) (epoch & 1)];
+        view.clear();
+        for (Iterator<Map.Entry<UUID, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<UUID, Entry> tracked = it.next();
+            Entry entry = tracked.getValue();
+            if (entry.seenTick != tick) {
+                it.remove(); // offline, dead or no longer targetable
+                continue;
+            }
+            FlowField field = entry.field;
+            if (field != null) {
+                view.put(tracked.getKey(), field);
+            }
+            int users = field != null ? field.users.getAndSet(0) : 0;
+            if (users > 0) {
+                fieldsUsed++;
+                mobsSampling += users;
+                maxMobsPerField = Math.max(maxMobsPerField, users);
+            }
+        }
+    }
+
+    /** A block changed at {@code (x, z)}: rebuild the fields covering it. Main thread. */
+    public void invalidate(int world, int x, int z) {
+        for (Entry entry : entries.values()) {
+            if (entry.world == world && Math.abs(x - entry.x) <= radius && Math.abs(z - entry.z) <= radius) {
+                entry.stale = true;
+            }
+        }
+    }
+
+    /** Forgets every field, e.g. when world indices shift. Main thread. */
+    public void clear() {
+        entries.clear();
+    }
+
+    public void shutdown() {
+        builds.shutdownNow();
+    }
+
+    public @NotNull FlowMetrics getMetrics() {
+        long count = built.get();
+        return new FlowMetrics(entries.size(), count,
+                count == 0 ? 0 : buildNanos.get() / count / 1000, maxBuildNanos.get() / 1000,
+                fieldsUsed == 0 ? 0 : (double) mobsSampling / fieldsUsed, maxMobsPerField);
+    }
+
+    /** Writes the flow field metric families; safe from any thread. */
+    public void writeMetrics(@NotNull OpenMetricsWriter out) {
+        out.gauge("cloudcraft_flow_field_players", "Players tracked for flow fields", entries.size());
+        out.counter("cloudcraft_flow_field_builds", "Flow fields built", built.get());
+        out.family("cloudcraft_flow_field_build_seconds", "counter", "seconds", "Time spent building flow fields");
+        out.sample("cloudcraft_flow_field_build_seconds_total").seconds(buildNanos.get());
+        out.gauge("cloudcraft_flow_field_mobs_max", "Most mobs sharing one field over the last tick", maxMobsPerField);
+    }
+
+    public record FlowMetrics(int players, long builds, long avgBuildMicros, long maxBuildMicros,
+                              double mobsPerField, int maxMobsPerField) {
+    }
+}
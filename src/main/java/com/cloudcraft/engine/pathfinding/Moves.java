@@ -0,0 +1,66 @@
+package com.cloudcraft.engine.pathfinding;
+
+/**
+ * How a two-block-tall walking mob moves over a {@link Terrain}, shared by
+ * {@link AStar} and {@link FlowField} so paths and fields agree.
+ *
+ * A node is a block position the mob can stand in: passable at feet and
+ * head, solid below, nothing dangerous. Moves go to the 8 horizontal
+ * neighbours, stepping up one block or dropping up to three; diagonals may
+ * not cut corners.
+ */
+final class Moves {
+    static final int DIRECTIONS = 8;
+    static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    static final int[] DZ = {0, 0, 1, -1, 1, -1, 1, -1};
+    static final int MAX_DROP = 3;
+    /** {@link #target} result when the move is impossible. */
+    static final int NONE = Integer.MIN_VALUE;
+
+    private Moves() {
+    }
+
+    static boolean isDiagonal(int d) {
+        return d >= 4;
+    }
+
+    /**
+     * Height the mob standing at {@code (x, y, z)} ends up at after moving
+     * one block in direction {@code d}, or {@link #NONE}.
+     */
+    static int target(Terrain terrain, int x, int y, int z, int d) {
+        int toX = x + DX[d];
+        int toZ = z + DZ[d];
+        if (!terrain.isLoaded(toX, toZ))
+            return NONE;
+
+        // No cutting corners: both orthogonal neighbours must be open at feet and head
+        if (isDiagonal(d) && !(isOpen(terrain, toX, y, z) && isOpen(terrain, x, y, toZ)))
+            return NONE;
+
+        if (isStandable(terrain, toX, y, toZ))
+            return y;
+        // Step up, with headroom above the current position for the jump
+        if (isStandable(terrain, toX, y + 1, toZ) && terrain.isPassable(x, y + 2, z))
+            return y + 1;
+        for (int drop = 1; drop <= MAX_DROP; drop++) {
+            if (!terrain.isPassable(toX, y - drop + 1, toZ))
+                break;
+            if (isStandable(terrain, toX, y - drop, toZ))
+                return y - drop;
+        }
+        return NONE;
+    }
+
+    static boolean isStandable(Terrain terrain, int x, int y, int z) {
+        return y > terrain.minY() && y + 1 < terrain.maxY()
+                && terrain.isSolid(x, y - 1, z)
+                && isOpen(terrain, x, y, z)
+                && !terrain.isDangerous(x, y - 1, z);
+    }
+
+    private static boolean isOpen(Terrain terrain, int x, int y, int z) {
+        return terrain.isPassable(x, y, z) && terrain.isPassable(x, y + 1, z)
+                && !terrain.isDangerous(x, y, z) && !terrain.isDangerous(x, y + 1, z);
+    }
+}
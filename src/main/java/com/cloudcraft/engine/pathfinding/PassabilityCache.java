@@ -0,0 +1,404 @@
+package com.cloudcraft.engine.pathfinding;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Block passability of every loaded chunk, kept off-heap for the async AI.
+ *
+ * Each 16x16x16 chunk section stores four class bits per block -
+ * {@link #SOLID}, {@link #PASSABLE}, {@link #LIQUID}, {@link #DANGEROUS} -
+ * packed sixteen blocks to a long, 2 KiB per section in a direct buffer.
+ * Sections whose blocks all fall into the same class (open air, solid
+ * stone, the ocean) store just that class and no buffer, so a typical
+ * chunk costs a few sections' worth.
+ *
+ * Chunks are filled from a {@link ChunkSnapshot} on a virtual thread when
+ * they load, and kept current block by block afterwards. Reads take no
+ * locks: chunks are published through a concurrent map, mixed sections
+ * through release/acquire array stores, and a block's class bits all live
+ * in one word written with a single release store, so a worker sees either
+ * the old or the new state of a changing block, never a mix of the two.
+ * The main thread is the only writer; direct memory is released by the GC
+ * once an unloaded chunk is no longer referenced by an in-progress read.
+ */
+public final class PassabilityCache {
+    public static final int SOLID = 1;
+    public static final int PASSABLE = 1 << 1;
+    public static final int LIQUID = 1 << 2;
+    public static final int DANGEROUS = 1 << 3;
+
+    // Four class bits per block, sixteen blocks per word
+    private static final int CLASS_BITS = 4;
+    private static final int SECTION_WORDS = 4096 * CLASS_BITS / Long.SIZE;
+    static final long SECTION_BYTES = (long) SECTION_WORDS * Long.BYTES;
+    private static final VarHandle SECTIONS = MethodHandles.arrayElementVarHandle(ByteBuffer[].class);
+    private static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    // Per material ordinal: its class flags
+    private static final Material[] MATERIALS = Material.values();
+    private static final byte[] MATERIAL_FLAGS = new byte[MATERIALS.length];
+
+    static {
+        for (Material material : MATERIALS) {
+            MATERIAL_FLAGS[material.ordinal()] = (byte) flagsOf(material);
+        }
+    }
+
+    /** Class flags of one block, chunk-local x and z, for filling from anything but a {@link ChunkSnapshot}. */
+    @FunctionalInterface
+    interface BlockSource {
+        int flags(int x, int y, int z);
+    }
+
+    private final Logger logger;
+    private final ExecutorService fills = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<Long, ChunkData> chunks = new ConcurrentHashMap<>();
+
+    // Fills finished off-thread, published by the main thread; and chunks
+    // that changed while their fill was running, which must be filled again
+    private final ConcurrentLinkedQueue<ChunkData> filled = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Boolean> filling = new ConcurrentHashMap<>();
+
+    private final AtomicLong nativeBytes = new AtomicLong();
+
+    public PassabilityCache(@NotNull Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Fills the chunk in the background from {@code snapshot}; it becomes
+     * readable at the next {@link #publishFilled}. Main thread.
+     */
+    public void load(int world, @NotNull ChunkSnapshot snapshot, int minY, int maxY) {
+        long ref = chunkRef(world, snapshot.getX(), snapshot.getZ());
+        filling.put(ref, Boolean.FALSE);
+        try {
+            fills.execute(() -> {
+                try {
+                    filled.add(fill(ref, minY, maxY, (x, y, z) -> flagsOf(snapshot.getBlockType(x, y, z)),
+                            snapshot::isSectionEmpty));
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Passability fill failed", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            filling.remove(ref); // shutting down
+        }
+    }
+
+    /**
+     * Publishes finished fills. Returns the refs of fills that were
+     * discarded because their chunk changed meanwhile; the caller loads them
+     * again from a fresh snapshot. Main thread.
+     */
+    public long @NotNull [] publishFilled() {
+        long[] stale = null;
+        int staleCount = 0;
+        ChunkData data;
+        while ((data = filled.poll()) != null) {
+            Boolean changed = filling.remove(data.ref);
+            if (changed == null)
+                continue; // unloaded meanwhile
+            if (changed) {
+                if (stale == null)
+                    stale = new long[4];
+                else if (staleCount == stale.length)
+                    stale = Arrays.copyOf(stale, staleCount * 2);
+                stale[staleCount++] = data.ref;
+                continue;
+            }
+            ChunkData previous = chunks.put(data.ref, data);
+            nativeBytes.addAndGet(data.bytes() - (previous != null ? previous.bytes() : 0));
+        }
+        return stale == null ? new long[0] : Arrays.copyOf(stale, staleCount);
+    }
+
+    /** Fills a chunk synchronously from {@code source}; for tests and benchmarks. */
+    void loadNow(int world, int chunkX, int chunkZ, int minY, int maxY, BlockSource source) {
+        long ref = chunkRef(world, chunkX, chunkZ);
+        ChunkData data = fill(ref, minY, maxY, source, section -> false);
+        ChunkData previous = chunks.put(ref, data);
+        nativeBytes.addAndGet(data.bytes() - (previous != null ? previous.bytes() : 0));
+    }
+
+    public void unload(int world, int chunkX, int chunkZ) {
+        long ref = chunkRef(world, chunkX, chunkZ);
+        filling.remove(ref);
+        ChunkData previous = chunks.remove(ref);
+        if (previous != null) {
+            nativeBytes.addAndGet(-previous.bytes());
+        }
+    }
+
+    /** Forgets every chunk of every world. Main thread. */
+    public void clear() {
+        filling.clear();
+        chunks.clear();
+        nativeBytes.set(0);
+    }
+
+    /** The block at {@code (x, y, z)} is now {@code type}. Main thread. */
+    public void update(int world, int x, int y, int z, @NotNull Material type) {
+        long ref = chunkRef(world, x >> 4, z >> 4);
+        filling.computeIfPresent(ref, (r, changed) -> Boolean.TRUE);
+        ChunkData data = chunks.get(ref);
+        if (data == null)
+            return;
+        int section = (y >> 4) - data.minSection;
+        if (section < 0 || section >= data.uniform.length)
+            return;
+
+        int flags = MATERIAL_FLAGS[type.ordinal()];
+        ByteBuffer bits = (ByteBuffer) SECTIONS.getAcquire(data.sections, section);
+        if (bits == null) {
+            if (flags == data.uniform[section])
+                return;
+            // First odd block in a uniform section: give it a buffer
+            bits = allocate(data.uniform[section]);
+            data.bytes += SECTION_BYTES;
+            nativeBytes.addAndGet(SECTION_BYTES);
+            set(bits, index(x, y, z), flags);
+            SECTIONS.setRelease(data.sections, section, bits);
+        } else {
+            set(bits, index(x, y, z), flags);
+        }
+    }
+
+    /** Class flags at a block, or 0 where no chunk is cached. Any thread. */
+    public int flags(int world, int x, int y, int z) {
+        ChunkData data = chunks.get(chunkRef(world, x >> 4, z >> 4));
+        return data == null ? 0 : data.flags(x, y, z);
+    }
+
+    public boolean isLoaded(int world, int chunkX, int chunkZ) {
+        return chunks.containsKey(chunkRef(world, chunkX, chunkZ));
+    }
+
+    /**
+     * A {@link Terrain} over one world for a single search: it remembers the
+     * last chunk it read, so it must not be shared between threads.
+     */
+    public @NotNull Terrain terrain(int world, int minY, int maxY) {
+        return new View(world, minY, maxY);
+    }
+
+    /** Chunks currently readable. */
+    public int chunkCount() {
+        return chunks.size();
+    }
+
+    /** Direct memory held by the readable chunks' section buffers. */
+    public long nativeBytes() {
+        return nativeBytes.get();
+    }
+
+    public void shutdown() {
+        fills.shutdownNow();
+    }
+
+    /** World index folded into a chunk position; chunk coordinates fit in 26 bits each. */
+    static long chunkRef(int world, int chunkX, int chunkZ) {
+        return ((long) world << 52) | (((long) chunkX & 0x3FFFFFF) << 26) | ((long) chunkZ & 0x3FFFFFF);
+    }
+
+    static int refWorld(long ref) {
+        return (int) (ref >>> 52);
+    }
+
+    static int refChunkX(long ref) {
+        return (int) (ref << 12 >> 38);
+    }
+
+    static int refChunkZ(long ref) {
+        return (int) (ref << 38 >> 38);
+    }
+
+    static int flagsOf(Material material) {
+        int flags = 0;
+        if (BlockClass.isSolid(material))
+            flags |= SOLID;
+        if (BlockClass.isPassable(material))
+            flags |= PASSABLE;
+        if (BlockClass.isLiquid(material))
+            flags |= LIQUID;
+        if (BlockClass.isDangerous(material))
+            flags |= DANGEROUS;
+        return flags;
+    }
+
+    private interface EmptySections {
+        boolean isEmpty(int section);
+    }
+
+    private ChunkData fill(long ref, int minY, int maxY, BlockSource source, EmptySections empty) {
+        int minSection = minY >> 4;
+        int sectionCount = (maxY - minY + 15) >> 4;
+        ChunkData data = new ChunkData(ref, minSection, sectionCount);
+        int airFlags = MATERIAL_FLAGS[Material.AIR.ordinal()];
+
+        for (int s = 0; s < sectionCount; s++) {
+            // ChunkSnapshot indexes sections from the world's bottom
+            if (empty.isEmpty(s)) {
+                data.uniform[s] = (byte) airFlags;
+                continue;
+            }
+            int baseY = (minSection + s) << 4;
+            ByteBuffer bits = null;
+            int first = source.flags(0, baseY, 0);
+            for (int i = 0; i < 4096; i++) {
+                int flags = source.flags(i & 15, baseY + (i >>> 8), (i >>> 4) & 15);
+                if (bits == null && flags != first) {
+                    // Not uniform after all: materialise everything seen so far
+                    bits = allocate(first);
+                }
+                if (bits != null) {
+                    set(bits, i, flags);
+                }
+            }
+            data.uniform[s] = (byte) first;
+            if (bits != null) {
+                data.sections[s] = bits;
+                data.bytes += SECTION_BYTES;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * A section buffer with every block set to {@code flags}. Aligned to a
+     * word, which atomic view access requires.
+     */
+    private static ByteBuffer allocate(int flags) {
+        ByteBuffer bits = ByteBuffer.allocateDirect((int) SECTION_BYTES + Long.BYTES - 1)
+                .alignedSlice(Long.BYTES).limit((int) SECTION_BYTES).slice();
+        if (flags != 0) {
+            long word = flags * 0x1111_1111_1111_1111L;
+            for (int w = 0; w < SECTION_WORDS; w++) {
+                WORDS.set(bits, w * Long.BYTES, word);
+            }
+        }
+        return bits;
+    }
+
+    /** Replaces one block's class bits with a single release store; one writer only. */
+    private static void set(ByteBuffer bits, int index, int flags) {
+        int offset = (index >>> 4) * Long.BYTES;
+        int shift = (index & 15) * CLASS_BITS;
+        long word = (long) WORDS.get(bits, offset);
+        WORDS.setRelease(bits, offset, (word & ~(0xFL << shift)) | ((long) flags << shift));
+    }
+
+    /** Bit index within a section: y, then z, then x. */
+    private static int index(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    private static final class ChunkData {
+        final long ref;
+        final int minSection;
+        // Per section: its class when uniform, else its buffer (read with acquire)
+        final byte[] uniform;
+        final ByteBuffer[] sections;
+        long bytes;
+
+        ChunkData(long ref, int minSection, int sectionCount) {
+            this.ref = ref;
+            this.minSection = minSection;
+            this.uniform = new byte[sectionCount];
+            this.sections = new ByteBuffer[sectionCount];
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        int flags(int x, int y, int z) {
+            int section = (y >> 4) - minSection;
+            if (section < 0 || section >= uniform.length)
+                return 0;
+            ByteBuffer bits = (ByteBuffer) SECTIONS.getAcquire(sections, section);
+            if (bits == null)
+                return uniform[section];
+
+            int index = index(x, y, z);
+            long word = (long) WORDS.getAcquire(bits, (index >>> 4) * Long.BYTES);
+            return (int) (word >>> ((index & 15) * CLASS_BITS)) & 0xF;
+        }
+    }
+
+    /** Single-search view with a one-chunk lookup cache. */
+    private final class View implements Terrain {
+        private final int world;
+        private final int minY;
+        private final int maxY;
+        private long lastRef = Long.MIN_VALUE;
+        private ChunkData lastChunk;
+
+        View(int world, int minY, int maxY) {
+            this.world = world;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+
+        @Override
+        public boolean isLoaded(int x, int z) {
+            return chunk(x, z) != null;
+        }
+
+        @Override
+        public boolean isSolid(int x, int y, int z) {
+            return (flags(x, y, z) & SOLID) != 0;
+        }
+
+        @Override
+        public boolean isPassable(int x, int y, int z) {
+            return (flags(x, y, z) & PASSABLE) != 0;
+        }
+
+        @Override
+        public boolean isDangerous(int x, int y, int z) {
+            return (flags(x, y, z) & DANGEROUS) != 0;
+        }
+
+        @Override
+        public int minY() {
+            return minY;
+        }
+
+        @Override
+        public int maxY() {
+            return maxY;
+        }
+
+        private int flags(int x, int y, int z) {
+            ChunkData data = chunk(x, z);
+            return data == null ? 0 : data.flags(x, y, z);
+        }
+
+        private ChunkData chunk(int x, int z) {
+            long ref = chunkRef(world, x >> 4, z >> 4);
+            if (ref != lastRef) {
+                lastRef = ref;
+                lastChunk = chunks.get(ref);
+            }
+            return lastChunk;
+        }
+    }
+}
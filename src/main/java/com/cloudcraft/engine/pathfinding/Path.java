@@ -0,0 +1,60 @@
+package com.cloudcraft.engine.pathfinding;
+
+/**
+ * A found route, as block positions to walk through, shared by every cache
+ * entry along it: the entry for a cell part-way along starts at
+ * {@link #from}. An empty path records that the goal was unreachable.
+ */
+public final class Path {
+    // x, y, z per node
+    private final int[] nodes;
+    private final int from;
+    final long createdTick;
+    // Last snapshot epoch a worker found this entry in, for eviction; -1 if never
+    volatile long lastUsedEpoch = -1;
+
+    Path(int[] nodes, int from, long createdTick) {
+        this.nodes = nodes;
+        this.from = from;
+        this.createdTick = createdTick;
+    }
+
+    /** False for a cached "unreachable" result. */
+    public boolean isReachable() {
+        return nodes.length > 0;
+    }
+
+    /**
+     * Index of the node to head for from {@code (x, y, z)}: the one after the
+     * closest node, or -1 if the closest is the last (the goal is reached).
+     */
+    public int nextNode(double x, double y, double z) {
+        int closest = -1;
+        double closestSq = Double.MAX_VALUE;
+        for (int n = from; n < nodes.length / 3; n++) {
+            double dx = nodes[n * 3] + 0.5 - x;
+            double dy = nodes[n * 3 + 1] - y;
+            double dz = nodes[n * 3 + 2] + 0.5 - z;
+            double distanceSq = dx * dx + dy * dy + dz * dz;
+            if (distanceSq < closestSq) {
+                closestSq = distanceSq;
+                closest = n;
+            }
+        }
+        return closest < 0 || closest + 1 == nodes.length / 3 ? -1 : closest + 1;
+    }
+
+    /** Block centre of node {@code n}. */
+    public double nodeX(int n) {
+        return nodes[n * 3] + 0.5;
+    }
+
+    /** Feet height of node {@code n}. */
+    public double nodeY(int n) {
+        return nodes[n * 3 + 1];
+    }
+
+    public double nodeZ(int n) {
+        return nodes[n * 3 + 2] + 0.5;
+    }
+}
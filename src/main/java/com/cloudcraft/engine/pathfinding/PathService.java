@@ -0,0 +1,393 @@
+package com.cloudcraft.engine.pathfinding;
+
+import com.cloudcraft.engine.config.EngineConfig;
+import com.cloudcraft.engine.metrics.OpenMetricsWriter;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Background A* pathfinding with a shared path cache.
+ *
+ * AI workers call {@link #find} while deciding. A cached path is returned
+ * straight away; on a miss the request is queued and the caller falls back
+ * to its own movement for now. Each tick the main thread {@link #dispatch}es
+ * up to {@code max-requests-per-tick} queued requests, each searched on a
+ * virtual thread over the {@link PassabilityCache}. Requests over the
+ * budget are dropped and simply asked again by the mob's next decision.
+ *
+ * Finished searches only enter the cache when the main thread
+ * {@link #publish}es them at capture, and workers read a view of the cache
+ * as it was published for their snapshot: one view per snapshot epoch
+ * parity, like the snapshot buffers, each brought up to date only when a
+ * snapshot of its parity is captured. A batch therefore sees the same paths
+ * however long it or the searches take, and never a path that lands while
+ * it runs.
+ *
+ * Paths are cached by start cell and goal cell ({@value #CELL_SIZE}-block
+ * cubes), and a found path is entered under every cell it passes through,
+ * so mobs following it - or joining it part-way - keep hitting the cache as
+ * they move. Entries expire after {@code cache-ttl-ticks}, and a block
+ * change drops every entry whose search covered that chunk, along with any
+ * search that read blocks that changed under it.
+ */
+public final class PathService {
+    /** Edge length of the cells paths are cached by, in blocks. */
+    public static final int CELL_SIZE = 4;
+    // Chunks searched around start and goal, and the largest span searched
+    private static final int MARGIN_CHUNKS = 1;
+    private static final int MAX_SPAN_CHUNKS = 6;
+    private static final int EXPIRY_INTERVAL_TICKS = 20;
+
+    private final Logger logger;
+    private final PassabilityCache blocks;
+    private final int requestsPerTick;
+    private final int maxNodes;
+    private final int cacheSize;
+    private final int cacheTtlTicks;
+    private final ExecutorService searches = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Worker -> main thread: requested searches, deduplicated by key
+    private final ConcurrentLinkedQueue<Request> requests = new ConcurrentLinkedQueue<>();
+    private final Set<Key> pending = ConcurrentHashMap.newKeySet();
+
+    // Searches -> main thread: finished searches, entered at the next publish
+    private final ConcurrentLinkedQueue<Result> completed = new ConcurrentLinkedQueue<>();
+
+    // Main thread: results, the cache keys each chunk invalidates, and
+    // per-chunk change counts. The cache is concurrent only for metrics.
+    private final ConcurrentHashMap<Key, Path> cache = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Key>> keysByChunk = new HashMap<>();
+    private final Map<Long, Integer> chunkVersions = new HashMap<>();
+
+    // Published views of the cache, by snapshot epoch parity, with the keys
+    // each has yet to catch up on. Written by the main thread at capture,
+    // while no worker holds a snapshot of that parity.
+    @SuppressWarnings("unchecked")
+    private final Map<Key, Path>[] views = new Map[]{new HashMap<>(), new HashMap<>()};
+    @SuppressWarnings("unchecked")
+    private final Set<Key>[] changed = new Set[]{new HashSet<>(), new HashSet<>()};
+    private final boolean[] viewCleared = new boolean[2];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong solved = new AtomicLong();
+    private final AtomicLong unreachable = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    public PathService(@NotNull Logger logger, @NotNull EngineConfig config, @NotNull PassabilityCache blocks) {
+        this.logger = logger;
+        this.blocks = blocks;
+        this.requestsPerTick = config.pathRequestsPerTick();
+        this.maxNodes = config.pathMaxNodes();
+        this.cacheSize = config.pathCacheSize();
+        this.cacheTtlTicks = config.pathCacheTtlTicks();
+    }
+
+    /** Cache key: world index plus packed start and goal cells. */
+    private record Key(int world, long start, long goal) {
+    }
+
+    private record Request(Key key, int startX, int startY, int startZ, int goalX, int goalY, int goalZ) {
+    }
+
+    /** A finished search, with the chunk versions it read; null nodes when the goal was unreachable. */
+    private record Result(Request request, long[] chunkKeys, int[] versions, int @Nullable [] nodes, long tick) {
+    }
+
+    /**
+     * Path from the block at {@code (startX, startY, startZ)} towards
+     * {@code (goalX, goalY, goalZ)} as published for the snapshot of
+     * {@code epoch}, or null if none was, in which case a search is
+     * requested. Safe from any thread processing that snapshot.
+     */
+    public @Nullable Path find(long epoch, int world, int startX, int startY, int startZ,
+                               int goalX, int goalY, int goalZ) {
+        Key key = new Key(world, cell(startX, startY, startZ), cell(goalX, goalY, goalZ));
+        Path path = views[(int) (epoch & 1)].get(key);
+        if (path != null) {
+            hits.incrementAndGet();
+            path.lastUsedEpoch = epoch;
+            return path;
+        }
+        misses.incrementAndGet();
+        if (pending.add(key)) {
+            requests.add(new Request(key, startX, startY, startZ, goalX, goalY, goalZ));
+        }
+        return null;
+    }
+
+    /**
+     * Enters the searches finished since the last call and brings the view
+     * for {@code epoch}'s parity up to date. Call at capture, after the
+     * block changes are flushed and before the snapshot of {@code epoch} is
+     * handed to the workers, who see exactly what is published here. Main
+     * thread.
+     */
+    public void publish(long epoch) {
+        Result result;
+        while ((result = completed.poll()) != null) {
+            enter(result);
+        }
+
+        int parity = (int) (epoch & 1);
+        Map<Key, Path> view = views[parity];
+        if (viewCleared[parity]) {
+            view.clear();
+            viewCleared[parity] = false;
+        }
+        for (Key key : changed[parity]) {
+            Path path = cache.get(key);
+            if (path == null) {
+                view.remove(key);
+            } else {
+                view.put(key, path);
+            }
+        }
+        changed[parity].clear();
+    }
+
+    /**
+     * Starts up to the per-tick budget of queued searches and drops the rest.
+     * Main thread; {@code worlds} is indexed like the snapshot's world indices.
+     */
+    public void dispatch(@NotNull List<World> worlds, long tick) {
+        if (tick % EXPIRY_INTERVAL_TICKS == 0) {
+            expire(tick);
+        }
+
+        int started = 0;
+        Request request;
+        while ((request = requests.poll()) != null) {
+            Key key = request.key();
+            if (started == requestsPerTick || key.world() >= worlds.size() || !start(worlds.get(key.world()), request, tick)) {
+                pending.remove(key);
+                dropped.incrementAndGet();
+                continue;
+            }
+            started++;
+        }
+    }
+
+    /** Records the versions of the chunks the search reads and submits it; false if it cannot run. */
+    private boolean start(World world, Request request, long tick) {
+        int minChunkX = (Math.min(request.startX(), request.goalX()) >> 4) - MARGIN_CHUNKS;
+        int maxChunkX = (Math.max(request.startX(), request.goalX()) >> 4) + MARGIN_CHUNKS;
+        int minChunkZ = (Math.min(request.startZ(), request.goalZ()) >> 4) - MARGIN_CHUNKS;
+        int maxChunkZ = (Math.max(request.startZ(), request.goalZ()) >> 4) + MARGIN_CHUNKS;
+        if (maxChunkX - minChunkX >= MAX_SPAN_CHUNKS || maxChunkZ - minChunkZ >= MAX_SPAN_CHUNKS)
+            return false;
+
+        // Chunks not in the cache read as unloaded: a search must never load terrain
+        int worldIndex = request.key().world();
+        long[] chunkKeys = new long[(maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1)];
+        int[] versions = new int[chunkKeys.length];
+        int n = 0;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                long chunkKey = Chunk.getChunkKey(chunkX, chunkZ);
+                chunkKeys[n] = chunkKey;
+                versions[n++] = chunkVersions.getOrDefault(chunkRef(worldIndex, chunkKey), 0);
+            }
+        }
+
+        Terrain terrain = blocks.terrain(worldIndex, world.getMinHeight(), world.getMaxHeight());
+        try {
+            searches.execute(() -> solve(request, terrain, chunkKeys, versions, tick));
+        } catch (RejectedExecutionException e) {
+            return false; // shutting down
+        }
+        return true;
+    }
+
+    private void solve(Request request, Terrain terrain, long[] chunkKeys, int[] versions, long tick) {
+        try {
+            int[] nodes = new AStar(terrain, maxNodes).find(request.startX(), request.startY(), request.startZ(),
+                    request.goalX(), request.goalY(), request.goalZ());
+            completed.add(new Result(request, chunkKeys, versions, nodes, tick));
+        } catch (RuntimeException e) {
+            pending.remove(request.key());
+            logger.log(Level.WARNING, "Path search failed", e);
+        }
+    }
+
+    /**
+     * Caches a finished search unless a block changed under it. Runs on the
+     * main thread, like {@link #invalidate}, so no invalidation can slip in
+     * between the version check and the insert.
+     */
+    private void enter(Result result) {
+        Key key = result.request().key();
+        pending.remove(key);
+
+        // A block changed under the search: its result may be wrong, let the mob ask again
+        long[] chunkKeys = result.chunkKeys();
+        for (int c = 0; c < chunkKeys.length; c++) {
+            if (chunkVersions.getOrDefault(chunkRef(key.world(), chunkKeys[c]), 0) != result.versions()[c]) {
+                discarded.incrementAndGet();
+                return;
+            }
+        }
+
+        int[] nodes = result.nodes();
+        if (nodes == null) {
+            unreachable.incrementAndGet();
+            insert(key, new Path(new int[0], 0, result.tick()), chunkKeys);
+            return;
+        }
+        solved.incrementAndGet();
+
+        // Enter the path under every cell along it, each view starting there
+        long previousCell = Long.MIN_VALUE;
+        for (int node = 0; node < nodes.length / 3; node++) {
+            long cell = cell(nodes[node * 3], nodes[node * 3 + 1], nodes[node * 3 + 2]);
+            if (cell != previousCell) {
+                insert(node == 0 ? key : new Key(key.world(), cell, key.goal()),
+                        new Path(nodes, node, result.tick()), chunkKeys);
+                previousCell = cell;
+            }
+        }
+    }
+
+    private void insert(Key key, Path path, long[] chunkKeys) {
+        cache.put(key, path);
+        changed(key);
+        for (long chunkKey : chunkKeys) {
+            keysByChunk.computeIfAbsent(chunkRef(key.world(), chunkKey), c -> new HashSet<>()).add(key);
+        }
+    }
+
+    private void remove(Key key) {
+        if (cache.remove(key) != null) {
+            changed(key);
+        }
+    }
+
+    /** Both views have yet to pick up the key's current entry, or its absence. */
+    private void changed(Key key) {
+        changed[0].add(key);
+        changed[1].add(key);
+    }
+
+    /**
+     * A block changed at {@code (x, z)}: forget every path searched over its
+     * chunk. Main thread, after the cache has the new block.
+     */
+    public void invalidate(int world, int x, int z) {
+        long chunkKey = Chunk.getChunkKey(x >> 4, z >> 4);
+        long ref = chunkRef(world, chunkKey);
+        chunkVersions.merge(ref, 1, Integer::sum);
+
+        Set<Key> keys = keysByChunk.remove(ref);
+        if (keys != null) {
+            for (Key key : keys) {
+                remove(key);
+            }
+        }
+    }
+
+    /** The chunk at {@code (chunkX, chunkZ)} unloaded; drops its paths. Main thread. */
+    public void unloadChunk(int world, int chunkX, int chunkZ) {
+        invalidate(world, chunkX << 4, chunkZ << 4);
+        chunkVersions.remove(chunkRef(world, Chunk.getChunkKey(chunkX, chunkZ)));
+    }
+
+    /** Forgets everything about every world, e.g. when world indices shift. Main thread. */
+    public void clear() {
+        cache.clear();
+        keysByChunk.clear();
+        chunkVersions.clear();
+        for (int parity = 0; parity < 2; parity++) {
+            changed[parity].clear();
+            viewCleared[parity] = true;
+        }
+    }
+
+    /**
+     * Removes expired entries, then the least recently used ones while over
+     * the size limit. Recency is the last snapshot epoch that found the
+     * entry, falling back to its age for entries never found.
+     */
+    private void expire(long tick) {
+        List<Map.Entry<Key, Path>> live = new ArrayList<>(cache.size());
+        for (Map.Entry<Key, Path> entry : cache.entrySet()) {
+            if (tick - entry.getValue().createdTick > cacheTtlTicks) {
+                remove(entry.getKey());
+            } else {
+                live.add(entry);
+            }
+        }
+        int excess = live.size() - cacheSize;
+        if (excess > 0) {
+            live.sort(Comparator.<Map.Entry<Key, Path>>comparingLong(entry -> entry.getValue().lastUsedEpoch)
+                    .thenComparingLong(entry -> entry.getValue().createdTick));
+            for (int n = 0; n < excess; n++) {
+                remove(live.get(n).getKey());
+            }
+        }
+        // Index entries of evicted keys are harmless; prune them while we're here
+        keysByChunk.values().forEach(keys -> keys.removeIf(key -> !cache.containsKey(key)));
+        keysByChunk.values().removeIf(Set::isEmpty);
+    }
+
+    public void shutdown() {
+        searches.shutdownNow();
+    }
+
+    public @NotNull PathMetrics getMetrics() {
+        return new PathMetrics(cache.size(), hits.get(), misses.get(), solved.get(), unreachable.get(),
+                dropped.get(), discarded.get(), blocks.chunkCount(), blocks.nativeBytes());
+    }
+
+    /** Writes the path cache and search metric families; safe from any thread. */
+    public void writeMetrics(@NotNull OpenMetricsWriter out) {
+        out.gauge("cloudcraft_path_cache_entries", "Cached paths", cache.size());
+        out.gauge("cloudcraft_path_requests_pending", "Path searches requested or running", pending.size());
+        out.counter("cloudcraft_path_cache_hits", "Path lookups answered from the cache", hits.get());
+        out.counter("cloudcraft_path_cache_misses", "Path lookups that requested a search", misses.get());
+        out.counter("cloudcraft_path_searches_solved", "Path searches that found a route", solved.get());
+        out.counter("cloudcraft_path_searches_unreachable", "Path searches that found no route", unreachable.get());
+        out.counter("cloudcraft_path_requests_dropped", "Path requests over the per-tick budget", dropped.get());
+        out.counter("cloudcraft_path_searches_discarded", "Path searches invalidated by a block change",
+                discarded.get());
+        out.gauge("cloudcraft_passability_chunks", "Chunks in the off-heap passability cache", blocks.chunkCount());
+        out.gauge("cloudcraft_passability_bytes", "Native memory held by the passability cache", blocks.nativeBytes());
+    }
+
+    public record PathMetrics(int cached, long hits, long misses, long solved, long unreachable,
+                              long dropped, long discarded, int blockChunks, long blockBytes) {
+    }
+
+    /** Packs a block position's cell: x and z in 26 bits each, y in 12. */
+    private static long cell(int x, int y, int z) {
+        int cellX = Math.floorDiv(x, CELL_SIZE);
+        int cellY = Math.floorDiv(y, CELL_SIZE);
+        int cellZ = Math.floorDiv(z, CELL_SIZE);
+        return ((long) (cellX & 0x3FFFFFF) << 38) | ((long) (cellZ & 0x3FFFFFF) << 12) | (cellY & 0xFFF);
+    }
+
+    /** World index folded into a chunk key; chunk coordinates fit in 26 bits each. */
+    private static long chunkRef(int world, long chunkKey) {
+        long chunkX = (int) chunkKey;
+        long chunkZ = (int) (chunkKey >>> 32);
+        return ((long) world << 52) | ((chunkX & 0x3FFFFFF) << 26) | (chunkZ & 0x3FFFFFF);
+    }
+}
@@ -0,0 +1,24 @@
+package com.cloudcraft.engine.pathfinding;
+
+/**
+ * Read-only block view for pathfinding off the main thread. Coordinates are
+ * absolute block positions in one world; blocks outside the view's data
+ * read as not passable and not solid.
+ */
+public interface Terrain {
+    /** True if the column at {@code (x, z)} has data in this view. */
+    boolean isLoaded(int x, int z);
+
+    /** A full block a mob can stand on. */
+    boolean isSolid(int x, int y, int z);
+
+    /** A block a mob's body can move through (air, plants, water). */
+    boolean isPassable(int x, int y, int z);
+
+    /** A block that hurts or traps (lava, fire, cactus, cobweb...). */
+    boolean isDangerous(int x, int y, int z);
+
+    int minY();
+
+    int maxY();
+}
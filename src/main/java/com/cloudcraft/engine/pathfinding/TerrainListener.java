@@ -0,0 +1,218 @@
+package com.cloudcraft.engine.pathfinding;
+
+import org.bukkit.Chunk;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockGrowEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the {@link PassabilityCache} in step with the world and feeds block
+ * changes to the {@link PathService} and {@link FlowFieldService}, so
+ * neither cached blocks nor cached paths and fields outlive the blocks they
+ * were computed from. {@code BlockFormEvent} and {@code BlockSpreadEvent}
+ * arrive through {@link BlockGrowEvent}, which they extend.
+ *
+ * Block events fire before the change happens, so changed blocks are only
+ * recorded here and re-read by {@link #flush} at the start of the next
+ * capture.
+ */
+public class TerrainListener implements Listener {
+    private final Server server;
+    private final PassabilityCache cache;
+    private final PathService paths;
+    private final @Nullable FlowFieldService flows;
+
+    // Blocks changed since the last flush, main thread only
+    private final Set<Block> dirty = new LinkedHashSet<>();
+    private boolean reloadAll;
+
+    public TerrainListener(@NotNull Server server, @NotNull PassabilityCache cache, @NotNull PathService paths,
+                           @Nullable FlowFieldService flows) {
+        this.server = server;
+        this.cache = cache;
+        this.paths = paths;
+        this.flows = flows;
+    }
+
+    /** Starts filling every chunk that is already loaded, e.g. on enable. Main thread. */
+    public void loadAll() {
+        List<World> worlds = server.getWorlds();
+        for (int index = 0; index < worlds.size(); index++) {
+            World world = worlds.get(index);
+            for (Chunk chunk : world.getLoadedChunks()) {
+                load(index, world, chunk);
+            }
+        }
+    }
+
+    /**
+     * Applies the blocks changed since the last call to the cache, paths
+     * and flow fields, and publishes finished chunk fills. Main thread, once
+     * per tick before the snapshot is captured.
+     */
+    public void flush() {
+        if (reloadAll) {
+            reloadAll = false;
+            dirty.clear();
+            loadAll();
+        }
+
+        List<World> worlds = server.getWorlds();
+        for (Block block : dirty) {
+            int index = worlds.indexOf(block.getWorld());
+            if (index >= 0) {
+                cache.update(index, block.getX(), block.getY(), block.getZ(), block.getType());
+                paths.invalidate(index, block.getX(), block.getZ());
+                if (flows != null) {
+                    flows.invalidate(index, block.getX(), block.getZ());
+                }
+            }
+        }
+        dirty.clear();
+
+        // Fills that raced a block change: capture those chunks again
+        for (long ref : cache.publishFilled()) {
+            int index = PassabilityCache.refWorld(ref);
+            int chunkX = PassabilityCache.refChunkX(ref);
+            int chunkZ = PassabilityCache.refChunkZ(ref);
+            if (index < worlds.size() && worlds.get(index).isChunkLoaded(chunkX, chunkZ)) {
+                World world = worlds.get(index);
+                load(index, world, world.getChunkAt(chunkX, chunkZ));
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        changed(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        changed(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent event) {
+        changed(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFade(BlockFadeEvent event) {
+        changed(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockGrow(BlockGrowEvent event) {
+        changed(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFromTo(BlockFromToEvent event) {
+        changed(event.getToBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        changed(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        changed(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(EntityChangeBlockEvent event) {
+        changed(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        changed(event.getBlock());
+        moved(event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        changed(event.getBlock());
+        moved(event.getBlocks(), event.getDirection());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        Chunk chunk = event.getChunk();
+        int index = server.getWorlds().indexOf(chunk.getWorld());
+        if (index >= 0) {
+            load(index, chunk.getWorld(), chunk);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        Chunk chunk = event.getChunk();
+        int index = server.getWorlds().indexOf(chunk.getWorld());
+        if (index >= 0) {
+            cache.unload(index, chunk.getX(), chunk.getZ());
+            paths.unloadChunk(index, chunk.getX(), chunk.getZ());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        // Indices of the worlds after it shift; nothing cached can be trusted.
+        // The world is still listed until the event returns, so refill next flush
+        cache.clear();
+        paths.clear();
+        if (flows != null) {
+            flows.clear();
+        }
+        reloadAll = true;
+    }
+
+    private void load(int index, World world, Chunk chunk) {
+        cache.load(index, chunk.getChunkSnapshot(false, false, false), world.getMinHeight(), world.getMaxHeight());
+    }
+
+    private void changed(List<Block> blocks) {
+        for (Block block : blocks) {
+            changed(block);
+        }
+    }
+
+    /** Pistons change both where blocks were and where they end up. */
+    private void moved(List<Block> blocks, BlockFace direction) {
+        for (Block block : blocks) {
+            changed(block);
+            changed(block.getRelative(direction));
+        }
+    }
+
+    private void changed(Block block) {
+        dirty.add(block);
+    }
+}
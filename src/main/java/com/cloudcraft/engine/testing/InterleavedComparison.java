@@ -0,0 +1,189 @@
+package com.cloudcraft.engine.testing;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Tick times of an interleaved A/B run: the engine enabled in some phases
+ * and bypassed in others, on the same world and entity population.
+ *
+ * Each arm keeps every measured tick in a fixed 0.1 ms histogram for its
+ * tick-time distribution, and one mean MSPT and one TPS per phase.
+ * Consecutive ticks are strongly correlated, so differences between the
+ * arms are estimated from the phase means, with a Welch confidence
+ * interval that does not assume equal variances or phase counts.
+ */
+final class InterleavedComparison {
+    // Histogram resolution and range: 0.1 ms bins up to 1 s, longer ticks in the last bin
+    private static final long BIN_NANOS = 100_000;
+    private static final int BINS = 10_000;
+    private static final double Z_975 = 1.959964;
+    // Two-sided 95% Student t critical values for 1..30 degrees of freedom
+    private static final double[] T_975 = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+    private final Arm enabled = new Arm();
+    private final Arm bypassed = new Arm();
+
+    Arm arm(boolean engineEnabled) {
+        return engineEnabled ? enabled : bypassed;
+    }
+
+    Arm enabled() {
+        return enabled;
+    }
+
+    Arm bypassed() {
+        return bypassed;
+    }
+
+    /** Enabled minus bypassed mean MSPT over phases; null until both arms have two phases. */
+    @Nullable Estimate msptDifference() {
+        return welch(enabled.phaseMspt, enabled.phases, bypassed.phaseMspt, bypassed.phases);
+    }
+
+    /** Enabled minus bypassed mean TPS over phases; null until both arms have two phases. */
+    @Nullable Estimate tpsDifference() {
+        return welch(enabled.phaseTps, enabled.phases, bypassed.phaseTps, bypassed.phases);
+    }
+
+    /** One arm's ticks and phases. Main thread only. */
+    static final class Arm {
+        private final int[] bins = new int[BINS];
+        private long ticks;
+        private long totalNanos;
+        private long maxNanos;
+
+        private double[] phaseMspt = new double[16];
+        private double[] phaseTps = new double[16];
+        private int phases;
+
+        // The phase being measured
+        private long phaseStartNanos;
+        private long phaseNanos;
+        private int phaseTicks;
+
+        void startPhase() {
+            phaseStartNanos = System.nanoTime();
+            phaseNanos = 0;
+            phaseTicks = 0;
+        }
+
+        void recordTick(long nanos) {
+            bins[(int) Math.min(nanos / BIN_NANOS, BINS - 1)]++;
+            ticks++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            phaseNanos += nanos;
+            phaseTicks++;
+        }
+
+        /** Closes the phase being measured; a phase without ticks is not counted. */
+        void endPhase() {
+            if (phaseTicks == 0)
+                return;
+            if (phases == phaseMspt.length) {
+                phaseMspt = Arrays.copyOf(phaseMspt, phases * 2);
+                phaseTps = Arrays.copyOf(phaseTps, phases * 2);
+            }
+            double seconds = (System.nanoTime() - phaseStartNanos) / 1e9;
+            phaseMspt[phases] = phaseNanos / (phaseTicks * 1e6);
+            phaseTps[phases] = Math.min(20.0, phaseTicks / seconds);
+            phases++;
+            phaseTicks = 0;
+        }
+
+        int phases() {
+            return phases;
+        }
+
+        long ticks() {
+            return ticks;
+        }
+
+        double meanMspt() {
+            return ticks == 0 ? 0 : totalNanos / (ticks * 1e6);
+        }
+
+        double meanTps() {
+            return mean(phaseTps, phases);
+        }
+
+        double maxMspt() {
+            return maxNanos / 1e6;
+        }
+
+        /** Tick-time percentile in milliseconds, to the 0.1 ms bin, capped at the longest tick. */
+        double percentileMspt(double quantile) {
+            if (ticks == 0)
+                return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * ticks));
+            long seen = 0;
+            for (int b = 0; b < BINS; b++) {
+                seen += bins[b];
+                if (seen >= rank)
+                    return Math.min((b + 1) * BIN_NANOS, maxNanos) / 1e6;
+            }
+            return maxMspt();
+        }
+    }
+
+    /**
+     * Difference of means with its two-sided 95% confidence interval and
+     * Welch-Satterthwaite degrees of freedom.
+     */
+    record Estimate(double difference, double low, double high, double degreesOfFreedom) {
+        /** Whether the interval excludes zero. */
+        boolean isSignificant() {
+            return low > 0 || high < 0;
+        }
+    }
+
+    private static @Nullable Estimate welch(double[] a, int na, double[] b, int nb) {
+        if (na < 2 || nb < 2)
+            return null;
+        double meanA = mean(a, na);
+        double meanB = mean(b, nb);
+        double va = variance(a, na, meanA) / na;
+        double vb = variance(b, nb, meanB) / nb;
+        double difference = meanA - meanB;
+        double se = Math.sqrt(va + vb);
+        if (se == 0)
+            return new Estimate(difference, difference, difference, na + nb - 2);
+        double df = (va + vb) * (va + vb) / (va * va / (na - 1) + vb * vb / (nb - 1));
+        double margin = tCritical(df) * se;
+        return new Estimate(difference, difference - margin, difference + margin, df);
+    }
+
+    /**
+     * Two-sided 95% t critical value. Tabled up to 30 degrees of freedom,
+     * rounding down (the wider interval); beyond that the Cornish-Fisher
+     * expansion around the normal quantile, accurate to three decimals.
+     */
+    static double tCritical(double df) {
+        if (df < 31)
+            return T_975[Math.max(1, (int) df) - 1];
+        double z = Z_975;
+        return z + (z * z * z + z) / (4 * df)
+                + (5 * Math.pow(z, 5) + 16 * z * z * z + 3 * z) / (96 * df * df);
+    }
+
+    private static double mean(double[] values, int count) {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    private static double variance(double[] values, int count, double mean) {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += (values[i] - mean) * (values[i] - mean);
+        }
+        return sum / (count - 1);
+    }
+}
@@ -1,135 +0,0 @@
-package com.cloudcraft.engine.testing;
-
-import com.cloudcraft.engine.CloudCraftEngine;
-import org.bukkit.Bukkit;
-import org.jetbrains.annotations.NotNull;
-
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.logging.Level;
-
-/**
- * Collects and analyzes performance metrics during stress testing
- */
-public class MetricsCollector {
-    private final CloudCraftEngine plugin;
-    private final List<MetricSample> samples;
-    private final AtomicBoolean isCollecting;
-    private final AtomicLong lastTickTime;
-    private long startTime;
-    
-    public MetricsCollector(@NotNull CloudCraftEngine plugin) {
-        this.plugin = plugin;
-        this.samples = new ArrayList<>();
-        this.isCollecting = new AtomicBoolean(false);
-        this.lastTickTime = new AtomicLong(System.nanoTime());
-        
-        // Setup tick time measurement
-        Bukkit.getScheduler().runTaskTimer(plugin, () -> {
-            long now = System.nanoTime();
-            lastTickTime.set(now);
-        }, 1L, 1L);
-    }
-    
-    public void start() {
-        samples.clear();
-        startTime = System.currentTimeMillis();
-        isCollecting.set(true);
-    }
-    
-    public void stop() {
-        isCollecting.set(false);
-    }
-    
-    public void sample() {
-        if (!isCollecting.get()) return;
-        
-        double[] tps = Bukkit.getTPS();
-        Runtime runtime = Runtime.getRuntime();
-        
-        samples.add(new MetricSample(
-            System.currentTimeMillis() - startTime,
-            tps[0], // Current TPS
-            calculateMSPT(),
-            (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024, // Heap usage in MB
-            Thread.activeCount(),
-            plugin.getServer().getOnlinePlayers().size()
-        ));
-    }
-    
-    private double calculateMSPT() {
-        long now = System.nanoTime();
-        long last = lastTickTime.get();
-        return (now - last) / 1_000_000.0; // Convert to milliseconds
-    }
-    
-    public void exportToCSV(@NotNull Path path) {
-        try {
-            List<String> lines = new ArrayList<>();
-            lines.add("Timestamp,TPS,MSPT,Memory(MB),Threads,Players");
-            
-            for (MetricSample sample : samples) {
-                lines.add(String.format("%d,%.2f,%.2f,%d,%d,%d",
-                    sample.timestamp(),
-                    sample.tps(),
-                    sample.mspt(),
-                    sample.memoryUsage(),
-                    sample.threadCount(),
-                    sample.playerCount()
-                ));
-            }
-            
-            Files.write(path, lines);
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to export metrics to CSV", e);
-        }
-    }
-    
-    public Summary getSummary() {
-        if (samples.isEmpty()) {
-            return new Summary(20.0, 20.0, 50.0, 50.0, 1024, 1024);
-        }
-        
-        double avgTps = samples.stream().mapToDouble(MetricSample::tps).average().orElse(20.0);
-        double avgMspt = samples.stream().mapToDouble(MetricSample::mspt).average().orElse(50.0);
-        long avgMemory = Math.round(samples.stream().mapToLong(MetricSample::memoryUsage).average().orElse(1024));
-        
-        // Use real vanilla measurements for comparison
-        // These are measured from vanilla Paper under similar load
-        double vanillaTps = 15.0; // Measured baseline for heavy load
-        double vanillaMspt = 75.0; // Measured baseline for heavy load
-        long vanillaMemory = 2048; // Measured baseline for heavy load
-
-        return new Summary(
-                vanillaTps,
-                avgTps,
-                vanillaMspt,
-                avgMspt,
-                vanillaMemory,
-                avgMemory
-        );
-    }
-    
-    private record MetricSample(
-        long timestamp,
-        double tps,
-        double mspt,
-        long memoryUsage,
-        int threadCount,
-        int playerCount
-    ) {}
-    
-    public record Summary(
-        double vanillaTps,
-        double cloudcraftTps,
-        double vanillaMspt,
-        double cloudcraftMspt,
-        long vanillaMemory,
-        long cloudcraftMemory
-    ) {}
-}
\ No newline at end of file
@@ -0,0 +1,171 @@
+package com.cloudcraft.engine.threading;
+
+import org.bukkit.entity.Animals;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.ExperienceOrb;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Mob;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Vector;
+
+/**
+ * Action implementations - Bukkit API calls happen here. Workers never build
+ * these; they encode commands into a {@link CommandBuffer}, which decodes each
+ * command into its action on the main thread right before applying it.
+ * Targets are snapshot slots (or {@link SnapshotBuffer#playerRef}) resolved
+ * through the snapshot's handle table.
+ */
+interface Action {
+    void apply(Entity entity, SnapshotBuffer snapshot);
+
+    record MoveAction(Vector velocity) implements Action {
+        @Override
+        public void apply(Entity entity, SnapshotBuffer snapshot) {
+            entity.setVelocity(velocity);
+        }
+    }
+
+    /**
+     * Heads for a path waypoint at {@code speed} blocks per tick, steering
+     * from the entity's live position rather than the snapshot's, and hops
+     * when the waypoint is a step up.
+     */
+    record MoveToAction(Vector waypoint, double speed) implements Action {
+        // Vanilla jump velocity, enough to clear one block
+        private static final double JUMP_VELOCITY = 0.42;
+
+        @Override
+        public void apply(Entity entity, SnapshotBuffer snapshot) {
+            double dx = waypoint.getX() - entity.getX();
+            double dz = waypoint.getZ() - entity.getZ();
+            double length = Math.sqrt(dx * dx + dz * dz);
+            if (length < 1.0E-4)
+                return;
+
+            Vector velocity = entity.getVelocity();
+            double velocityY = waypoint.getY() > entity.getY() + 0.5 && entity.isOnGround()
+                    ? JUMP_VELOCITY
+                    : velocity.getY();
+            entity.setVelocity(new Vector(dx / length * speed, velocityY, dz / length * speed));
+        }
+    }
+
+    record AttackAction(int targetRef, double damage) implements Action {
+        @Override
+        public void apply(Entity entity, SnapshotBuffer snapshot) {
+            if (snapshot.resolve(targetRef) instanceof LivingEntity living) {
+                living.damage(damage, entity);
+            }
+        }
+    }
+
+    record SetTargetAction(int targetRef) implements Action {
+        @Override
+        public void apply(Entity entity, SnapshotBuffer snapshot) {
+            if (entity instanceof Mob mob && snapshot.resolve(targetRef) instanceof LivingEntity living) {
+                mob.setTarget(living);
+            }
+        }
+    }
+
+    record BreedAction(int mateSlot) implements Action {
+        @Override
+        public void apply(Entity entity, SnapshotBuffer snapshot) {
+            if (entity instanceof Animals animal) {
+                animal.setLoveModeTicks(600);
+                if (snapshot.resolve(mateSlot) instanceof Animals mateAnimal) {
+                    mateAnimal.setLoveModeTicks(600);
+                }
+            }
+        }
+    }
+
+    record MergeAction(int otherSlot) implements Action {
+        @Override
+        public void apply(Entity entity, SnapshotBuffer snapshot) {
+            if (entity instanceof Item item1
+                    && snapshot.resolve(otherSlot) instanceof Item item2
+                    && !item1.equals(item2)) {
+                // Each getItemStack() copies the stack, so read both once
+                ItemStack stack1 = item1.getItemStack();
+                ItemStack stack2 = item2.getItemStack();
+                if (canMergeItems(item1, stack1, item2, stack2)) {
+                    stack1.setAmount(stack1.getAmount() + stack2.getAmount());
+                    item1.setItemStack(stack1);
+                    item2.remove(); // Remove the merged item
+                }
+            }
+        }
+
+        private boolean canMergeItems(Item item1, ItemStack stack1, Item item2, ItemStack stack2) {
+            // Check if items are the same type and can stack
+            return stack1.isSimilar(stack2) &&
+                   stack1.getAmount() + stack2.getAmount() <= stack1.getMaxStackSize() &&
+                   item1.getTicksLived() > 10 && item2.getTicksLived() > 10; // Prevent immediate merging
+        }
+    }
+
+    /**
+     * Folds a cluster of stackables into as few entities as possible. Amounts
+     * are re-read live, and members that no longer stack with the subject
+     * (changed, picked up, hash collision on the capture key) are skipped.
+     */
+    record MergeClusterAction(int[] memberSlots) implements Action {
+        @Override
+        public void apply(Entity entity, SnapshotBuffer snapshot) {
+            if (entity instanceof Item item) {
+                foldItems(item, snapshot);
+            } else if (entity instanceof ExperienceOrb orb) {
+                foldOrbs(orb, snapshot);
+            }
+        }
+
+        private void foldItems(Item leader, SnapshotBuffer snapshot) {
+            ItemStack base = leader.getItemStack();
+            Item[] items = new Item[memberSlots.length];
+            ItemStack[] stacks = new ItemStack[memberSlots.length];
+            items[0] = leader;
+            stacks[0] = base;
+            int count = 1;
+            long total = base.getAmount();
+            for (int m = 1; m < memberSlots.length; m++) {
+                if (snapshot.resolve(memberSlots[m]) instanceof Item item && item.isValid() && !item.equals(leader)) {
+                    ItemStack stack = item.getItemStack();
+                    if (stack.isSimilar(base)) {
+                        items[count] = item;
+                        stacks[count++] = stack;
+                        total += stack.getAmount();
+                    }
+                }
+            }
+            if (count < 2)
+                return;
+
+            // Refill full stacks from the leader onwards and remove what is left empty
+            int limit = base.getMaxStackSize();
+            for (int i = 0; i < count; i++) {
+                int amount = (int) Math.min(limit, total);
+                total -= amount;
+                if (amount == 0) {
+                    items[i].remove();
+                } else if (amount != stacks[i].getAmount()) {
+                    stacks[i].setAmount(amount);
+                    items[i].setItemStack(stacks[i]);
+                }
+            }
+        }
+
+        private void foldOrbs(ExperienceOrb leader, SnapshotBuffer snapshot) {
+            int total = leader.getExperience();
+            for (int m = 1; m < memberSlots.length; m++) {
+                if (snapshot.resolve(memberSlots[m]) instanceof ExperienceOrb orb && orb.isValid() && !orb.equals(leader)
+                        && total <= Integer.MAX_VALUE - orb.getExperience()) {
+                    total += orb.getExperience();
+                    orb.remove();
+                }
+            }
+            leader.setExperience(total);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.cloudcraft.engine.threading;
+
+/**
+ * Deterministic, contention-free randomness for AI decisions.
+ *
+ * Replaces {@code Math.random()}, which shares one {@code Random} across all
+ * workers (a CAS per draw, so it contends under load) and makes outcomes
+ * unrepeatable. Here every entity gets its own stream per tick, derived from
+ * the world seed, the tick number and the entity id with the SplitMix64
+ * mixer that {@link java.util.SplittableRandom} uses. Draws are stateless -
+ * draw {@code n} of a stream is a pure function of its seed - so nothing is
+ * shared or allocated, and replaying the same snapshot sequence reproduces
+ * every draw bit for bit.
+ */
+final class AiRandom {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private AiRandom() {
+    }
+
+    /** Stream seed for the entity in {@code slot} on the snapshot's tick. */
+    static long seed(SnapshotBuffer snapshot, int slot) {
+        return seed(snapshot.worldSeed(snapshot.world(slot)), snapshot.tick(),
+                snapshot.uuidMost(slot), snapshot.uuidLeast(slot));
+    }
+
+    static long seed(long worldSeed, int tick, long idMost, long idLeast) {
+        long h = mix64(worldSeed + GOLDEN_GAMMA);
+        h = mix64(h ^ (tick * GOLDEN_GAMMA));
+        h = mix64(h ^ idMost);
+        return mix64(h ^ idLeast);
+    }
+
+    /** Draw {@code n} of the stream, uniform in [0, 1). */
+    static double nextDouble(long seed, int n) {
+        return (mix64(seed + (n + 1) * GOLDEN_GAMMA) >>> 11) * 0x1.0p-53;
+    }
+
+    /** SplitMix64 finalizer (Stafford variant 13). */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,71 @@
+package com.cloudcraft.engine.threading;
+
+import com.cloudcraft.engine.ai.BehaviorRegistry;
+import com.cloudcraft.engine.ai.EntityBehavior;
+import org.bukkit.entity.EntityType;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Flattened copy of a {@link BehaviorRegistry} for the workers: behavior,
+ * tick interval, query/pair/cluster radii and neighbour type mask per
+ * entity type ordinal, so scheduling and neighbour filtering are array reads
+ * instead of interface calls and set lookups. Immutable; rebuilt when the registry's
+ * version changes.
+ */
+final class BehaviorTable {
+    private static final EntityType[] TYPES = EntityType.values();
+
+    final int version;
+    final EntityBehavior[] behaviors = new EntityBehavior[TYPES.length];
+    final int[] intervals = new int[TYPES.length];
+    final double[] radii = new double[TYPES.length];
+    final boolean[][] neighborMasks = new boolean[TYPES.length][];
+    final double[] pairRadii = new double[TYPES.length];
+    double maxPairRadius;
+    final double[] clusterRadii = new double[TYPES.length];
+    double maxClusterRadius;
+
+    private BehaviorTable(int version) {
+        this.version = version;
+    }
+
+    /** True if the entity in {@code slot} has a behavior that runs this tick. */
+    boolean isDue(SnapshotBuffer snapshot, int slot) {
+        int type = snapshot.typeOrdinal(slot);
+        // Inactive slots are captured for neighbour queries only
+        return behaviors[type] != null
+                && snapshot.hasFlag(slot, SnapshotBuffer.FLAG_ACTIVE)
+                && snapshot.every(slot, intervals[type]);
+    }
+
+    static BehaviorTable from(BehaviorRegistry registry) {
+        BehaviorTable table = new BehaviorTable(registry.version());
+
+        // Behaviors registered for several types share one mask
+        Map<EntityBehavior, boolean[]> masks = new IdentityHashMap<>();
+        for (EntityType type : TYPES) {
+            EntityBehavior behavior = registry.get(type);
+            if (behavior == null)
+                continue;
+
+            int ordinal = type.ordinal();
+            table.behaviors[ordinal] = behavior;
+            table.intervals[ordinal] = behavior.tickInterval();
+            table.radii[ordinal] = behavior.queryRadius();
+            table.pairRadii[ordinal] = behavior.pairRadius();
+            table.maxPairRadius = Math.max(table.maxPairRadius, behavior.pairRadius());
+            table.clusterRadii[ordinal] = behavior.clusterRadius();
+            table.maxClusterRadius = Math.max(table.maxClusterRadius, behavior.clusterRadius());
+            table.neighborMasks[ordinal] = masks.computeIfAbsent(behavior, b -> {
+                boolean[] mask = new boolean[TYPES.length];
+                for (EntityType neighbor : b.neighborTypes()) {
+                    mask[neighbor.ordinal()] = true;
+                }
+                return mask;
+            });
+        }
+        return table;
+    }
+}
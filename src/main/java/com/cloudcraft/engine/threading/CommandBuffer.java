@@ -0,0 +1,365 @@
+package com.cloudcraft.engine.threading;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.util.Vector;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Reusable primitive encoding of one tick's AI decisions.
+ *
+ * A decision is a subject slot plus one or more commands; a command is an
+ * opcode with an int operand and up to three double operands, stored in
+ * parallel arrays at a fixed stride; variable-length operands (cluster
+ * members) go into a separate int list the int operand points into.
+ * Nothing per entity is allocated on the worker side - no builder, no
+ * lists, no {@link Action} records, no {@link Vector}s - and the arrays
+ * only grow, so a steady-state tick encodes into storage left over from
+ * earlier ticks.
+ *
+ * Workers never share a segment: each processing task {@link #acquire}s one,
+ * writes into it unsynchronized and {@link #publish}es it when done. After
+ * {@link #seal}, the main thread walks the decisions in priority order and
+ * decodes each command into its {@link Action} only as it applies it, so
+ * decisions deferred or dropped by the apply budget are never materialized.
+ */
+final class CommandBuffer {
+    // Opcodes and their operands
+    static final byte OP_MOVE = 1;           // doubles: velocity x, y, z
+    static final byte OP_ATTACK = 2;         // int: target ref; double: damage
+    static final byte OP_SET_TARGET = 3;     // int: target ref
+    static final byte OP_BREED = 4;          // int: mate slot
+    static final byte OP_MERGE = 5;          // int: other slot
+    static final byte OP_MERGE_CLUSTER = 6;  // int: list offset; list: count, member slots
+    static final byte OP_MOVE_TO = 7;        // int: speed (float bits); doubles: waypoint x, y, z
+
+    /** Action name of each opcode, for metrics; index 0 is unused. */
+    static final String[] OP_NAMES = {"", "move", "attack", "set_target", "breed", "merge", "merge_cluster", "move_to"};
+
+    // Apply order, lowest first
+    static final int PRIORITY_COMBAT = 0;
+    static final int PRIORITY_INTERACT = 1;
+    static final int PRIORITY_MOVE = 2;
+
+    private static final Comparator<Segment> BY_ORIGIN = Comparator.comparingInt(segment -> segment.origin);
+
+    private final ArrayDeque<Segment> free = new ArrayDeque<>();
+    private final ArrayList<Segment> published = new ArrayList<>();
+
+    // Sealed view: sort keys in apply order, and each decision's location by global index
+    private long[] keys = new long[0];
+    private int[] decisionSegment = new int[0];
+    private int[] decisionIndex = new int[0];
+    private int size;
+
+    /**
+     * Hands out an empty segment for one task. {@code origin} is the task's
+     * position in a fixed order (its region index); sealing orders segments
+     * by it so the decision order does not depend on which task finished
+     * first.
+     */
+    synchronized Segment acquire(int origin) {
+        Segment segment = free.poll();
+        if (segment == null)
+            segment = new Segment();
+        segment.clear(origin);
+        return segment;
+    }
+
+    synchronized void publish(Segment segment) {
+        published.add(segment);
+    }
+
+    /** Recycles every segment; the previous contents become invalid. */
+    synchronized void reset() {
+        free.addAll(published);
+        published.clear();
+        size = 0;
+    }
+
+    /**
+     * Orders the published decisions for the budgeted apply phase: combat
+     * first, then breeding/merging, then plain movement; within a class,
+     * entities closest to a player first since that is where players notice.
+     * Call once after every task has published.
+     */
+    synchronized void seal(SnapshotBuffer snapshot) {
+        published.sort(BY_ORIGIN);
+
+        int total = 0;
+        for (Segment segment : published) {
+            total += segment.decisionCount;
+        }
+        if (keys.length < total) {
+            int capacity = Math.max(total, keys.length * 2);
+            keys = new long[capacity];
+            decisionSegment = new int[capacity];
+            decisionIndex = new int[capacity];
+        }
+
+        // Sort key: priority | distance to nearest player (whole blocks squared) | global index
+        PlayerIndex players = snapshot.players();
+        int global = 0;
+        for (int s = 0; s < published.size(); s++) {
+            Segment segment = published.get(s);
+            for (int d = 0; d < segment.decisionCount; d++, global++) {
+                int slot = segment.subjects[d];
+                double distanceSq = players.nearestDistanceSq(snapshot.world(slot),
+                        snapshot.x(slot), snapshot.y(slot), snapshot.z(slot));
+                long distanceKey = (long) Math.min(distanceSq, 0x0FFF_FFFF);
+                keys[global] = ((long) segment.priorities[d] << 60) | (distanceKey << 32) | global;
+                decisionSegment[global] = s;
+                decisionIndex[global] = d;
+            }
+        }
+        Arrays.sort(keys, 0, total);
+        size = total;
+    }
+
+    /** Number of decisions in the sealed buffer. */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Number of leading decisions, in apply order, whose priority is more
+     * urgent than {@code priority}.
+     */
+    int countMoreUrgentThan(int priority) {
+        long bound = (long) priority << 60;
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < bound) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 64-bit fingerprint of the sealed decisions in apply order - subjects,
+     * opcodes and the operands each opcode uses. AI is deterministic for a
+     * given seed: a batch's decisions depend only on its snapshot and on the
+     * paths and flow fields published when it was captured, never on when
+     * background searches finish or how regions are scheduled. Two runs over
+     * the same snapshot sequence, with pathfinding off or the same results
+     * published at each capture, must produce equal digests;
+     * {@code DecisionDeterminismTest} checks this across pool sizes.
+     */
+    long digest() {
+        long h = size;
+        for (int n = 0; n < size; n++) {
+            int global = (int) keys[n];
+            Segment segment = published.get(decisionSegment[global]);
+            int decision = decisionIndex[global];
+            h = GridKeys.mix(h * 31 + segment.subjects[decision]);
+            int end = segment.firstCommand[decision + 1];
+            for (int c = segment.firstCommand[decision]; c < end; c++) {
+                h = GridKeys.mix(h * 31 + segment.ops[c]);
+                h = GridKeys.mix(h * 31 + segment.ints[c]);
+                for (int d = 0; d < operandDoubles(segment.ops[c]); d++) {
+                    h = GridKeys.mix(h * 31 + Double.doubleToLongBits(segment.doubles[c * 3 + d]));
+                }
+                if (segment.ops[c] == OP_MERGE_CLUSTER) {
+                    int list = segment.ints[c];
+                    for (int m = 0; m < segment.lists[list]; m++) {
+                        h = GridKeys.mix(h * 31 + segment.lists[list + 1 + m]);
+                    }
+                }
+            }
+        }
+        return h;
+    }
+
+    private static int operandDoubles(byte op) {
+        return switch (op) {
+            case OP_MOVE, OP_MOVE_TO -> 3;
+            case OP_ATTACK -> 1;
+            default -> 0;
+        };
+    }
+
+    /** Adds the number of published commands of each opcode to {@code counts}, indexed by opcode. */
+    void countCommands(AtomicLongArray counts) {
+        long[] local = new long[OP_NAMES.length];
+        for (Segment segment : published) {
+            int end = segment.firstCommand[segment.decisionCount];
+            for (int c = 0; c < end; c++) {
+                local[segment.ops[c]]++;
+            }
+        }
+        for (int op = 1; op < local.length; op++) {
+            if (local[op] > 0) {
+                counts.addAndGet(op, local[op]);
+            }
+        }
+    }
+
+    /** Subject slot of the {@code n}th decision in apply order. */
+    int slot(int n) {
+        int global = (int) keys[n];
+        return published.get(decisionSegment[global]).subjects[decisionIndex[global]];
+    }
+
+    /**
+     * Decodes and applies the {@code n}th decision in apply order. Returns
+     * false if its subject is gone. Main thread only.
+     */
+    boolean apply(int n, SnapshotBuffer snapshot) {
+        int global = (int) keys[n];
+        Segment segment = published.get(decisionSegment[global]);
+        int decision = decisionIndex[global];
+
+        Entity entity = snapshot.resolve(segment.subjects[decision]);
+        if (entity == null)
+            return false;
+
+        int end = segment.firstCommand[decision + 1];
+        for (int c = segment.firstCommand[decision]; c < end; c++) {
+            segment.decode(c).apply(entity, snapshot);
+        }
+        return true;
+    }
+
+    /**
+     * One task's decisions. Write a decision as {@link #begin}, any number of
+     * commands, then {@link #end}; a decision without commands is discarded.
+     */
+    static final class Segment {
+        private int origin;
+
+        // Commands: opcode, int operand, three double operands at stride 3
+        private byte[] ops = new byte[64];
+        private int[] ints = new int[64];
+        private double[] doubles = new double[64 * 3];
+        private int commandCount;
+
+        // Variable-length operands: a count followed by that many ints
+        private int[] lists = new int[64];
+        private int listSize;
+
+        // Decisions: subject, priority, and [firstCommand[d], firstCommand[d + 1])
+        private int[] subjects = new int[64];
+        private int[] priorities = new int[64];
+        private int[] firstCommand = new int[65];
+        private int decisionCount;
+
+        private int subject;
+        private int priority;
+
+        private void clear(int origin) {
+            this.origin = origin;
+            this.commandCount = 0;
+            this.listSize = 0;
+            this.decisionCount = 0;
+        }
+
+        void begin(int slot) {
+            subject = slot;
+            priority = PRIORITY_MOVE;
+            firstCommand[decisionCount] = commandCount;
+        }
+
+        void move(double velocityX, double velocityY, double velocityZ) {
+            int c = command(OP_MOVE, 0, PRIORITY_MOVE);
+            doubles[c * 3] = velocityX;
+            doubles[c * 3 + 1] = velocityY;
+            doubles[c * 3 + 2] = velocityZ;
+        }
+
+        void moveTo(double waypointX, double waypointY, double waypointZ, double speed) {
+            int c = command(OP_MOVE_TO, Float.floatToRawIntBits((float) speed), PRIORITY_MOVE);
+            doubles[c * 3] = waypointX;
+            doubles[c * 3 + 1] = waypointY;
+            doubles[c * 3 + 2] = waypointZ;
+        }
+
+        void attack(int targetRef, double damage) {
+            int c = command(OP_ATTACK, targetRef, PRIORITY_COMBAT);
+            doubles[c * 3] = damage;
+        }
+
+        void setTarget(int targetRef) {
+            command(OP_SET_TARGET, targetRef, PRIORITY_COMBAT);
+        }
+
+        void startBreeding(int mateSlot) {
+            command(OP_BREED, mateSlot, PRIORITY_INTERACT);
+        }
+
+        void mergeWith(int otherSlot) {
+            command(OP_MERGE, otherSlot, PRIORITY_INTERACT);
+        }
+
+        /** Folds the stackables {@code members[offset, offset + count)} together; the first is the subject. */
+        void mergeCluster(int[] members, int offset, int count) {
+            if (listSize + count + 1 > lists.length) {
+                lists = Arrays.copyOf(lists, Math.max(listSize + count + 1, lists.length * 2));
+            }
+            command(OP_MERGE_CLUSTER, listSize, PRIORITY_INTERACT);
+            lists[listSize] = count;
+            System.arraycopy(members, offset, lists, listSize + 1, count);
+            listSize += count + 1;
+        }
+
+        /** Decisions written since the segment was acquired. */
+        int decisionCount() {
+            return decisionCount;
+        }
+
+        /** Closes the current decision; returns false if it had no commands. */
+        boolean end() {
+            if (commandCount == firstCommand[decisionCount])
+                return false;
+
+            if (decisionCount + 1 == subjects.length) {
+                int capacity = subjects.length * 2;
+                subjects = Arrays.copyOf(subjects, capacity);
+                priorities = Arrays.copyOf(priorities, capacity);
+                firstCommand = Arrays.copyOf(firstCommand, capacity + 1);
+            }
+            subjects[decisionCount] = subject;
+            priorities[decisionCount] = priority;
+            firstCommand[++decisionCount] = commandCount;
+            return true;
+        }
+
+        private int command(byte op, int intOperand, int commandPriority) {
+            if (commandCount == ops.length) {
+                int capacity = ops.length * 2;
+                ops = Arrays.copyOf(ops, capacity);
+                ints = Arrays.copyOf(ints, capacity);
+                doubles = Arrays.copyOf(doubles, capacity * 3);
+            }
+            ops[commandCount] = op;
+            ints[commandCount] = intOperand;
+            priority = Math.min(priority, commandPriority);
+            return commandCount++;
+        }
+
+        private Action decode(int c) {
+            return switch (ops[c]) {
+                case OP_MOVE -> new Action.MoveAction(
+                        new Vector(doubles[c * 3], doubles[c * 3 + 1], doubles[c * 3 + 2]));
+                case OP_MOVE_TO -> new Action.MoveToAction(
+                        new Vector(doubles[c * 3], doubles[c * 3 + 1], doubles[c * 3 + 2]),
+                        Float.intBitsToFloat(ints[c]));
+                case OP_ATTACK -> new Action.AttackAction(ints[c], doubles[c * 3]);
+                case OP_SET_TARGET -> new Action.SetTargetAction(ints[c]);
+                case OP_BREED -> new Action.BreedAction(ints[c]);
+                case OP_MERGE -> new Action.MergeAction(ints[c]);
+                case OP_MERGE_CLUSTER -> new Action.MergeClusterAction(
+                        Arrays.copyOfRange(lists, ints[c] + 1, ints[c] + 1 + lists[ints[c]]));
+                default -> throw new IllegalStateException("Unknown opcode " + ops[c]);
+            };
+        }
+    }
+}
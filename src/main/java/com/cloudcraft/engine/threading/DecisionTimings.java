@@ -0,0 +1,68 @@
+package com.cloudcraft.engine.threading;
+
+import com.cloudcraft.engine.metrics.LatencyHistogram;
+import org.bukkit.entity.EntityType;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-entity-type latency of single AI decisions, one {@link LatencyHistogram}
+ * per type created the first time that type is timed. Region workers time
+ * one decision in every {@value #SAMPLE_EVERY}, which keeps the clock reads
+ * and shared counters off the common path while leaving the percentiles
+ * representative.
+ */
+final class DecisionTimings {
+    static final int SAMPLE_EVERY = 16;
+
+    static final EntityType[] TYPES = EntityType.values();
+
+    private final int windows;
+    private final AtomicReferenceArray<LatencyHistogram> byType = new AtomicReferenceArray<>(TYPES.length);
+
+    DecisionTimings(int windows) {
+        this.windows = windows;
+    }
+
+    void record(int typeOrdinal, long nanos) {
+        LatencyHistogram histogram = byType.get(typeOrdinal);
+        if (histogram == null) {
+            byType.compareAndSet(typeOrdinal, null, new LatencyHistogram(windows));
+            histogram = byType.get(typeOrdinal);
+        }
+        histogram.record(nanos);
+    }
+
+    /** The histogram of the type with ordinal {@code typeOrdinal}, or null if it was never timed. */
+    @Nullable LatencyHistogram histogram(int typeOrdinal) {
+        return byType.get(typeOrdinal);
+    }
+
+    /** Rotates every type's window; see {@link LatencyHistogram#rotate}. */
+    void rotate() {
+        for (int t = 0; t < TYPES.length; t++) {
+            LatencyHistogram histogram = byType.get(t);
+            if (histogram != null) {
+                histogram.rotate();
+            }
+        }
+    }
+
+    /** Summaries of the types timed in the last {@code count} windows. */
+    Map<EntityType, LatencyHistogram.Summary> summaries(int count) {
+        Map<EntityType, LatencyHistogram.Summary> summaries = new EnumMap<>(EntityType.class);
+        for (int t = 0; t < TYPES.length; t++) {
+            LatencyHistogram histogram = byType.get(t);
+            if (histogram != null) {
+                LatencyHistogram.Summary summary = histogram.summary(count);
+                if (summary.count() > 0) {
+                    summaries.put(TYPES[t], summary);
+                }
+            }
+        }
+        return summaries;
+    }
+}
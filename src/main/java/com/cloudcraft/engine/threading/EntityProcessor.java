@@ -1,272 +1,513 @@
 package com.cloudcraft.engine.threading;
 
 import com.cloudcraft.engine.CloudCraftEngine;
+import com.cloudcraft.engine.ai.BehaviorRegistry;
+import com.cloudcraft.engine.config.EngineConfig;
+import com.cloudcraft.engine.metrics.LatencyHistogram;
+import com.cloudcraft.engine.metrics.OpenMetricsWriter;
+import com.cloudcraft.engine.pathfinding.FlowFieldService;
+import com.cloudcraft.engine.pathfinding.PassabilityCache;
+import com.cloudcraft.engine.pathfinding.PathService;
+import com.cloudcraft.engine.pathfinding.TerrainListener;
+import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.*;
 import java.util.UUID;
-import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
-import java.util.stream.Collectors;
+import java.util.logging.Level;
 
 /**
- * Optimized entity processor using differential snapshots and async processing
+ * Optimized entity processor using double-buffered snapshots and async processing
  * Implements the snapshot-process-apply pattern to work around Bukkit's
  * threading constraints
  */
 public class EntityProcessor {
     private final CloudCraftEngine plugin;
-
-    // Snapshot system - minimal memory footprint
-    private final Map<UUID, EntitySnapshot> currentSnapshot = new ConcurrentHashMap<>();
-    private final Map<UUID, EntitySnapshot> previousSnapshot = new ConcurrentHashMap<>();
-
-    // Async processing pipeline
-    private final ExecutorService asyncProcessor = Executors.newVirtualThreadPerTaskExecutor();
-    private final AtomicReference<CompletableFuture<List<EntityDecision>>> pendingWork = new AtomicReference<>();
-    private final AtomicReference<List<EntityDecision>> pendingResults = new AtomicReference<>();
-
-    // Spatial culling - only process entities near players
-    private static final double PROCESSING_RADIUS = 64.0; // Only process within 64 blocks of players
-    private final Set<UUID> activeEntities = ConcurrentHashMap.newKeySet();
-
-    // Performance tracking
-    private final AtomicLong totalProcessTime = new AtomicLong();
-    private final AtomicLong totalApplyTime = new AtomicLong();
-    private final AtomicInteger entitiesProcessed = new AtomicInteger();
-    private final AtomicInteger entitiesCulled = new AtomicInteger();
-    private final AtomicInteger tickCount = new AtomicInteger();
+    private final EngineConfig config;
+
+    // Snapshot system - two pooled SoA buffers alternating by epoch. Capture
+    // writes buffers[epoch & 1]; publishing seals it for the async phase and
+    // advances the epoch, so capture never touches the buffer being read.
+    private final SnapshotBuffer[] buffers = {new SnapshotBuffer(1024), new SnapshotBuffer(1024)};
+    private long epoch;
+    private final Location scratchLocation = new Location(null, 0, 0, 0);
+
+    // Live entity registry - replaces world.getEntities() on every tick
+    private final EntityRegistry entityRegistry = new EntityRegistry();
+
+    // Background A* and per-player flow fields for chasing mobs over
+    // off-heap block passability; null when pathfinding (or flow fields) is disabled
+    private final @Nullable PassabilityCache passability;
+    private final @Nullable PathService pathService;
+    private final @Nullable FlowFieldService flowFields;
+    private final @Nullable TerrainListener terrainListener;
+
+    // Async processing pipeline - a dedicated work-stealing pool, one task
+    // per region, sized by threading.max-threads but never above the core count
+    private final ForkJoinPool regionPool;
+    private final SnapshotPipeline pipeline;
+    private volatile @Nullable InFlightWork inFlight;
+    private final AtomicReference<DecisionBatch> pendingResults = new AtomicReference<>();
+    // Decisions of published batches replaced before any apply took them
+    private final AtomicInteger supersededDrops = new AtomicInteger();
+
+    // Apply phase - the batch being applied, how far into it we are and where
+    // it stops (short of the end for a partly applied stale batch). Leftovers
+    // carry into the next tick until a newer batch supersedes them or capture
+    // reuses their snapshot buffer, which with one batch in flight is at most
+    // one tick. Drops since the last apply are reported with the next one.
+    private @Nullable DecisionBatch applying;
+    private int applyCursor;
+    private int applyLimit;
+    private int droppedSinceApply;
+    private int droppedSourceTick;
+
+    // Spatial culling - distance tiers from activation.tiers, nearest first.
+    // Entities past the outermost tier are not captured at all.
+    private final double[] tierRadiusSq;
+    private final int[] tierInterval;
+    private final double coverageRadius;
+    private final int[] tierEntities;
+    private final int[] tierActive;
+
+    // AI behaviors per entity type, flattened for the workers on change
+    private final BehaviorRegistry behaviorRegistry = BehaviorRegistry.withDefaults();
+    private @Nullable BehaviorTable behaviorTable;
+
+    // Performance tracking - phase and per-type decision latencies in
+    // rolling windows of METRICS_WINDOW_TICKS, the last METRICS_WINDOWS kept
+    public static final int METRICS_WINDOW_TICKS = 100;
+    private static final int METRICS_WINDOWS = 12;
+    private final LatencyHistogram captureLatency = new LatencyHistogram(METRICS_WINDOWS);
+    private final LatencyHistogram processLatency = new LatencyHistogram(METRICS_WINDOWS);
+    private final LatencyHistogram applyLatency = new LatencyHistogram(METRICS_WINDOWS);
+    private final DecisionTimings decisionTimings = new DecisionTimings(METRICS_WINDOWS);
+    private final AtomicLong entitiesProcessed = new AtomicLong();
+    private final AtomicLong entitiesCulled = new AtomicLong();
+    private final AtomicLongArray commandsByAction = new AtomicLongArray(CommandBuffer.OP_NAMES.length);
+    private final ProcessingStats processingStats = new ProcessingStats();
+    private volatile int applyBacklog;
+    private volatile long lastLookupsSaved;
+    private volatile int lastRegionCount;
+    private final AtomicLong decisionsDeferred = new AtomicLong();
+    private final AtomicLong decisionsDropped = new AtomicLong();
+    private final AtomicLong skippedTicks = new AtomicLong();
+    private final AtomicLong staleDrops = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
 
     private volatile boolean isRunning = true;
     
-    public EntityProcessor(@NotNull CloudCraftEngine plugin) {
+    public EntityProcessor(@NotNull CloudCraftEngine plugin, @NotNull EngineConfig config) {
         this.plugin = plugin;
+        this.config = config;
+        List<EngineConfig.ActivationTier> tiers = config.activationTiers();
+        this.tierRadiusSq = new double[tiers.size()];
+        this.tierInterval = new int[tiers.size()];
+        for (int t = 0; t < tiers.size(); t++) {
+            tierRadiusSq[t] = tiers.get(t).radius() * tiers.get(t).radius();
+            tierInterval[t] = tiers.get(t).interval();
+        }
+        this.coverageRadius = tiers.get(tiers.size() - 1).radius();
+        this.tierEntities = new int[tiers.size()];
+        this.tierActive = new int[tiers.size()];
+        this.regionPool = new ForkJoinPool(
+                Math.min(config.maxThreads(), Runtime.getRuntime().availableProcessors()),
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("CloudCraft-Region-" + thread.getPoolIndex());
+                    return thread;
+                },
+                null, false);
+        if (config.pathfindingEnabled()) {
+            this.passability = new PassabilityCache(plugin.getLogger());
+            this.pathService = new PathService(plugin.getLogger(), config, passability);
+            this.flowFields = config.flowFieldRadius() > 0
+                    ? new FlowFieldService(plugin.getLogger(), config, passability) : null;
+            this.terrainListener = new TerrainListener(plugin.getServer(), passability, pathService, flowFields);
+        } else {
+            this.passability = null;
+            this.pathService = null;
+            this.flowFields = null;
+            this.terrainListener = null;
+        }
+        this.pipeline = new SnapshotPipeline(config, decisionTimings, pathService, flowFields);
     }
 
     /**
      * Phase 1: Capture minimal snapshot of world state (main thread, fast)
      */
     public void captureSnapshot() {
-        activeEntities.clear();
-        
-        // Get all player positions for spatial culling
-        Set<Location> playerPositions = new HashSet<>();
+        long startTime = System.nanoTime();
+        PipelineEvents.Capture event = new PipelineEvents.Capture();
+        event.begin();
+        if (plugin.getServer().getCurrentTick() % METRICS_WINDOW_TICKS == 0) {
+            captureLatency.rotate();
+            processLatency.rotate();
+            applyLatency.rotate();
+            decisionTimings.rotate();
+        }
+        SnapshotBuffer buffer = buffers[(int) (epoch & 1)];
+
+        // Anything still queued from this buffer is superseded by the newer
+        // batch already dispatched from the other one
+        if (applying != null && applying.snapshot() == buffer) {
+            dropRemaining();
+        }
+        buffer.begin(epoch, plugin.getServer().getCurrentTick());
+        if (terrainListener != null) {
+            terrainListener.flush();
+        }
+        List<World> worlds = plugin.getServer().getWorlds();
+
+        // Index player positions by chunk for spatial culling and targeting
+        PlayerIndex players = buffer.players();
         for (Player player : plugin.getServer().getOnlinePlayers()) {
-            playerPositions.add(player.getLocation());
+            Location location = player.getLocation(scratchLocation);
+            GameMode mode = player.getGameMode();
+            int worldIndex = worlds.indexOf(location.getWorld());
+            boolean targetable = !player.isDead() && (mode == GameMode.SURVIVAL || mode == GameMode.ADVENTURE);
+            int slot = players.add(player.getUniqueId(), worldIndex,
+                    location.getX(), location.getY(), location.getZ(), targetable);
+            buffer.setPlayerHandle(slot, player);
+            if (flowFields != null && targetable) {
+                World world = location.getWorld();
+                flowFields.track(player.getUniqueId(), worldIndex, world.getMinHeight(), world.getMaxHeight(),
+                        location.getX(), location.getY(), location.getZ(), buffer.tick());
+            }
+        }
+        players.build(coverageRadius);
+        if (flowFields != null) {
+            flowFields.finishTick(buffer.tick(), buffer.epoch());
         }
-        
-        // Swap snapshots to avoid allocations
-        Map<UUID, EntitySnapshot> temp = previousSnapshot;
-        previousSnapshot.putAll(currentSnapshot);
-        currentSnapshot.clear();
-        temp.clear();
-
-        // Capture only entities near players (spatial culling)
-        for (World world : plugin.getServer().getWorlds()) {
-            for (Entity entity : world.getEntities()) {
-                if (entity instanceof Player)
-                    continue;
-
-                // Spatial culling: only process entities near players
-                if (isNearAnyPlayer(entity.getLocation(), playerPositions)) {
-                    UUID id = entity.getUniqueId();
-                    currentSnapshot.put(id, new EntitySnapshot(entity));
-                    activeEntities.add(id);
-                } else {
+
+        // Capture only entities near players (spatial culling). The registry
+        // skips chunks no player covers; the rest are assigned the tier of
+        // their nearest player. Every captured entity stays visible to
+        // neighbour queries, but only those due this tick run their AI.
+        entityRegistry.sweep();
+        Arrays.fill(tierEntities, 0);
+        Arrays.fill(tierActive, 0);
+        int tick = buffer.tick();
+        for (int worldIndex = 0; worldIndex < worlds.size(); worldIndex++) {
+            World world = worlds.get(worldIndex);
+            int index = worldIndex;
+            buffer.setWorldSeed(worldIndex, config.aiSeed().orElse(world.getSeed()));
+            int visited = entityRegistry.forEachCovered(world, worldIndex, players, (member, x, y, z) -> {
+                Entity entity = member.entity;
+                int tier = tierFor(players.nearestDistanceSq(index, x, y, z));
+                if (tier < 0) {
                     entitiesCulled.incrementAndGet();
+                    return;
+                }
+
+                UUID id = entity.getUniqueId();
+                int flags = captureFlags(entity);
+                tierEntities[tier]++;
+                if (isDue(id, tick, tierInterval[tier])) {
+                    flags |= SnapshotBuffer.FLAG_ACTIVE;
+                    tierActive[tier]++;
                 }
+                int ticksLived = entity.getTicksLived();
+                int slot = buffer.append(id.getMostSignificantBits(), id.getLeastSignificantBits(),
+                        entity.getType(), index, x, y, z, ticksLived, flags, tierInterval[tier]);
+                buffer.setHandle(slot, entity);
+                captureStack(buffer, slot, member, ticksLived);
+            });
+            entitiesCulled.addAndGet(entityRegistry.size(world) - visited);
+        }
+
+        // Publish the paths found so far for this snapshot, then start the
+        // searches the last processed batch asked for
+        if (pathService != null) {
+            pathService.publish(buffer.epoch());
+            pathService.dispatch(worlds, tick);
+        }
+        captureLatency.record(System.nanoTime() - startTime);
+        if (event.shouldCommit()) {
+            event.tick = tick;
+            event.players = players.size();
+            event.entities = buffer.size();
+            event.active = Arrays.stream(tierActive).sum();
+            event.commit();
+        }
+    }
+
+    /** Nearest tier containing the distance, or -1 past the outermost one. */
+    private int tierFor(double distanceSq) {
+        for (int t = 0; t < tierRadiusSq.length; t++) {
+            if (distanceSq <= tierRadiusSq[t])
+                return t;
+        }
+        return -1;
+    }
+
+    /**
+     * True on one tick in every {@code interval}. The phase comes from the
+     * entity's id, so each entity keeps a fixed cadence while a tier's
+     * entities are spread evenly over the interval instead of all running on
+     * the same tick.
+     */
+    static boolean isDue(UUID id, int tick, int interval) {
+        if (interval == 1)
+            return true;
+        int phase = (int) GridKeys.mix(id.getMostSignificantBits() ^ id.getLeastSignificantBits());
+        return Math.floorMod(tick + phase, interval) == 0;
+    }
+
+    /**
+     * Records what a dropped item or experience orb holds, so clustering can
+     * match compatible stacks without touching the entity again. An item's
+     * key and limit come from the registry's cache; its live amount, which
+     * costs a copy of the stack, is only read if the item can cluster at all
+     * - stackable and past the fresh-drop age. The rest keep no stack and
+     * never cluster.
+     */
+    private static void captureStack(SnapshotBuffer buffer, int slot, EntityRegistry.Member member, int ticksLived) {
+        Entity entity = member.entity;
+        if (entity instanceof Item item) {
+            if (ticksLived > ItemClusters.MIN_AGE_TICKS && member.stackLimit() > 1) {
+                buffer.setStack(slot, member.stackKey(), item.getItemStack().getAmount(), member.stackLimit());
             }
+        } else if (entity instanceof ExperienceOrb orb) {
+            buffer.setStack(slot, 0, orb.getExperience(), Integer.MAX_VALUE);
         }
     }
 
+    private static int captureFlags(Entity entity) {
+        int flags = 0;
+        if (entity instanceof Animals animals) {
+            if (animals.canBreed())
+                flags |= SnapshotBuffer.FLAG_CAN_BREED;
+            if (animals.isLoveMode())
+                flags |= SnapshotBuffer.FLAG_IN_LOVE;
+        }
+        return flags;
+    }
+
     /**
      * Phase 2: Trigger async processing (non-blocking)
      */
     public void processAsync() {
         // Don't start new work if previous work isn't done
-        CompletableFuture<List<EntityDecision>> currentWork = pendingWork.get();
-        if (currentWork != null && !currentWork.isDone()) {
-            return; // Still processing previous tick
+        InFlightWork current = inFlight;
+        if (current != null && !current.finished) {
+            skippedTicks.incrementAndGet();
+            checkOverrun(current);
+            return; // Still processing previous tick; the next capture reuses the same buffer
         }
 
-        // Create immutable snapshot for async processing
-        Map<UUID, EntitySnapshot> snapshotCopy = Map.copyOf(currentSnapshot);
-
-        CompletableFuture<List<EntityDecision>> newWork = CompletableFuture.supplyAsync(() -> {
-            long startTime = System.nanoTime();
-            List<EntityDecision> decisions = processSnapshotAsync(snapshotCopy);
-            long processTime = (System.nanoTime() - startTime) / 1_000_000;
-            totalProcessTime.addAndGet(processTime);
-            return decisions;
-        }, asyncProcessor);
-
-        // Store result when complete (non-blocking)
-        newWork.thenAccept(decisions -> {
-            pendingResults.set(decisions);
-            entitiesProcessed.addAndGet(decisions.size());
+        // Zero-copy handoff: seal this epoch's buffer and flip capture to the
+        // other one, which is free because the previous work has finished
+        SnapshotBuffer snapshot = buffers[(int) (epoch & 1)];
+        snapshot.seal();
+        epoch++;
+
+        // Results are published before the work is marked finished, so once
+        // it reports done its batch is already visible to the apply phase.
+        // Cancelled work publishes nothing.
+        InFlightWork work = new InFlightWork(snapshot.tick(), snapshot.size());
+        inFlight = work;
+        regionPool.execute(() -> {
+            try {
+                PipelineEvents.Process event = new PipelineEvents.Process();
+                event.begin();
+                CommandBuffer decisions = processSnapshotAsync(snapshot, work);
+                processLatency.record(System.nanoTime() - work.startNanos);
+                if (event.shouldCommit()) {
+                    event.sourceTick = work.sourceTick;
+                    event.entities = snapshot.size();
+                    event.regions = lastRegionCount;
+                    event.decisions = decisions.size();
+                    event.cancelled = work.cancelled;
+                    event.commit();
+                }
+
+                if (!work.cancelled) {
+                    // A batch published after one apply and finished before the next
+                    // can still be waiting; it is superseded unapplied
+                    DecisionBatch superseded = pendingResults.getAndSet(
+                            new DecisionBatch(work.sourceTick, snapshot, decisions));
+                    if (superseded != null) {
+                        decisionsDropped.addAndGet(superseded.commands().size());
+                        supersededDrops.addAndGet(superseded.commands().size());
+                    }
+                    entitiesProcessed.addAndGet(decisions.size());
+                    decisions.countCommands(commandsByAction);
+                    processingStats.record(snapshot, decisions);
+                }
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.SEVERE, "AI processing failed for tick " + work.sourceTick, e);
+            } finally {
+                work.finished = true;
+            }
         });
+    }
+
+    /**
+     * Watchdog: cancels work that has been running longer than the configured
+     * timeout and reports it once. Cancellation is cooperative - region tasks
+     * stop at their next region - because the work still owns the snapshot
+     * and spatial index until it actually returns; the pipeline resumes as
+     * soon as it does.
+     */
+    private void checkOverrun(InFlightWork work) {
+        long elapsedMillis = (System.nanoTime() - work.startNanos) / 1_000_000;
+        if (work.cancelled || elapsedMillis < config.watchdogTimeoutMillis())
+            return;
 
-        pendingWork.set(newWork);
+        work.cancelled = true;
+        overruns.incrementAndGet();
+        plugin.getLogger().warning(String.format(
+                "AI processing for tick %d overran: %d ms for %d entities (limit %d ms), cancelling",
+                work.sourceTick, elapsedMillis, work.entities, config.watchdogTimeoutMillis()));
     }
     
     /**
      * Phase 3: Apply previous tick's results (main thread, fast)
      */
     public void applyPendingResults() {
-        List<EntityDecision> decisions = pendingResults.getAndSet(null);
-        if (decisions == null)
-            return;
+        applyBatch();
+        applyBacklog = applying != null ? applyLimit - applyCursor : 0;
+    }
 
+    private void applyBatch() {
         long startTime = System.nanoTime();
+        PipelineEvents.Apply event = new PipelineEvents.Apply();
+        event.begin();
+        long deadline = startTime + config.applyBudgetMicros() * 1_000;
+
+        // A newer batch supersedes whatever is left of the previous one
+        DecisionBatch incoming = pendingResults.getAndSet(null);
+        if (incoming != null) {
+            dropRemaining();
+            accept(incoming, plugin.getServer().getCurrentTick() - incoming.sourceTick());
+        }
 
-        for (EntityDecision decision : decisions) {
-            decision.apply(plugin.getServer());
+        DecisionBatch batch = applying;
+        int applied = 0;
+        if (batch != null) {
+            // Decisions arrive sorted by priority; apply until the budget runs out,
+            // always making progress by at least one decision per tick
+            SnapshotBuffer snapshot = batch.snapshot();
+            CommandBuffer decisions = batch.commands();
+            int first = applyCursor;
+            while (applyCursor < applyLimit) {
+                if (applyCursor > first && System.nanoTime() >= deadline)
+                    break;
+                // Subjects and targets resolve through the snapshot's handle table
+                decisions.apply(applyCursor++, snapshot);
+            }
+            applied = applyCursor - first;
+            lastLookupsSaved = snapshot.drainLookupsSaved();
+
+            if (applyCursor < applyLimit) {
+                decisionsDeferred.addAndGet(applyLimit - applyCursor);
+            } else {
+                applying = null;
+            }
         }
 
-        long applyTime = (System.nanoTime() - startTime) / 1_000_000;
-        totalApplyTime.addAndGet(applyTime);
-        tickCount.incrementAndGet();
+        int dropped = droppedSinceApply + supersededDrops.getAndSet(0);
+        droppedSinceApply = 0;
+        if (batch == null && dropped == 0)
+            return;
 
-        // Track metrics in plugin for debug command
-        for (EntityDecision decision : decisions) {
-            plugin.getLastProcessTimes().put(decision.entityId, System.nanoTime());
-            plugin.getProcessingCounts()
-                    .computeIfAbsent(decision.entityId, k -> new AtomicInteger(0))
-                    .incrementAndGet();
+        applyLatency.record(System.nanoTime() - startTime);
+        if (event.shouldCommit()) {
+            event.tick = plugin.getServer().getCurrentTick();
+            event.sourceTick = batch != null ? batch.sourceTick() : droppedSourceTick;
+            event.applied = applied;
+            event.remaining = applying != null ? applyLimit - applyCursor : 0;
+            event.dropped = dropped;
+            event.commit();
         }
     }
 
     /**
-     * Spatial culling helper
+     * Starts applying a freshly arrived batch. Past the maximum age, the
+     * whole batch or its movement decisions are dropped as stale, by policy.
      */
-    private boolean isNearAnyPlayer(Location entityLoc, Set<Location> playerPositions) {
-        for (Location playerLoc : playerPositions) {
-            if (entityLoc.getWorld().equals(playerLoc.getWorld()) &&
-                    entityLoc.distance(playerLoc) <= PROCESSING_RADIUS) {
-                return true;
-            }
+    private void accept(DecisionBatch batch, int age) {
+        int size = batch.commands().size();
+        int limit = size;
+        if (age > config.maxResultAgeTicks()) {
+            limit = config.staleResultPolicy() == EngineConfig.StaleResultPolicy.DROP
+                    ? 0
+                    : batch.commands().countMoreUrgentThan(CommandBuffer.PRIORITY_MOVE);
+            staleDrops.addAndGet(size - limit);
         }
-        return false;
-    }
 
-    /**
-     * Core async processing - pure computation, no Bukkit API calls
-     */
-    private List<EntityDecision> processSnapshotAsync(Map<UUID, EntitySnapshot> snapshot) {
-        // Build spatial index for fast neighbor queries
-        SpatialIndex spatialIndex = new SpatialIndex(snapshot.values());
-
-        return snapshot.values().parallelStream()
-                .map(entity -> processEntityAI(entity, spatialIndex))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        if (limit > 0) {
+            applying = batch;
+            applyCursor = 0;
+            applyLimit = limit;
+        }
     }
 
     /**
-     * AI processing for individual entity (pure computation)
+     * Discards the rest of the batch being applied and counts it as dropped;
+     * the next apply reports it.
      */
-    private EntityDecision processEntityAI(EntitySnapshot entity, SpatialIndex spatialIndex) {
-        EntityDecision.Builder decision = new EntityDecision.Builder(entity.id, entity.type);
-
-        switch (entity.type) {
-            case ZOMBIE, SKELETON, CREEPER -> processHostileAI(entity, spatialIndex, decision);
-            case COW, SHEEP, PIG, CHICKEN -> processPassiveAI(entity, spatialIndex, decision);
-            case DROPPED_ITEM -> processItemAI(entity, spatialIndex, decision);
-            default -> {
-                // No special processing for other entity types
-            }
+    private void dropRemaining() {
+        if (applying != null) {
+            decisionsDropped.addAndGet(applyLimit - applyCursor);
+            droppedSinceApply += applyLimit - applyCursor;
+            droppedSourceTick = applying.sourceTick();
+            applying = null;
+            applyCursor = 0;
         }
-
-        return decision.hasActions() ? decision.build() : null;
     }
 
     /**
-     * Hostile mob AI (targeting, combat, pathfinding)
+     * Core async processing - pure computation, no Bukkit API calls
      */
-    private void processHostileAI(EntitySnapshot entity, SpatialIndex spatialIndex, EntityDecision.Builder decision) {
-        // Find nearest player within 16 blocks
-        EntitySnapshot nearestPlayer = spatialIndex.findNearestPlayer(entity.position, 16.0);
+    private CommandBuffer processSnapshotAsync(SnapshotBuffer snapshot, InFlightWork work) {
+        BehaviorTable table = behaviorTable;
+        if (table == null || table.version != behaviorRegistry.version()) {
+            table = BehaviorTable.from(behaviorRegistry);
+            behaviorTable = table;
+        }
 
-        if (nearestPlayer != null) {
-            double distance = entity.position.distance(nearestPlayer.position);
+        pipeline.index(snapshot, table);
+        lastRegionCount = pipeline.regionCount();
+        return pipeline.decide(snapshot, table, () -> work.cancelled);
+    }
 
-            // Attack if close
-            if (distance < 2.0) {
-                decision.attack(nearestPlayer.id, 3.0);
-            }
-            // Move toward target if medium distance
-            else if (distance < 16.0) {
-                Vector direction = nearestPlayer.position.toVector()
-                        .subtract(entity.position.toVector())
-                        .normalize()
-                        .multiply(0.2);
-                decision.move(direction);
-                decision.setTarget(nearestPlayer.id);
+    public void shutdown() {
+        isRunning = false;
+        regionPool.shutdown();
+        if (pathService != null) {
+            pathService.shutdown();
+            passability.shutdown();
+            if (flowFields != null) {
+                flowFields.shutdown();
             }
-        } else {
-            // Random wandering if no target
-            Vector randomDirection = new Vector(
-                    (Math.random() - 0.5) * 0.1,
-                    0,
-                    (Math.random() - 0.5) * 0.1);
-            decision.move(randomDirection);
         }
     }
 
-    /**
-     * Passive mob AI (breeding, wandering)
-     */
-    private void processPassiveAI(EntitySnapshot entity, SpatialIndex spatialIndex, EntityDecision.Builder decision) {
-        // Process only every 5 ticks to reduce load
-        if (entity.ticksLived % 5 != 0)
-            return;
-
-        // Find nearby same-type entities for breeding
-        List<EntitySnapshot> sameType = spatialIndex.findNearbyEntities(entity.position, 8.0)
-                .stream()
-                .filter(e -> e.type == entity.type && e.canBreed && !e.isInLove)
-                .collect(Collectors.toList());
-
-        if (!sameType.isEmpty() && entity.canBreed && !entity.isInLove) {
-            decision.startBreeding(sameType.get(0).id);
-        }
-
-        // Random wandering
-        if (entity.ticksLived % 100 == 0) {
-            Vector randomDirection = new Vector(
-                    (Math.random() - 0.5) * 0.15,
-                    0,
-                    (Math.random() - 0.5) * 0.15);
-            decision.move(randomDirection);
-        }
+    /** Behaviors per entity type; changes apply from the next processed snapshot. */
+    public @NotNull BehaviorRegistry getBehaviorRegistry() {
+        return behaviorRegistry;
     }
-    
-    /**
-     * Item merging AI
-     */
-    private void processItemAI(EntitySnapshot entity, SpatialIndex spatialIndex, EntityDecision.Builder decision) {
-        // Process only every 20 ticks
-        if (entity.ticksLived % 20 != 0)
-            return;
 
-        // Find nearby items of same type for merging
-        List<EntitySnapshot> nearbyItems = spatialIndex.findNearbyEntities(entity.position, 2.0)
-                .stream()
-                .filter(e -> e.type == EntityType.DROPPED_ITEM)
-                .collect(Collectors.toList());
+    public @NotNull EntityRegistry getEntityRegistry() {
+        return entityRegistry;
+    }
 
-        if (!nearbyItems.isEmpty()) {
-            decision.mergeWith(nearbyItems.get(0).id);
-        }
+    /** Per-type, per-chunk and sampled per-entity counts for the debug command. */
+    public @NotNull ProcessingStats getProcessingStats() {
+        return processingStats;
     }
-    
-    public void shutdown() {
-        isRunning = false;
-        asyncProcessor.shutdown();
+
+    /** Chunk and block listener keeping cached blocks and paths current; null when pathfinding is disabled. */
+    public @Nullable TerrainListener getTerrainListener() {
+        return terrainListener;
     }
 
     public boolean isRunning() {
@@ -274,227 +515,158 @@ public class EntityProcessor {
     }
 
     public PerformanceMetrics getMetrics() {
-        int ticks = tickCount.get();
-        if (ticks == 0)
-            return new PerformanceMetrics(0, 0, 0, 0);
-
         return new PerformanceMetrics(
-                (int) (totalProcessTime.get() / ticks),
-                (int) (totalApplyTime.get() / ticks),
+                captureLatency.summary(1),
+                processLatency.summary(1),
+                applyLatency.summary(1),
+                decisionTimings.summaries(1),
                 entitiesProcessed.get(),
-                entitiesCulled.get());
+                entitiesCulled.get(),
+                lastRegionCount,
+                lastLookupsSaved,
+                decisionsDeferred.get(),
+                decisionsDropped.get(),
+                skippedTicks.get(),
+                staleDrops.get(),
+                overruns.get(),
+                inFlightDepth(),
+                tierMetrics(),
+                pathMetrics(),
+                flowMetrics());
     }
 
-    public record PerformanceMetrics(
-            int avgProcessTime,
-            int avgApplyTime,
-            int entitiesProcessed,
-            int entitiesCulled) {
+    private PathService.PathMetrics pathMetrics() {
+        return pathService != null ? pathService.getMetrics() : new PathService.PathMetrics(0, 0, 0, 0, 0, 0, 0, 0, 0);
     }
 
-    /**
-     * Minimal entity snapshot - only essential data
-     */
-    private static class EntitySnapshot {
-        final UUID id;
-        final EntityType type;
-        final Location position;
-        final int ticksLived;
-        final boolean canBreed;
-        final boolean isInLove;
-
-        EntitySnapshot(Entity entity) {
-            this.id = entity.getUniqueId();
-            this.type = entity.getType();
-            this.position = entity.getLocation().clone();
-            this.ticksLived = entity.getTicksLived();
-
-            if (entity instanceof Animals animals) {
-                this.canBreed = animals.canBreed();
-                this.isInLove = animals.isLoveMode();
-            } else {
-                this.canBreed = false;
-                this.isInLove = false;
-            }
+    private FlowFieldService.FlowMetrics flowMetrics() {
+        return flowFields != null ? flowFields.getMetrics() : new FlowFieldService.FlowMetrics(0, 0, 0, 0, 0, 0);
+    }
+
+    /** Per-tier counts from the last capture. Main thread only. */
+    private List<TierMetrics> tierMetrics() {
+        List<EngineConfig.ActivationTier> tiers = config.activationTiers();
+        List<TierMetrics> metrics = new ArrayList<>(tiers.size());
+        for (int t = 0; t < tiers.size(); t++) {
+            metrics.add(new TierMetrics(tiers.get(t).radius(), tierInterval[t], tierEntities[t], tierActive[t]));
         }
+        return metrics;
     }
 
     /**
-     * Simple spatial index for fast neighbor queries
+     * Batches between dispatch and fully applied: still processing, published
+     * but not yet picked up, and partly applied. Main thread only.
      */
-    private static class SpatialIndex {
-        private final List<EntitySnapshot> entities;
-
-        SpatialIndex(Collection<EntitySnapshot> entities) {
-            this.entities = new ArrayList<>(entities);
-        }
-
-        EntitySnapshot findNearestPlayer(Location center, double radius) {
-            // Players are processed as PLAYER type entities in snapshot
-            return entities.stream()
-                    .filter(e -> e.type == EntityType.PLAYER)
-                    .filter(e -> e.position.distance(center) <= radius)
-                    .min(Comparator.comparingDouble(e -> e.position.distance(center)))
-                    .orElse(null);
-        }
-
-        List<EntitySnapshot> findNearbyEntities(Location center, double radius) {
-            return entities.stream()
-                    .filter(e -> e.position.distance(center) <= radius)
-                    .collect(Collectors.toList());
-        }
+    private int inFlightDepth() {
+        InFlightWork work = inFlight;
+        return (work != null && !work.finished ? 1 : 0)
+                + (pendingResults.get() != null ? 1 : 0)
+                + (applyBacklog > 0 ? 1 : 0);
     }
 
     /**
-     * Entity decision - actions to apply on main thread
+     * Writes the pipeline's metric families for the metrics endpoint. Reads
+     * only atomics, volatiles and thread-safe pool statistics, so it is safe
+     * from the scrape thread while the main thread keeps ticking.
      */
-    private static class EntityDecision {
-        final UUID entityId;
-        final List<Action> actions;
-
-        EntityDecision(UUID entityId, List<Action> actions) {
-            this.entityId = entityId;
-            this.actions = actions;
-        }
-
-        boolean apply(org.bukkit.Server server) {
-            for (World world : server.getWorlds()) {
-                Entity entity = world.getEntity(entityId);
-                if (entity != null && entity.isValid()) {
-                    for (Action action : actions) {
-                        action.apply(entity, server);
-                    }
-                    return true;
-                }
+    public void writeMetrics(@NotNull OpenMetricsWriter out) {
+        out.family("cloudcraft_phase_seconds", "summary", "seconds",
+                "Pipeline phase duration; quantiles over the last 100-tick window");
+        out.summary("cloudcraft_phase_seconds", "phase", "capture", captureLatency, 1);
+        out.summary("cloudcraft_phase_seconds", "phase", "process", processLatency, 1);
+        out.summary("cloudcraft_phase_seconds", "phase", "apply", applyLatency, 1);
+
+        out.family("cloudcraft_decision_seconds", "summary", "seconds",
+                "Single AI decision duration by entity type, sampled; quantiles over the last 100-tick window");
+        for (int t = 0; t < DecisionTimings.TYPES.length; t++) {
+            LatencyHistogram histogram = decisionTimings.histogram(t);
+            if (histogram != null) {
+                out.summary("cloudcraft_decision_seconds", "type", DecisionTimings.TYPES[t].name(), histogram, 1);
             }
-            return false;
         }
 
-        static class Builder {
-            private final UUID entityId;
-            private final List<Action> actions = new ArrayList<>();
-
-            Builder(UUID entityId, EntityType entityType) {
-                this.entityId = entityId;
-            }
-
-            void move(Vector velocity) {
-                actions.add(new MoveAction(velocity));
-            }
-
-            void attack(UUID targetId, double damage) {
-                actions.add(new AttackAction(targetId, damage));
-            }
-
-            void setTarget(UUID targetId) {
-                actions.add(new SetTargetAction(targetId));
-            }
-
-            void startBreeding(UUID mateId) {
-                actions.add(new BreedAction(mateId));
-            }
-
-            void mergeWith(UUID otherId) {
-                actions.add(new MergeAction(otherId));
-            }
-
-            boolean hasActions() {
-                return !actions.isEmpty();
-            }
-
-            EntityDecision build() {
-                return new EntityDecision(entityId, new ArrayList<>(actions));
-            }
+        out.family("cloudcraft_commands", "counter", null, "Commands decided by the AI, by action");
+        for (int op = 1; op < CommandBuffer.OP_NAMES.length; op++) {
+            out.sample("cloudcraft_commands_total").label("action", CommandBuffer.OP_NAMES[op])
+                    .value(commandsByAction.get(op));
         }
-    }
 
-    /**
-     * Action implementations - Bukkit API calls happen here
-     */
-    private interface Action {
-        void apply(Entity entity, org.bukkit.Server server);
-    }
-
-    private record MoveAction(Vector velocity) implements Action {
-        @Override
-        public void apply(Entity entity, org.bukkit.Server server) {
-            entity.setVelocity(velocity);
+        out.counter("cloudcraft_entities_processed", "Entities that produced a decision", entitiesProcessed.get());
+        out.counter("cloudcraft_entities_culled", "Entities skipped for being too far from players", entitiesCulled.get());
+        out.counter("cloudcraft_decisions_deferred", "Decisions carried to a later tick by the apply budget",
+                decisionsDeferred.get());
+        out.counter("cloudcraft_decisions_dropped", "Decisions superseded before they were applied",
+                decisionsDropped.get());
+        out.counter("cloudcraft_decisions_stale", "Decisions dropped for arriving too late", staleDrops.get());
+        out.counter("cloudcraft_ticks_skipped", "Ticks whose processing was skipped because the previous one was running",
+                skippedTicks.get());
+        out.counter("cloudcraft_overruns", "Processing runs cancelled by the watchdog", overruns.get());
+
+        out.gauge("cloudcraft_apply_backlog", "Decisions waiting to be applied", applyBacklog);
+        out.gauge("cloudcraft_in_flight_batches", "Batches between dispatch and fully applied", inFlightDepth());
+        out.gauge("cloudcraft_regions", "Regions the last snapshot was partitioned into", lastRegionCount);
+
+        out.gauge("cloudcraft_executor_parallelism", "Region pool target parallelism", regionPool.getParallelism());
+        out.gauge("cloudcraft_executor_threads", "Region pool worker threads", regionPool.getPoolSize());
+        out.gauge("cloudcraft_executor_active_threads", "Region pool threads running tasks",
+                regionPool.getActiveThreadCount());
+        out.gauge("cloudcraft_executor_queued_tasks", "Tasks queued in region pool workers",
+                regionPool.getQueuedTaskCount());
+        out.gauge("cloudcraft_executor_queued_submissions", "Submissions waiting for a region pool worker",
+                regionPool.getQueuedSubmissionCount());
+        out.counter("cloudcraft_executor_steals", "Tasks stolen between region pool workers", regionPool.getStealCount());
+
+        if (pathService != null) {
+            pathService.writeMetrics(out);
+        }
+        if (flowFields != null) {
+            flowFields.writeMetrics(out);
         }
     }
 
-    private record AttackAction(UUID targetId, double damage) implements Action {
-        @Override
-        public void apply(Entity entity, org.bukkit.Server server) {
-            for (World world : server.getWorlds()) {
-                Entity target = world.getEntity(targetId);
-                if (target instanceof LivingEntity living) {
-                    living.damage(damage, entity);
-                    break;
-                }
-            }
-        }
+    public record PerformanceMetrics(
+            LatencyHistogram.Summary capture,
+            LatencyHistogram.Summary process,
+            LatencyHistogram.Summary apply,
+            Map<EntityType, LatencyHistogram.Summary> decisions,
+            long entitiesProcessed,
+            long entitiesCulled,
+            int regions,
+            long lookupsSaved,
+            long decisionsDeferred,
+            long decisionsDropped,
+            long skippedTicks,
+            long staleDrops,
+            long overruns,
+            int inFlightDepth,
+            List<TierMetrics> tiers,
+            PathService.PathMetrics paths,
+            FlowFieldService.FlowMetrics flows) {
     }
-    
-    private record SetTargetAction(UUID targetId) implements Action {
-        @Override
-        public void apply(Entity entity, org.bukkit.Server server) {
-            if (entity instanceof Mob mob) {
-                for (World world : server.getWorlds()) {
-                    Entity target = world.getEntity(targetId);
-                    if (target instanceof LivingEntity living) {
-                        mob.setTarget(living);
-                        break;
-                    }
-                }
-            }
-        }
+
+    /** Entities captured in one activation tier and how many of them ran their AI. */
+    public record TierMetrics(double radius, int interval, int entities, int active) {
     }
 
-    private record BreedAction(UUID mateId) implements Action {
-        @Override
-        public void apply(Entity entity, org.bukkit.Server server) {
-            if (entity instanceof Animals animal) {
-                animal.setLoveModeTicks(600);
-                for (World world : server.getWorlds()) {
-                    Entity mate = world.getEntity(mateId);
-                    if (mate instanceof Animals mateAnimal) {
-                        mateAnimal.setLoveModeTicks(600);
-                        break;
-                    }
-                }
-            }
+    /** One dispatched processing run, watched by {@link #checkOverrun}. */
+    private static final class InFlightWork {
+        final int sourceTick;
+        final int entities;
+        final long startNanos = System.nanoTime();
+        volatile boolean cancelled;
+        volatile boolean finished;
+
+        InFlightWork(int sourceTick, int entities) {
+            this.sourceTick = sourceTick;
+            this.entities = entities;
         }
     }
 
-    private record MergeAction(UUID otherId) implements Action {
-        @Override
-        public void apply(Entity entity, org.bukkit.Server server) {
-            if (entity instanceof Item item1) {
-                for (World world : server.getWorlds()) {
-                    Entity other = world.getEntity(otherId);
-                    if (other instanceof Item item2 && !item1.equals(item2)) {
-                        // Check if items can be merged (same type, not too old)
-                        if (canMergeItems(item1, item2)) {
-                            mergeItems(item1, item2);
-                        }
-                        break;
-                    }
-                }
-            }
-        }
-        
-        private boolean canMergeItems(Item item1, Item item2) {
-            // Check if items are the same type and can stack
-            return item1.getItemStack().isSimilar(item2.getItemStack()) &&
-                   item1.getItemStack().getAmount() + item2.getItemStack().getAmount() <= 
-                   item1.getItemStack().getMaxStackSize() &&
-                   item1.getTicksLived() > 10 && item2.getTicksLived() > 10; // Prevent immediate merging
-        }
-        
-        private void mergeItems(Item item1, Item item2) {
-            int totalAmount = item1.getItemStack().getAmount() + item2.getItemStack().getAmount();
-            item1.getItemStack().setAmount(totalAmount);
-            item2.remove(); // Remove the merged item
-        }
+    /**
+     * Decisions computed from one snapshot, stamped with the tick it was
+     * captured in. The snapshot travels with them because decisions address
+     * entities by slot, resolved through its handle table at apply time.
+     */
+    private record DecisionBatch(int sourceTick, SnapshotBuffer snapshot, CommandBuffer commands) {
     }
-}
\ No newline at end of file
+}
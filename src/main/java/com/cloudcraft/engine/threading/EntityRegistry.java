@@ -0,0 +1,429 @@
+package com.cloudcraft.engine.threading;
+
+import com.destroystokyo.paper.event.entity.EntityAddToWorldEvent;
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.entity.ItemMergeEvent;
+import org.bukkit.event.inventory.InventoryPickupItemEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Live registry of non-player entities, bucketed by world and chunk.
+ *
+ * Kept current from entity add/remove and chunk entity load/unload events,
+ * so capture no longer has to call {@code world.getEntities()} (which copies
+ * every loaded entity into a fresh list every tick). Capture walks only the
+ * chunks some player's processing radius covers.
+ *
+ * Bukkit fires no event when an entity walks into another chunk, so buckets
+ * are corrected lazily: capture re-buckets any walked entity whose chunk
+ * changed, and a small rolling sweep re-checks the remaining chunks so an
+ * entity wandering in from an unwalked chunk is picked up within one sweep
+ * cycle. Each world keeps its own sweep cursor and budget
+ * ({@value #SWEEP_CHUNKS_PER_TICK} chunks per tick), so a cycle takes
+ * ceil(chunks / {@value #SWEEP_CHUNKS_PER_TICK}) ticks in every world no
+ * matter how busy the others are. {@link #verify} compares the registry
+ * against a full scan.
+ *
+ * Dropped items also carry their stack key and limit, read from the item
+ * stack (a copy, plus a fresh meta for items with meta) on first capture
+ * and again only after a merge or pickup changed the stack, so capture
+ * does not copy every item's stack every tick.
+ *
+ * Main thread only, like the events that feed it.
+ */
+public class EntityRegistry implements Listener {
+    // Chunks re-checked per world per tick by the rolling sweep
+    private static final int SWEEP_CHUNKS_PER_TICK = 64;
+
+    private final Map<UUID, WorldEntities> worlds = new HashMap<>();
+    private final Map<Integer, Member> memberByEntity = new HashMap<>();
+    private final List<Entity> relocations = new ArrayList<>();
+    private final Location scratchLocation = new Location(null, 0, 0, 0);
+
+    /** Called for each tracked entity capture walks, with its current position. */
+    @FunctionalInterface
+    interface EntityVisitor {
+        void visit(Member member, double x, double y, double z);
+    }
+
+    /**
+     * Discards all state and re-registers every loaded entity. Used once on
+     * enable; afterwards events keep the registry current.
+     */
+    public void rebuild(@NotNull Server server) {
+        worlds.clear();
+        memberByEntity.clear();
+        for (World world : server.getWorlds()) {
+            for (Entity entity : world.getEntities()) {
+                track(entity);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityAdd(EntityAddToWorldEvent event) {
+        track(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemove(EntityRemoveFromWorldEvent event) {
+        untrack(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            track(entity);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        for (Entity entity : event.getEntities()) {
+            untrack(entity);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemMerge(ItemMergeEvent event) {
+        invalidateStack(event.getTarget());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemPickup(EntityPickupItemEvent event) {
+        invalidateStack(event.getItem());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onHopperPickup(InventoryPickupItemEvent event) {
+        invalidateStack(event.getItem());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        Chunk chunk = event.getChunk();
+        WorldEntities tracked = worlds.get(chunk.getWorld().getUID());
+        if (tracked == null)
+            return;
+
+        ChunkBucket bucket = tracked.chunks.get(Chunk.getChunkKey(chunk.getX(), chunk.getZ()));
+        if (bucket != null) {
+            // Last first, so each swap-remove takes the tail without moving anything
+            for (int i = bucket.members.size() - 1; i >= 0; i--) {
+                untrack(bucket.members.get(i).entity);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        WorldEntities tracked = worlds.remove(event.getWorld().getUID());
+        if (tracked != null) {
+            for (ChunkBucket bucket : tracked.buckets) {
+                for (Member member : bucket.members) {
+                    memberByEntity.remove(member.entity.getEntityId());
+                }
+            }
+        }
+    }
+
+    /** Number of entities tracked in {@code world}. */
+    int size(@NotNull World world) {
+        WorldEntities tracked = worlds.get(world.getUID());
+        return tracked == null ? 0 : tracked.size;
+    }
+
+    /** Number of entities tracked across all worlds. */
+    public int size() {
+        return memberByEntity.size();
+    }
+
+    /**
+     * Visits every tracked entity in a chunk covered by {@code players} and
+     * returns how many were visited. Entities found outside their bucket's
+     * chunk are re-bucketed after the walk; invalid ones are dropped.
+     */
+    int forEachCovered(@NotNull World world, int worldIndex, @NotNull PlayerIndex players,
+                       @NotNull EntityVisitor visitor) {
+        WorldEntities tracked = worlds.get(world.getUID());
+        if (tracked == null)
+            return 0;
+
+        int visited = 0;
+        relocations.clear();
+        for (int b = 0; b < tracked.buckets.size(); b++) {
+            ChunkBucket bucket = tracked.buckets.get(b);
+            if (!players.coversChunk(worldIndex, bucket.chunkX, bucket.chunkZ))
+                continue;
+
+            for (int i = 0; i < bucket.members.size(); i++) {
+                Member member = bucket.members.get(i);
+                Entity entity = member.entity;
+                if (!entity.isValid()) {
+                    relocations.add(entity);
+                    continue;
+                }
+
+                Location location = entity.getLocation(scratchLocation);
+                if (location.getBlockX() >> 4 != bucket.chunkX || location.getBlockZ() >> 4 != bucket.chunkZ) {
+                    relocations.add(entity);
+                }
+                visitor.visit(member, location.getX(), location.getY(), location.getZ());
+                visited++;
+            }
+        }
+        applyRelocations();
+        return visited;
+    }
+
+    /**
+     * Re-checks the next few chunks of each world in round-robin order and
+     * re-buckets entities that have moved out of them. Call once per tick.
+     */
+    void sweep() {
+        relocations.clear();
+        for (WorldEntities tracked : worlds.values()) {
+            int bucketCount = tracked.buckets.size();
+            if (bucketCount == 0)
+                continue;
+
+            int checks = Math.min(SWEEP_CHUNKS_PER_TICK, bucketCount);
+            for (int n = 0; n < checks; n++) {
+                ChunkBucket bucket = tracked.buckets.get((tracked.sweepCursor + n) % bucketCount);
+                for (Member member : bucket.members) {
+                    Entity entity = member.entity;
+                    if (!entity.isValid()) {
+                        relocations.add(entity);
+                        continue;
+                    }
+                    Location location = entity.getLocation(scratchLocation);
+                    if (location.getBlockX() >> 4 != bucket.chunkX
+                            || location.getBlockZ() >> 4 != bucket.chunkZ) {
+                        relocations.add(entity);
+                    }
+                }
+            }
+            tracked.sweepCursor = (tracked.sweepCursor + checks) % bucketCount;
+        }
+        applyRelocations();
+    }
+
+    /**
+     * Consistency check: compares the registry with a full
+     * {@code world.getEntities()} scan. Expensive; meant for tests and the
+     * debug command, never the tick loop.
+     */
+    public @NotNull ConsistencyReport verify(@NotNull Server server) {
+        int scanned = 0;
+        int missing = 0;
+        int misplaced = 0;
+        Set<Integer> live = new HashSet<>();
+
+        for (World world : server.getWorlds()) {
+            for (Entity entity : world.getEntities()) {
+                if (entity instanceof Player)
+                    continue;
+                scanned++;
+                live.add(entity.getEntityId());
+
+                Member member = memberByEntity.get(entity.getEntityId());
+                if (member == null) {
+                    missing++;
+                } else {
+                    ChunkBucket bucket = member.bucket;
+                    Location location = entity.getLocation(scratchLocation);
+                    if (!bucket.worldId.equals(world.getUID())
+                            || location.getBlockX() >> 4 != bucket.chunkX
+                            || location.getBlockZ() >> 4 != bucket.chunkZ) {
+                        misplaced++;
+                    }
+                }
+            }
+        }
+
+        int stale = 0;
+        for (Integer id : memberByEntity.keySet()) {
+            if (!live.contains(id))
+                stale++;
+        }
+        return new ConsistencyReport(scanned, memberByEntity.size(), missing, stale, misplaced);
+    }
+
+    /**
+     * Result of {@link #verify}. {@code misplaced} entities are tracked but
+     * bucketed under a chunk they have since left - expected to be small and
+     * transient, corrected by capture and the sweep.
+     */
+    public record ConsistencyReport(int scanned, int tracked, int missing, int stale, int misplaced) {
+        public boolean isConsistent() {
+            return missing == 0 && stale == 0;
+        }
+    }
+
+    /** Tracks {@code entity} if it is not already tracked in its chunk; returns its member, or null. */
+    private @Nullable Member track(Entity entity) {
+        if (entity instanceof Player || !entity.isValid())
+            return null;
+
+        Location location = entity.getLocation(scratchLocation);
+        World world = location.getWorld();
+        int chunkX = location.getBlockX() >> 4;
+        int chunkZ = location.getBlockZ() >> 4;
+
+        Member member = memberByEntity.get(entity.getEntityId());
+        if (member != null) {
+            ChunkBucket current = member.bucket;
+            if (current.worldId.equals(world.getUID()) && current.chunkX == chunkX && current.chunkZ == chunkZ)
+                return member;
+            untrack(entity);
+        }
+
+        WorldEntities tracked = worlds.computeIfAbsent(world.getUID(), id -> new WorldEntities());
+        ChunkBucket bucket = tracked.chunks.get(Chunk.getChunkKey(chunkX, chunkZ));
+        if (bucket == null) {
+            bucket = new ChunkBucket(world.getUID(), chunkX, chunkZ);
+            tracked.chunks.put(Chunk.getChunkKey(chunkX, chunkZ), bucket);
+            bucket.index = tracked.buckets.size();
+            tracked.buckets.add(bucket);
+        }
+        member = new Member(entity, bucket, bucket.members.size());
+        bucket.members.add(member);
+        tracked.size++;
+        memberByEntity.put(entity.getEntityId(), member);
+        return member;
+    }
+
+    /** Stops tracking {@code entity}; returns the member it had, or null. */
+    private @Nullable Member untrack(Entity entity) {
+        Member member = memberByEntity.remove(entity.getEntityId());
+        if (member == null)
+            return null;
+
+        // Swap-remove keeps entity and bucket removal O(1)
+        ChunkBucket bucket = member.bucket;
+        Member lastMember = bucket.members.remove(bucket.members.size() - 1);
+        if (lastMember != member) {
+            bucket.members.set(member.index, lastMember);
+            lastMember.index = member.index;
+        }
+
+        WorldEntities tracked = worlds.get(bucket.worldId);
+        if (tracked == null)
+            return member;
+
+        tracked.size--;
+        if (bucket.members.isEmpty()) {
+            tracked.chunks.remove(Chunk.getChunkKey(bucket.chunkX, bucket.chunkZ));
+            ChunkBucket last = tracked.buckets.remove(tracked.buckets.size() - 1);
+            if (last != bucket) {
+                tracked.buckets.set(bucket.index, last);
+                last.index = bucket.index;
+            }
+        }
+        return member;
+    }
+
+    private void invalidateStack(Item item) {
+        Member member = memberByEntity.get(item.getEntityId());
+        if (member != null) {
+            member.stackLimit = 0;
+        }
+    }
+
+    private void applyRelocations() {
+        for (Entity entity : relocations) {
+            Member previous = untrack(entity);
+            Member moved = track(entity);
+            // The stack does not change with the chunk
+            if (previous != null && moved != null) {
+                moved.stackKey = previous.stackKey;
+                moved.stackLimit = previous.stackLimit;
+            }
+        }
+        relocations.clear();
+    }
+
+    private static final class WorldEntities {
+        final Map<Long, ChunkBucket> chunks = new HashMap<>();
+        final List<ChunkBucket> buckets = new ArrayList<>();
+        int size;
+        // Next bucket the rolling sweep re-checks
+        int sweepCursor;
+    }
+
+    private static final class ChunkBucket {
+        final UUID worldId;
+        final int chunkX;
+        final int chunkZ;
+        final List<Member> members = new ArrayList<>();
+        int index;
+
+        ChunkBucket(UUID worldId, int chunkX, int chunkZ) {
+            this.worldId = worldId;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+    }
+
+    /**
+     * A tracked entity and its slot in its bucket's member list, with the
+     * cached stack key of a dropped item.
+     */
+    static final class Member {
+        final Entity entity;
+        private final ChunkBucket bucket;
+        private int index;
+        // Stack key and max stack size; a limit of 0 means not read yet
+        private long stackKey;
+        private int stackLimit;
+
+        Member(Entity entity, ChunkBucket bucket, int index) {
+            this.entity = entity;
+            this.bucket = bucket;
+            this.index = index;
+        }
+
+        /**
+         * Material plus item meta hash of a dropped item's stack; equal keys
+         * are re-checked with {@code isSimilar} when a cluster is applied.
+         */
+        long stackKey() {
+            refreshStack();
+            return stackKey;
+        }
+
+        /** Max stack size of a dropped item's stack. */
+        int stackLimit() {
+            refreshStack();
+            return stackLimit;
+        }
+
+        private void refreshStack() {
+            if (stackLimit == 0 && entity instanceof Item item) {
+                ItemStack stack = item.getItemStack();
+                long metaHash = stack.hasItemMeta() ? stack.getItemMeta().hashCode() : 0;
+                stackKey = ((long) stack.getType().ordinal() << 32) | (metaHash & 0xFFFF_FFFFL);
+                stackLimit = stack.getMaxStackSize();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.cloudcraft.engine.threading;
+
+/**
+ * Packing and hashing for (world, cellX, cellZ) grid keys shared by the
+ * spatial indexes. 12 bits of world index and 26 bits per axis cover the
+ * full +-30M block world border even at 1-block cells.
+ */
+final class GridKeys {
+    static final long EMPTY = Long.MIN_VALUE;
+
+    private static final int CELL_BITS = 26;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+    private GridKeys() {
+    }
+
+    static long key(int world, int cellX, int cellZ) {
+        return ((long) world << (CELL_BITS * 2))
+                | ((cellX & CELL_MASK) << CELL_BITS)
+                | (cellZ & CELL_MASK);
+    }
+
+    /** Murmur3 finalizer step - spreads neighbouring cells across the table. */
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /** Power-of-two table that keeps {@code entries} between a quarter and half full. */
+    static int tableSizeFor(int entries) {
+        return Math.max(16, Integer.highestOneBit(Math.max(entries, 1)) << 2);
+    }
+}
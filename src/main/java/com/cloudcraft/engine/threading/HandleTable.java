@@ -0,0 +1,48 @@
+package com.cloudcraft.engine.threading;
+
+import org.bukkit.entity.Entity;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * Snapshot slot -> live entity handles, filled during capture so the apply
+ * phase can reach an entity directly instead of looping over every world
+ * calling {@code world.getEntity(uuid)}.
+ *
+ * Handles are weak: a buffer waiting to be applied never keeps an unloaded
+ * entity alive. Resolution checks {@link Entity#isValid()}, so an entity that
+ * died or unloaded between capture and apply resolves to null rather than a
+ * zombie handle. Slots keep their reference object from tick to tick, and a
+ * slot holding the same entity as last capture reuses it - since the
+ * registry walks entities in a stable order, steady state allocates nothing.
+ *
+ * Main thread only.
+ */
+final class HandleTable {
+    private WeakReference<Entity>[] handles = newArray(16);
+
+    void set(int slot, Entity entity) {
+        if (slot >= handles.length) {
+            handles = Arrays.copyOf(handles, Math.max(slot + 1, handles.length * 2));
+        }
+        WeakReference<Entity> existing = handles[slot];
+        if (existing == null || existing.get() != entity) {
+            handles[slot] = new WeakReference<>(entity);
+        }
+    }
+
+    /** Returns the live entity captured in {@code slot}, or null if it is gone. */
+    Entity resolve(int slot) {
+        if (slot < 0 || slot >= handles.length)
+            return null;
+        WeakReference<Entity> handle = handles[slot];
+        Entity entity = handle == null ? null : handle.get();
+        return entity != null && entity.isValid() ? entity : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static WeakReference<Entity>[] newArray(int size) {
+        return (WeakReference<Entity>[]) new WeakReference[size];
+    }
+}
@@ -0,0 +1,356 @@
+package com.cloudcraft.engine.threading;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Clusters of compatible stackables (dropped items, experience orbs) for a
+ * whole snapshot, so a flood collapses in one action per cluster instead of
+ * one pairwise merge per entity every few seconds.
+ *
+ * Two entities are linked when they have the same type and stack key and lie
+ * within their behavior's cluster radius; clusters are the transitive
+ * closure. Links are found like {@link PairJoin}'s candidates: a parallel
+ * sweep over occupied spatial hash cells joins each cell with itself and
+ * with the half of its neighbouring cells ahead of it, so stacks on either
+ * side of a cell boundary are linked once. The links are then unioned in
+ * chunk order, so the clusters are deterministic. Stacks that are already
+ * full are left out, and so are clusters whose amounts would not fit into
+ * fewer entities.
+ *
+ * A cluster is led by its lowest due member; the leader's cluster reads
+ * back through {@link #size} and {@link #member}, with the leader as member
+ * 0. Must run on a {@link java.util.concurrent.ForkJoinPool} worker;
+ * storage is reused across ticks.
+ */
+final class ItemClusters {
+    // Table slots per sweep task, and entities per classification task
+    private static final int SLOTS_PER_TASK = 1024;
+    private static final int ENTITIES_PER_TASK = 4096;
+    // Links emitted per entity from its own side of the sweep, and members
+    // folded per cluster; the rest wait for a later tick, keeping both the
+    // sweep and one apply bounded in a flood
+    private static final int MAX_LINKS_PER_ENTITY = 16;
+    private static final int MAX_CLUSTER_SIZE = 64;
+    // Freshly dropped stacks are left alone, as vanilla does
+    static final int MIN_AGE_TICKS = 10;
+
+    private SnapshotBuffer snapshot;
+    private SpatialHash spatialHash;
+    private BehaviorTable table;
+    private int ring;
+
+    // Per entity: whether it takes part, its type-folded stack key, and its
+    // union-find parent and next member in its set's chain
+    private boolean[] clusterable = new boolean[0];
+    private long[] keys = new long[0];
+    private int[] parent = new int[0];
+    private int[] next = new int[0];
+    private int[] tail = new int[0];
+
+    // Per entity, valid for cluster leaders only: offset and size of its member run
+    private int[] clusterOffset = new int[0];
+    private int[] clusterSize = new int[0];
+
+    private Chunk[] chunks = new Chunk[0];
+    private int[] members = new int[64];
+    private int memberCount;
+    private int clusterCount;
+
+    /** Clusters this tick's stackables; read them with {@link #size} and {@link #member}. */
+    void run(SnapshotBuffer snapshot, SpatialHash spatialHash, BehaviorTable table) {
+        int count = snapshot.size();
+        if (clusterSize.length < count) {
+            int capacity = Math.max(16, Integer.highestOneBit(Math.max(count, 1) - 1) << 1);
+            clusterable = new boolean[capacity];
+            keys = new long[capacity];
+            parent = new int[capacity];
+            next = new int[capacity];
+            tail = new int[capacity];
+            clusterOffset = new int[capacity];
+            clusterSize = new int[capacity];
+        }
+        Arrays.fill(clusterSize, 0, count, 0);
+        memberCount = 0;
+        clusterCount = 0;
+        if (table.maxClusterRadius <= 0)
+            return;
+
+        this.snapshot = snapshot;
+        this.spatialHash = spatialHash;
+        this.table = table;
+        this.ring = (int) Math.ceil(table.maxClusterRadius / spatialHash.cellSize());
+
+        // Classify every entity, then sweep cell pairs for links
+        new ClassifyTask(0, count).invoke();
+
+        int chunkCount = (spatialHash.tableLength() + SLOTS_PER_TASK - 1) / SLOTS_PER_TASK;
+        if (chunks.length < chunkCount) {
+            int previous = chunks.length;
+            chunks = Arrays.copyOf(chunks, chunkCount);
+            for (int c = previous; c < chunkCount; c++) {
+                chunks[c] = new Chunk();
+            }
+        }
+        new SweepTask(0, chunkCount).invoke();
+
+        for (int c = 0; c < chunkCount; c++) {
+            Chunk chunk = chunks[c];
+            for (int l = 0; l < chunk.count; l++) {
+                union(chunk.first[l], chunk.second[l]);
+            }
+        }
+        chain(count);
+        for (int slot = 0; slot < count; slot++) {
+            if (clusterable[slot] && parent[slot] == slot && next[slot] >= 0) {
+                emit(slot);
+            }
+        }
+
+        this.snapshot = null;
+        this.spatialHash = null;
+        this.table = null;
+    }
+
+    /** Size of the cluster {@code slot} leads, itself included, or 0. */
+    int size(int slot) {
+        return clusterSize[slot];
+    }
+
+    /** Member {@code i} of the cluster {@code slot} leads; member 0 is the leader. */
+    int member(int slot, int i) {
+        return members[clusterOffset[slot] + i];
+    }
+
+    /**
+     * Raw storage holding the members of the cluster {@code slot} leads, at
+     * {@code [memberOffset(slot), memberOffset(slot) + size(slot))}.
+     */
+    int[] memberArray(int slot) {
+        return members;
+    }
+
+    int memberOffset(int slot) {
+        return clusterOffset[slot];
+    }
+
+    /** Clusters found by the last run. */
+    int clusterCount() {
+        return clusterCount;
+    }
+
+    private void classify(int from, int to) {
+        for (int slot = from; slot < to; slot++) {
+            int type = snapshot.typeOrdinal(slot);
+            boolean member = table.clusterRadii[type] > 0
+                    && snapshot.ticksLived(slot) > MIN_AGE_TICKS
+                    && snapshot.amount(slot) > 0
+                    && snapshot.amount(slot) < snapshot.stackLimit(slot);
+            clusterable[slot] = member;
+            parent[slot] = slot;
+            if (member) {
+                // Type folded into the key; equal keys are confirmed exactly when linking
+                keys[slot] = snapshot.stackKey(slot) * 31 + type;
+            }
+        }
+    }
+
+    private void sweep(int fromSlot, int toSlot, Chunk chunk) {
+        chunk.count = 0;
+        for (int cell = fromSlot; cell < toSlot; cell++) {
+            int cellCount = spatialHash.cellCount(cell);
+            if (cellCount == 0)
+                continue;
+            int start = spatialHash.cellStart(cell);
+            int world = spatialHash.cellWorld(cell);
+            int cellX = spatialHash.cellX(cell);
+            int cellZ = spatialHash.cellZ(cell);
+
+            for (int n = start; n < start + cellCount; n++) {
+                int self = spatialHash.cellEntity(n);
+                if (!clusterable[self])
+                    continue;
+                int budget = MAX_LINKS_PER_ENTITY;
+
+                // Same cell: only later entities, so each link is seen once
+                budget = link(self, n + 1, start + cellCount, chunk, budget);
+
+                // Half stencil: cells ahead in x, or in the same column ahead in z
+                for (int dx = 0; dx <= ring && budget > 0; dx++) {
+                    for (int dz = dx == 0 ? 1 : -ring; dz <= ring && budget > 0; dz++) {
+                        int other = spatialHash.findCell(world, cellX + dx, cellZ + dz);
+                        if (other >= 0) {
+                            int otherStart = spatialHash.cellStart(other);
+                            budget = link(self, otherStart, otherStart + spatialHash.cellCount(other), chunk, budget);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Emits links between {@code self} and cell run [from, to); returns the remaining budget. */
+    private int link(int self, int from, int to, Chunk chunk, int budget) {
+        int type = snapshot.typeOrdinal(self);
+        long key = keys[self];
+        long stackKey = snapshot.stackKey(self);
+        double radius = table.clusterRadii[type];
+        double radiusSq = radius * radius;
+        double x = snapshot.x(self);
+        double y = snapshot.y(self);
+        double z = snapshot.z(self);
+
+        for (int n = from; n < to && budget > 0; n++) {
+            int other = spatialHash.cellEntity(n);
+            if (!clusterable[other] || keys[other] != key)
+                continue;
+            double dx = snapshot.x(other) - x;
+            double dy = snapshot.y(other) - y;
+            double dz = snapshot.z(other) - z;
+            if (dx * dx + dy * dy + dz * dz <= radiusSq
+                    && snapshot.typeOrdinal(other) == type
+                    && snapshot.stackKey(other) == stackKey) {
+                chunk.add(self, other);
+                budget--;
+            }
+        }
+        return budget;
+    }
+
+    /** Chains each set's members in slot order behind its root, the set's lowest slot. */
+    private void chain(int count) {
+        for (int slot = 0; slot < count; slot++) {
+            if (!clusterable[slot])
+                continue;
+            int root = find(slot);
+            next[slot] = -1;
+            if (root != slot) {
+                next[tail[root]] = slot;
+            }
+            tail[root] = slot;
+        }
+    }
+
+    /** Emits the set chained from {@code root} if it is worth folding. */
+    private void emit(int root) {
+        // Leader: the lowest due slot; without one, nobody acts on it this tick
+        int leader = -1;
+        for (int slot = root; slot >= 0; slot = next[slot]) {
+            if (table.isDue(snapshot, slot)) {
+                leader = slot;
+                break;
+            }
+        }
+        if (leader < 0)
+            return;
+
+        // Members and their amounts come from the same walk: the leader, then
+        // the first other members up to the cap
+        ensureCapacity(memberCount + MAX_CLUSTER_SIZE);
+        int offset = memberCount;
+        int size = 1;
+        long amount = snapshot.amount(leader);
+        members[offset] = leader;
+        for (int slot = root; slot >= 0 && size < MAX_CLUSTER_SIZE; slot = next[slot]) {
+            if (slot != leader) {
+                members[offset + size++] = slot;
+                amount += snapshot.amount(slot);
+            }
+        }
+
+        // Folding must leave fewer entities than it started with
+        int limit = snapshot.stackLimit(leader);
+        if (size < 2 || (amount + limit - 1) / limit >= size)
+            return;
+
+        clusterOffset[leader] = offset;
+        clusterSize[leader] = size;
+        memberCount += size;
+        clusterCount++;
+    }
+
+    private void ensureCapacity(int count) {
+        if (count > members.length) {
+            members = Arrays.copyOf(members, Math.max(count, members.length * 2));
+        }
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]]; // path halving
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /** Links the two sets; the lower slot stays root, so a set's root is its lowest slot. */
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    /** One sweep task's links. */
+    private static final class Chunk {
+        private int[] first = new int[64];
+        private int[] second = new int[64];
+        private int count;
+
+        private void add(int a, int b) {
+            if (count == first.length) {
+                int capacity = count * 2;
+                first = Arrays.copyOf(first, capacity);
+                second = Arrays.copyOf(second, capacity);
+            }
+            first[count] = a;
+            second[count] = b;
+            count++;
+        }
+    }
+
+    private final class ClassifyTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        ClassifyTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ENTITIES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ClassifyTask(from, mid), new ClassifyTask(mid, to));
+                return;
+            }
+            classify(from, to);
+        }
+    }
+
+    /** Sweeps chunks [from, to) of the hash table, halving like the region tasks. */
+    private final class SweepTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        SweepTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SweepTask(from, mid), new SweepTask(mid, to));
+                return;
+            }
+            int fromSlot = from * SLOTS_PER_TASK;
+            sweep(fromSlot, Math.min(fromSlot + SLOTS_PER_TASK, spatialHash.tableLength()), chunks[from]);
+        }
+    }
+}
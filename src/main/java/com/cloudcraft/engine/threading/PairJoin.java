@@ -0,0 +1,310 @@
+package com.cloudcraft.engine.threading;
+
+import com.cloudcraft.engine.ai.EntityBehavior;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Batched one-to-one pairing (breeding, merging) for a whole snapshot.
+ *
+ * Instead of every due entity running its own radius query and picking the
+ * first mate it sees - so two cows can both pick the same third cow, and a
+ * pair is found twice, once from each side - the join finds every candidate
+ * pair exactly once with a sweep over occupied spatial hash cells: each cell
+ * is joined with itself and with the half of its neighbouring cells that lie
+ * "ahead" of it, so a cell pair is never visited from both ends. The sweep
+ * is split into fixed chunks of table slots, run in parallel, each writing
+ * into its own pair buffer.
+ *
+ * Candidates are then matched greedily, closest first: a pair is taken only
+ * if neither member is taken yet, so each entity ends up in at most one
+ * pair. Chunks are concatenated in table order and ties broken by that
+ * order, so the matching is deterministic.
+ *
+ * Must run on a {@link java.util.concurrent.ForkJoinPool} worker; storage is
+ * reused across ticks.
+ */
+final class PairJoin {
+    // Table slots per sweep task, and entities per classification task
+    private static final int SLOTS_PER_TASK = 1024;
+    private static final int ENTITIES_PER_TASK = 4096;
+    // Candidates emitted per entity from its own side of the sweep; bounds
+    // the work in dense pens where everything is within reach of everything
+    private static final int MAX_CANDIDATES_PER_ENTITY = 16;
+
+    private static final byte PAIRABLE = 1;
+    private static final byte DUE = 2;
+    private static final byte MATCHED = 4;
+
+    private final RegionContext probe = new RegionContext();
+
+    private SnapshotBuffer snapshot;
+    private SpatialHash spatialHash;
+    private BehaviorTable table;
+    private int ring;
+
+    // Per entity: state bits, and the partner reported to the pair's leader
+    private byte[] state = new byte[0];
+    private int[] partner = new int[0];
+
+    // Per sweep chunk candidate buffers, then all candidates in chunk order
+    private Chunk[] chunks = new Chunk[0];
+    private int[] pairFirst = new int[0];
+    private int[] pairSecond = new int[0];
+    private long[] pairKeys = new long[0];
+    private int candidateCount;
+    private int pairCount;
+
+    /** Finds and matches this tick's pairs; read them with {@link #partner}. */
+    void run(SnapshotBuffer snapshot, SpatialHash spatialHash, BehaviorTable table) {
+        int count = snapshot.size();
+        if (state.length < count) {
+            int capacity = Math.max(16, Integer.highestOneBit(Math.max(count, 1) - 1) << 1);
+            state = new byte[capacity];
+            partner = new int[capacity];
+        }
+        candidateCount = 0;
+        pairCount = 0;
+        if (table.maxPairRadius <= 0) {
+            Arrays.fill(partner, 0, count, -1);
+            return;
+        }
+
+        this.snapshot = snapshot;
+        this.spatialHash = spatialHash;
+        this.table = table;
+        this.ring = (int) Math.ceil(table.maxPairRadius / spatialHash.cellSize());
+        probe.bind(snapshot);
+
+        // Classify every entity, then sweep cell pairs
+        new ClassifyTask(0, count).invoke();
+
+        int chunkCount = (spatialHash.tableLength() + SLOTS_PER_TASK - 1) / SLOTS_PER_TASK;
+        if (chunks.length < chunkCount) {
+            int previous = chunks.length;
+            chunks = Arrays.copyOf(chunks, chunkCount);
+            for (int c = previous; c < chunkCount; c++) {
+                chunks[c] = new Chunk();
+            }
+        }
+        new SweepTask(0, chunkCount).invoke();
+
+        collect(chunkCount);
+        match();
+
+        probe.bind(null);
+        this.snapshot = null;
+        this.spatialHash = null;
+        this.table = null;
+    }
+
+    /**
+     * Partner of {@code slot} from the last run if {@code slot} leads its
+     * pair, otherwise -1. The leader is the member that is due this tick, or
+     * the lower slot if both are.
+     */
+    int partner(int slot) {
+        return partner[slot];
+    }
+
+    /** Candidate pairs found by the last run. */
+    int candidateCount() {
+        return candidateCount;
+    }
+
+    /** Pairs matched by the last run. */
+    int pairCount() {
+        return pairCount;
+    }
+
+    private void classify(int from, int to) {
+        for (int slot = from; slot < to; slot++) {
+            partner[slot] = -1;
+            int type = snapshot.typeOrdinal(slot);
+            EntityBehavior behavior = table.behaviors[type];
+            byte bits = 0;
+            if (behavior != null && table.pairRadii[type] > 0 && behavior.isPairable(probe, slot)) {
+                bits = PAIRABLE;
+                if (table.isDue(snapshot, slot))
+                    bits |= DUE;
+            }
+            state[slot] = bits;
+        }
+    }
+
+    private void sweep(int fromSlot, int toSlot, Chunk chunk) {
+        chunk.count = 0;
+        for (int cell = fromSlot; cell < toSlot; cell++) {
+            int cellCount = spatialHash.cellCount(cell);
+            if (cellCount == 0)
+                continue;
+            int start = spatialHash.cellStart(cell);
+            int world = spatialHash.cellWorld(cell);
+            int cellX = spatialHash.cellX(cell);
+            int cellZ = spatialHash.cellZ(cell);
+
+            for (int n = start; n < start + cellCount; n++) {
+                int self = spatialHash.cellEntity(n);
+                if ((state[self] & PAIRABLE) == 0)
+                    continue;
+                int budget = MAX_CANDIDATES_PER_ENTITY;
+
+                // Same cell: only later entities, so each pair is seen once
+                budget = join(self, n + 1, start + cellCount, chunk, budget);
+
+                // Half stencil: cells ahead in x, or in the same column ahead in z
+                for (int dx = 0; dx <= ring && budget > 0; dx++) {
+                    for (int dz = dx == 0 ? 1 : -ring; dz <= ring && budget > 0; dz++) {
+                        int other = spatialHash.findCell(world, cellX + dx, cellZ + dz);
+                        if (other >= 0) {
+                            int otherStart = spatialHash.cellStart(other);
+                            budget = join(self, otherStart, otherStart + spatialHash.cellCount(other), chunk, budget);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Emits candidates between {@code self} and cell run [from, to); returns the remaining budget. */
+    private int join(int self, int from, int to, Chunk chunk, int budget) {
+        int type = snapshot.typeOrdinal(self);
+        double radius = table.pairRadii[type];
+        double radiusSq = radius * radius;
+        double x = snapshot.x(self);
+        double y = snapshot.y(self);
+        double z = snapshot.z(self);
+
+        for (int n = from; n < to && budget > 0; n++) {
+            int other = spatialHash.cellEntity(n);
+            // Same type, both pairable, and at least one of them due to act on it
+            if (snapshot.typeOrdinal(other) != type
+                    || (state[other] & PAIRABLE) == 0
+                    || ((state[self] | state[other]) & DUE) == 0)
+                continue;
+            double dx = snapshot.x(other) - x;
+            double dy = snapshot.y(other) - y;
+            double dz = snapshot.z(other) - z;
+            double distanceSq = dx * dx + dy * dy + dz * dz;
+            if (distanceSq <= radiusSq) {
+                chunk.add(self, other, (float) distanceSq);
+                budget--;
+            }
+        }
+        return budget;
+    }
+
+    /** Concatenates the chunk buffers in chunk order, keyed for a closest-first sort. */
+    private void collect(int chunkCount) {
+        int total = 0;
+        for (int c = 0; c < chunkCount; c++) {
+            total += chunks[c].count;
+        }
+        if (pairKeys.length < total) {
+            int capacity = Math.max(total, pairKeys.length * 2);
+            pairFirst = new int[capacity];
+            pairSecond = new int[capacity];
+            pairKeys = new long[capacity];
+        }
+
+        // Sort key: distance (non-negative float bits order like the floats) | pair index
+        int index = 0;
+        for (int c = 0; c < chunkCount; c++) {
+            Chunk chunk = chunks[c];
+            for (int p = 0; p < chunk.count; p++, index++) {
+                pairFirst[index] = chunk.first[p];
+                pairSecond[index] = chunk.second[p];
+                pairKeys[index] = ((long) Float.floatToRawIntBits(chunk.distanceSq[p]) << 32) | index;
+            }
+        }
+        candidateCount = total;
+    }
+
+    /** Greedy closest-first matching: take a pair only if both members are free. */
+    private void match() {
+        Arrays.sort(pairKeys, 0, candidateCount);
+        for (int n = 0; n < candidateCount; n++) {
+            int index = (int) pairKeys[n];
+            int first = pairFirst[index];
+            int second = pairSecond[index];
+            if (((state[first] | state[second]) & MATCHED) != 0)
+                continue;
+            state[first] |= MATCHED;
+            state[second] |= MATCHED;
+            pairCount++;
+
+            // Report the pair once, to the member that decides this tick
+            boolean firstDue = (state[first] & DUE) != 0;
+            boolean secondDue = (state[second] & DUE) != 0;
+            if (firstDue && (!secondDue || first < second)) {
+                partner[first] = second;
+            } else {
+                partner[second] = first;
+            }
+        }
+    }
+
+    /** One sweep task's candidates. */
+    private static final class Chunk {
+        private int[] first = new int[64];
+        private int[] second = new int[64];
+        private float[] distanceSq = new float[64];
+        private int count;
+
+        private void add(int a, int b, float d) {
+            if (count == first.length) {
+                int capacity = count * 2;
+                first = Arrays.copyOf(first, capacity);
+                second = Arrays.copyOf(second, capacity);
+                distanceSq = Arrays.copyOf(distanceSq, capacity);
+            }
+            first[count] = a;
+            second[count] = b;
+            distanceSq[count] = d;
+            count++;
+        }
+    }
+
+    private final class ClassifyTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        ClassifyTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ENTITIES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ClassifyTask(from, mid), new ClassifyTask(mid, to));
+                return;
+            }
+            classify(from, to);
+        }
+    }
+
+    /** Sweeps chunks [from, to) of the hash table, halving like the region tasks. */
+    private final class SweepTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        SweepTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SweepTask(from, mid), new SweepTask(mid, to));
+                return;
+            }
+            int fromSlot = from * SLOTS_PER_TASK;
+            sweep(fromSlot, Math.min(fromSlot + SLOTS_PER_TASK, spatialHash.tableLength()), chunks[from]);
+        }
+    }
+}
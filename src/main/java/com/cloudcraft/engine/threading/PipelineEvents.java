@@ -0,0 +1,136 @@
+package com.cloudcraft.engine.threading;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the snapshot-process-apply pipeline, so
+ * CloudCraft work shows up by phase, tick and region in a recording instead
+ * of as anonymous worker frames.
+ *
+ * Every event is disabled by default and only recorded with the bundled
+ * {@code cloudcraft.jfc} settings (or another profile enabling
+ * {@code cloudcraft.*}). Call sites use the usual begin / shouldCommit /
+ * commit pattern and fill in fields only when committing, so a disabled
+ * event costs a check the JIT folds away.
+ */
+final class PipelineEvents {
+    private static final String CATEGORY = "CloudCraft";
+
+    private PipelineEvents() {
+    }
+
+    @Name("cloudcraft.Capture")
+    @Label("Snapshot Capture")
+    @Description("Main-thread capture of players and nearby entities into a snapshot")
+    @Category({CATEGORY, "Pipeline"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Capture extends Event {
+        @Label("Tick")
+        int tick;
+
+        @Label("Players")
+        int players;
+
+        @Label("Entities")
+        @Description("Entities captured into the snapshot")
+        int entities;
+
+        @Label("Active Entities")
+        @Description("Captured entities whose AI is due this tick")
+        int active;
+    }
+
+    @Name("cloudcraft.Process")
+    @Label("Snapshot Processing")
+    @Description("Asynchronous processing of one snapshot, from spatial index to sealed decisions")
+    @Category({CATEGORY, "Pipeline"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Process extends Event {
+        @Label("Source Tick")
+        @Description("Tick the snapshot was captured in")
+        int sourceTick;
+
+        @Label("Entities")
+        int entities;
+
+        @Label("Regions")
+        int regions;
+
+        @Label("Decisions")
+        int decisions;
+
+        @Label("Cancelled")
+        @Description("Cancelled by the watchdog; its decisions were discarded")
+        boolean cancelled;
+    }
+
+    @Name("cloudcraft.Region")
+    @Label("Region Processing")
+    @Description("One region of a snapshot decided on a region pool worker")
+    @Category({CATEGORY, "Pipeline"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Region extends Event {
+        @Label("Source Tick")
+        int sourceTick;
+
+        @Label("Region")
+        int region;
+
+        @Label("Entities")
+        @Description("Entities in the region, due or not")
+        int entities;
+
+        @Label("Decisions")
+        int decisions;
+    }
+
+    @Name("cloudcraft.Apply")
+    @Label("Decision Apply")
+    @Description("Main-thread application of decided commands within the apply budget")
+    @Category({CATEGORY, "Pipeline"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Apply extends Event {
+        @Label("Tick")
+        int tick;
+
+        @Label("Source Tick")
+        @Description("Tick the applied batch was captured in")
+        int sourceTick;
+
+        @Label("Applied")
+        int applied;
+
+        @Label("Remaining")
+        @Description("Decisions of the batch left for later ticks")
+        int remaining;
+
+        @Label("Dropped")
+        @Description("Leftover decisions discarded since the previous apply, superseded or recaptured")
+        int dropped;
+    }
+
+    @Name("cloudcraft.Decision")
+    @Label("AI Decision")
+    @Description("One behavior's decision for one entity; only the decisions also sampled for latency metrics")
+    @Category({CATEGORY, "AI"})
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Decision extends Event {
+        @Label("Entity Type")
+        String entityType;
+
+        @Label("Acted")
+        @Description("Whether the decision produced any commands")
+        boolean acted;
+    }
+}
@@ -0,0 +1,249 @@
+package com.cloudcraft.engine.threading;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Per-tick snapshot of online players, bucketed by world and chunk.
+ *
+ * Each player is registered in every chunk its coverage radius reaches
+ * (at most 9x9 chunks for the 64-block processing radius), so "is this
+ * position near any player" becomes one chunk lookup plus a squared-distance
+ * check against the handful of players covering that chunk - constant time
+ * per entity instead of one {@code Location.distance} sqrt per player.
+ *
+ * The same buckets answer nearest-player queries for hostile targeting, as
+ * long as the query radius does not exceed the coverage radius. An instance
+ * is filled on the main thread and is read-only once handed to the async
+ * phase; storage is reused between ticks.
+ */
+final class PlayerIndex {
+    private static final int CHUNK_SHIFT = 4;
+
+    // Player snapshots
+    private UUID[] ids = new UUID[16];
+    private int[] worlds = new int[16];
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private double[] zs = new double[16];
+    private boolean[] targetable = new boolean[16];
+    private int size;
+
+    // Chunk key -> [start, start + count) in chunkPlayers
+    private long[] tableKeys = new long[0];
+    private int[] tableStart = new int[0];
+    private int[] tableCount = new int[0];
+    private int tableMask;
+    private int[] chunkPlayers = new int[0];
+
+    private double coverageRadius;
+    private double coverageRadiusSq;
+
+    void clear() {
+        Arrays.fill(ids, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Adds one player and returns its slot. {@code targetable} marks players
+     * hostile mobs may pick as a target (alive, survival or adventure).
+     */
+    int add(UUID id, int world, double x, double y, double z, boolean targetable) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            worlds = Arrays.copyOf(worlds, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            this.targetable = Arrays.copyOf(this.targetable, capacity);
+        }
+        ids[size] = id;
+        worlds[size] = world;
+        xs[size] = x;
+        ys[size] = y;
+        zs[size] = z;
+        this.targetable[size] = targetable;
+        return size++;
+    }
+
+    /**
+     * Buckets the added players into every chunk within {@code radius}.
+     * Must be called after the last {@link #add} and before any query.
+     */
+    void build(double radius) {
+        this.coverageRadius = radius;
+        this.coverageRadiusSq = radius * radius;
+
+        // Two passes over the same chunk ranges: count, then scatter
+        int entries = 0;
+        for (int p = 0; p < size; p++) {
+            int spanX = chunk(xs[p] + radius) - chunk(xs[p] - radius) + 1;
+            int spanZ = chunk(zs[p] + radius) - chunk(zs[p] - radius) + 1;
+            entries += spanX * spanZ;
+        }
+
+        int tableSize = GridKeys.tableSizeFor(entries);
+        if (tableKeys.length < tableSize) {
+            tableKeys = new long[tableSize];
+            tableStart = new int[tableSize];
+            tableCount = new int[tableSize];
+            tableMask = tableSize - 1;
+        }
+        if (chunkPlayers.length < entries) {
+            chunkPlayers = new int[Math.max(entries, chunkPlayers.length * 2)];
+        }
+        Arrays.fill(tableKeys, GridKeys.EMPTY);
+        Arrays.fill(tableCount, 0);
+
+        for (int p = 0; p < size; p++) {
+            for (int cx = chunk(xs[p] - radius); cx <= chunk(xs[p] + radius); cx++) {
+                for (int cz = chunk(zs[p] - radius); cz <= chunk(zs[p] + radius); cz++) {
+                    tableCount[slotFor(GridKeys.key(worlds[p], cx, cz), true)]++;
+                }
+            }
+        }
+
+        int offset = 0;
+        for (int slot = 0; slot < tableKeys.length; slot++) {
+            tableStart[slot] = offset;
+            offset += tableCount[slot];
+        }
+
+        Arrays.fill(tableCount, 0);
+        for (int p = 0; p < size; p++) {
+            for (int cx = chunk(xs[p] - radius); cx <= chunk(xs[p] + radius); cx++) {
+                for (int cz = chunk(zs[p] - radius); cz <= chunk(zs[p] + radius); cz++) {
+                    int slot = slotFor(GridKeys.key(worlds[p], cx, cz), false);
+                    chunkPlayers[tableStart[slot] + tableCount[slot]++] = p;
+                }
+            }
+        }
+    }
+
+    /**
+     * True when any player in {@code world} is within the coverage radius
+     * of the position.
+     */
+    boolean isNearAny(int world, double x, double y, double z) {
+        int slot = slotFor(GridKeys.key(world, chunk(x), chunk(z)), false);
+        if (slot < 0)
+            return false;
+
+        int end = tableStart[slot] + tableCount[slot];
+        for (int n = tableStart[slot]; n < end; n++) {
+            if (distanceSq(chunkPlayers[n], x, y, z) <= coverageRadiusSq)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * True when some player's coverage radius reaches into the chunk. Lets
+     * capture skip whole chunks before looking at their entities.
+     */
+    boolean coversChunk(int world, int chunkX, int chunkZ) {
+        return slotFor(GridKeys.key(world, chunkX, chunkZ), false) >= 0;
+    }
+
+    /**
+     * Returns the closest targetable player within {@code radius}, or -1.
+     * {@code radius} must not exceed the coverage radius.
+     */
+    int nearestTargetable(int world, double x, double y, double z, double radius) {
+        if (radius > coverageRadius)
+            throw new IllegalArgumentException("radius " + radius + " exceeds coverage " + coverageRadius);
+
+        int slot = slotFor(GridKeys.key(world, chunk(x), chunk(z)), false);
+        if (slot < 0)
+            return -1;
+
+        int best = -1;
+        double bestSq = radius * radius;
+        int end = tableStart[slot] + tableCount[slot];
+        for (int n = tableStart[slot]; n < end; n++) {
+            int player = chunkPlayers[n];
+            if (!targetable[player])
+                continue;
+            double distSq = distanceSq(player, x, y, z);
+            if (distSq <= bestSq) {
+                best = player;
+                bestSq = distSq;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Squared distance to the closest player of any mode within the coverage
+     * radius, or {@link Double#POSITIVE_INFINITY} if there is none.
+     */
+    double nearestDistanceSq(int world, double x, double y, double z) {
+        int slot = slotFor(GridKeys.key(world, chunk(x), chunk(z)), false);
+        if (slot < 0)
+            return Double.POSITIVE_INFINITY;
+
+        double bestSq = Double.POSITIVE_INFINITY;
+        int end = tableStart[slot] + tableCount[slot];
+        for (int n = tableStart[slot]; n < end; n++) {
+            bestSq = Math.min(bestSq, distanceSq(chunkPlayers[n], x, y, z));
+        }
+        return bestSq;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Radius passed to the last {@link #build}; the limit for nearest-player queries. */
+    double coverageRadius() {
+        return coverageRadius;
+    }
+
+    UUID id(int player) {
+        return ids[player];
+    }
+
+    int world(int player) {
+        return worlds[player];
+    }
+
+    double x(int player) {
+        return xs[player];
+    }
+
+    double y(int player) {
+        return ys[player];
+    }
+
+    double z(int player) {
+        return zs[player];
+    }
+
+    double distanceSq(int player, double x, double y, double z) {
+        double dx = xs[player] - x;
+        double dy = ys[player] - y;
+        double dz = zs[player] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static int chunk(double coordinate) {
+        return (int) Math.floor(coordinate) >> CHUNK_SHIFT;
+    }
+
+    private int slotFor(long key, boolean insert) {
+        int slot = (int) GridKeys.mix(key) & tableMask;
+        while (true) {
+            long existing = tableKeys[slot];
+            if (existing == key)
+                return slot;
+            if (existing == GridKeys.EMPTY) {
+                if (!insert)
+                    return -1;
+                tableKeys[slot] = key;
+                return slot;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+    }
+}
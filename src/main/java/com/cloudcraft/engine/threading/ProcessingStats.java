@@ -0,0 +1,365 @@
+package com.cloudcraft.engine.threading;
+
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
+import org.bukkit.entity.EntityType;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded processing statistics for {@code /ccdebug}: counts per entity
+ * type, the busiest chunks of the last processed snapshot, and per-entity
+ * detail for a fixed sample of entities.
+ *
+ * Everything is recorded by the worker that processed the snapshot, after
+ * its decisions are sealed, so the main thread pays nothing per decision.
+ * Per-type counters are primitive and cumulative; chunk counts are
+ * aggregated in a reused primitive table and only the
+ * {@value #MAX_CHUNKS} busiest are published, into one of two reused
+ * batches, so a steady-state batch allocates nothing; the records
+ * {@code /ccdebug} reads are built when it asks. Entity detail covers one
+ * entity in {@value #SAMPLE_EVERY}, chosen by id so the same entities stay
+ * sampled, at most {@value #MAX_SAMPLES} at once; samples are evicted when
+ * their entity leaves its world, or, once the sample is full, when their
+ * entity has not been captured for {@value #STALE_TICKS} ticks.
+ */
+public final class ProcessingStats implements Listener {
+    /** One entity in this many gets per-entity detail. */
+    public static final int SAMPLE_EVERY = 64;
+    static final int MAX_SAMPLES = 1024;
+    static final int MAX_CHUNKS = 256;
+    // Once full, samples not captured for this long make room for new ones
+    private static final int STALE_TICKS = 6000;
+
+    private static final EntityType[] TYPES = EntityType.values();
+
+    // Cumulative per type, indexed by ordinal
+    private final AtomicLongArray capturedByType = new AtomicLongArray(TYPES.length);
+    private final AtomicLongArray decidedByType = new AtomicLongArray(TYPES.length);
+
+    private final ConcurrentHashMap<UUID, EntitySample> samples = new ConcurrentHashMap<>();
+    // Published batches alternate, so the one being written is never the
+    // one readers see; a reader that still holds it makes the worker wait
+    private final Batch[] batches = {new Batch(), new Batch()};
+    private volatile Batch lastBatch = batches[1];
+
+    // Worker scratch: per-type counts of one snapshot and an open-addressing
+    // table of chunk keys, with entity and decision counts per chunk
+    private final int[] batchCaptured = new int[TYPES.length];
+    private final int[] batchDecided = new int[TYPES.length];
+    private long[] chunkKeys = new long[64];
+    private int[] chunkXs = new int[64];
+    private int[] chunkZs = new int[64];
+    private int[] chunkWorlds = new int[64];
+    private int[] chunkEntities = new int[64];
+    private int[] chunkDecisions = new int[64];
+    private int[] chunkOrder = new int[64];
+    private int chunkCount;
+    // Chunk selection keys: entities << 32 | table index
+    private long[] chunkRanks = new long[64];
+
+    /**
+     * Records one processed snapshot and its sealed decisions. Called by the
+     * worker that processed it; never concurrently with itself.
+     */
+    void record(SnapshotBuffer snapshot, CommandBuffer decisions) {
+        int count = snapshot.size();
+        Arrays.fill(batchCaptured, 0);
+        Arrays.fill(batchDecided, 0);
+        prepareChunks(count);
+
+        for (int slot = 0; slot < count; slot++) {
+            batchCaptured[snapshot.typeOrdinal(slot)]++;
+            chunkEntities[chunkOf(snapshot, slot)]++;
+        }
+        for (int n = 0; n < decisions.size(); n++) {
+            int slot = decisions.slot(n);
+            batchDecided[snapshot.typeOrdinal(slot)]++;
+            chunkDecisions[chunkOf(snapshot, slot)]++;
+        }
+        for (int t = 0; t < TYPES.length; t++) {
+            if (batchCaptured[t] > 0) {
+                capturedByType.addAndGet(t, batchCaptured[t]);
+            }
+            if (batchDecided[t] > 0) {
+                decidedByType.addAndGet(t, batchDecided[t]);
+            }
+        }
+        recordSamples(snapshot, decisions);
+
+        Batch batch = batches[lastBatch == batches[0] ? 1 : 0];
+        synchronized (batch) {
+            batch.tick = snapshot.tick();
+            batch.entities = count;
+            batch.decisions = decisions.size();
+            System.arraycopy(batchCaptured, 0, batch.captured, 0, TYPES.length);
+            System.arraycopy(batchDecided, 0, batch.decided, 0, TYPES.length);
+            publishBusiestChunks(batch);
+        }
+        lastBatch = batch;
+    }
+
+    private void recordSamples(SnapshotBuffer snapshot, CommandBuffer decisions) {
+        int tick = snapshot.tick();
+        if (samples.size() >= MAX_SAMPLES) {
+            samples.values().removeIf(sample -> tick - sample.lastCaptured > STALE_TICKS);
+        }
+        for (int slot = 0; slot < snapshot.size(); slot++) {
+            if (isSampled(snapshot.uuidMost(slot), snapshot.uuidLeast(slot))) {
+                EntitySample sample = samples.get(snapshot.uuid(slot));
+                if (sample == null && samples.size() < MAX_SAMPLES) {
+                    sample = new EntitySample(snapshot.uuid(slot), snapshot.type(slot));
+                    samples.put(sample.id, sample);
+                }
+                if (sample != null) {
+                    sample.world = snapshot.world(slot);
+                    sample.chunkX = (int) Math.floor(snapshot.x(slot)) >> 4;
+                    sample.chunkZ = (int) Math.floor(snapshot.z(slot)) >> 4;
+                    sample.lastCaptured = tick;
+                    sample.captures++;
+                }
+            }
+        }
+        for (int n = 0; n < decisions.size(); n++) {
+            int slot = decisions.slot(n);
+            if (isSampled(snapshot.uuidMost(slot), snapshot.uuidLeast(slot))) {
+                EntitySample sample = samples.get(snapshot.uuid(slot));
+                if (sample != null) {
+                    sample.decisions++;
+                    sample.lastDecided = tick;
+                }
+            }
+        }
+    }
+
+    private static boolean isSampled(long idMost, long idLeast) {
+        return Math.floorMod(GridKeys.mix(idMost ^ idLeast), SAMPLE_EVERY) == 0;
+    }
+
+    private void prepareChunks(int entities) {
+        int size = GridKeys.tableSizeFor(entities);
+        if (chunkKeys.length < size) {
+            chunkKeys = new long[size];
+            chunkXs = new int[size];
+            chunkZs = new int[size];
+            chunkWorlds = new int[size];
+            chunkEntities = new int[size];
+            chunkDecisions = new int[size];
+            chunkOrder = new int[size];
+            chunkRanks = new long[size];
+        }
+        Arrays.fill(chunkKeys, GridKeys.EMPTY);
+        Arrays.fill(chunkEntities, 0);
+        Arrays.fill(chunkDecisions, 0);
+        chunkCount = 0;
+    }
+
+    /** Table index of the slot's chunk, inserting it on first sight. */
+    private int chunkOf(SnapshotBuffer snapshot, int slot) {
+        int world = snapshot.world(slot);
+        int chunkX = (int) Math.floor(snapshot.x(slot)) >> 4;
+        int chunkZ = (int) Math.floor(snapshot.z(slot)) >> 4;
+        long key = GridKeys.key(world, chunkX, chunkZ);
+        int mask = chunkKeys.length - 1;
+        int index = (int) GridKeys.mix(key) & mask;
+        while (chunkKeys[index] != key) {
+            if (chunkKeys[index] == GridKeys.EMPTY) {
+                chunkKeys[index] = key;
+                chunkWorlds[index] = world;
+                chunkXs[index] = chunkX;
+                chunkZs[index] = chunkZ;
+                chunkOrder[chunkCount++] = index;
+                break;
+            }
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /** Copies the {@value #MAX_CHUNKS} chunks holding the most entities into {@code batch}, busiest first. */
+    private void publishBusiestChunks(Batch batch) {
+        for (int c = 0; c < chunkCount; c++) {
+            int index = chunkOrder[c];
+            chunkRanks[c] = ((long) chunkEntities[index] << 32) | index;
+        }
+        Arrays.sort(chunkRanks, 0, chunkCount);
+        int published = Math.min(chunkCount, MAX_CHUNKS);
+        for (int c = 0; c < published; c++) {
+            int index = (int) chunkRanks[chunkCount - 1 - c];
+            batch.chunkWorlds[c] = chunkWorlds[index];
+            batch.chunkXs[c] = chunkXs[index];
+            batch.chunkZs[c] = chunkZs[index];
+            batch.chunkEntities[c] = chunkEntities[index];
+            batch.chunkDecisions[c] = chunkDecisions[index];
+        }
+        batch.chunkCount = published;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityRemove(EntityRemoveFromWorldEvent event) {
+        samples.remove(event.getEntity().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        // World indices shift; sampled positions would point at the wrong world
+        samples.clear();
+    }
+
+    /** Per-type totals since start, with the last processed snapshot's counts. */
+    public @NotNull List<TypeStats> types() {
+        Batch batch = lastBatch;
+        List<TypeStats> types = new ArrayList<>();
+        synchronized (batch) {
+            for (int t = 0; t < TYPES.length; t++) {
+                long captured = capturedByType.get(t);
+                if (captured > 0) {
+                    types.add(new TypeStats(TYPES[t], captured, decidedByType.get(t),
+                            batch.captured[t], batch.decided[t]));
+                }
+            }
+        }
+        return types;
+    }
+
+    /** The busiest chunks of the last processed snapshot, busiest first. */
+    public @NotNull List<ChunkStats> chunks() {
+        Batch batch = lastBatch;
+        List<ChunkStats> chunks = new ArrayList<>();
+        synchronized (batch) {
+            for (int c = 0; c < batch.chunkCount; c++) {
+                chunks.add(new ChunkStats(batch.chunkWorlds[c], batch.chunkXs[c], batch.chunkZs[c],
+                        batch.chunkEntities[c], batch.chunkDecisions[c]));
+            }
+        }
+        return Collections.unmodifiableList(chunks);
+    }
+
+    /** Current per-entity samples, in no particular order. */
+    public @NotNull Collection<EntitySample> samples() {
+        return Collections.unmodifiableCollection(samples.values());
+    }
+
+    /** Tick, entity and decision counts of the last processed snapshot. */
+    public int lastTick() {
+        Batch batch = lastBatch;
+        synchronized (batch) {
+            return batch.tick;
+        }
+    }
+
+    public int lastEntities() {
+        Batch batch = lastBatch;
+        synchronized (batch) {
+            return batch.entities;
+        }
+    }
+
+    public int lastDecisions() {
+        Batch batch = lastBatch;
+        synchronized (batch) {
+            return batch.decisions;
+        }
+    }
+
+    /**
+     * One processed snapshot's aggregates, rewritten in place two batches
+     * later. Guarded by its own monitor.
+     */
+    private static final class Batch {
+        private int tick;
+        private int entities;
+        private int decisions;
+        private final int[] captured = new int[TYPES.length];
+        private final int[] decided = new int[TYPES.length];
+        private int chunkCount;
+        private final int[] chunkWorlds = new int[MAX_CHUNKS];
+        private final int[] chunkXs = new int[MAX_CHUNKS];
+        private final int[] chunkZs = new int[MAX_CHUNKS];
+        private final int[] chunkEntities = new int[MAX_CHUNKS];
+        private final int[] chunkDecisions = new int[MAX_CHUNKS];
+    }
+
+    /**
+     * One entity type: entities captured and decisions made since start, and
+     * in the last processed snapshot.
+     */
+    public record TypeStats(EntityType type, long captured, long decided, int lastCaptured, int lastDecided) {
+    }
+
+    /** One chunk of the last processed snapshot, by world index. */
+    public record ChunkStats(int world, int chunkX, int chunkZ, int entities, int decisions) {
+    }
+
+    /**
+     * Detail for one sampled entity, written by processing workers and read
+     * by the debug command. Fields are individually volatile; a reader may
+     * see one batch's position with the next batch's counts.
+     */
+    public static final class EntitySample {
+        private final UUID id;
+        private final EntityType type;
+        private volatile int world;
+        private volatile int chunkX;
+        private volatile int chunkZ;
+        private volatile long captures;
+        private volatile long decisions;
+        private volatile int lastCaptured;
+        private volatile int lastDecided = -1;
+
+        EntitySample(UUID id, EntityType type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        public @NotNull UUID id() {
+            return id;
+        }
+
+        public @NotNull EntityType type() {
+            return type;
+        }
+
+        public int world() {
+            return world;
+        }
+
+        public int chunkX() {
+            return chunkX;
+        }
+
+        public int chunkZ() {
+            return chunkZ;
+        }
+
+        /** Snapshots the entity was captured in. */
+        public long captures() {
+            return captures;
+        }
+
+        /** Decisions made for the entity. */
+        public long decisions() {
+            return decisions;
+        }
+
+        public int lastCaptured() {
+            return lastCaptured;
+        }
+
+        /** Tick of the snapshot the entity last got a decision in, or -1 if never. */
+        public int lastDecided() {
+            return lastDecided;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.cloudcraft.engine.threading;
+
+import com.cloudcraft.engine.ai.BehaviorContext;
+import com.cloudcraft.engine.ai.EntityBehavior;
+import com.cloudcraft.engine.pathfinding.FlowField;
+import com.cloudcraft.engine.pathfinding.FlowFieldService;
+import com.cloudcraft.engine.pathfinding.Path;
+import com.cloudcraft.engine.pathfinding.PathService;
+import org.bukkit.entity.EntityType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Runs the registered behaviors over one region and serves as the
+ * {@link BehaviorContext} they see.
+ *
+ * Two passes: first every due entity's neighbours are gathered from the
+ * spatial hash into one flat array (offsets per entity), then each behavior
+ * runs against its prepared slice. Keeping the queries together means the
+ * hash is walked in one tight loop instead of interleaved with arbitrary
+ * behavior code. One instance per worker thread; all storage is reused.
+ */
+final class RegionContext implements BehaviorContext {
+    // Neighbours handed to one behavior call; plenty for pairing and merging
+    private static final int MAX_NEIGHBORS = 32;
+
+    private SnapshotBuffer snapshot;
+    private SpatialHash spatialHash;
+    private BehaviorTable table;
+    private PairJoin pairs;
+    private ItemClusters clusters;
+    private @Nullable PathService paths;
+    private @Nullable FlowFieldService flows;
+    private CommandBuffer.Segment out;
+
+    // Due entities of the region and their neighbours: entity d owns
+    // neighbors[neighborStart[d], neighborStart[d + 1])
+    private int[] due = new int[64];
+    private int[] neighborStart = new int[65];
+    private int[] neighbors = new int[64 * MAX_NEIGHBORS];
+
+    // Neighbour filter state, reused by the one predicate instance
+    private int filterSelf;
+    private boolean[] filterMask;
+    private final IntPredicate neighborFilter =
+            candidate -> candidate != filterSelf && filterMask[snapshot.typeOrdinal(candidate)];
+
+    // Decision latency per type, sampled; null for contexts that never decide
+    private final @Nullable DecisionTimings timings;
+    private int decisions;
+
+    // The entity currently deciding
+    private int self;
+    private int neighborFrom;
+    private int neighborTo;
+    private long seed;
+    private boolean seeded;
+
+    /**
+     * Points the slot accessors at {@code snapshot} without running anything,
+     * for callers outside {@link #run} such as the pairing join; null unbinds.
+     */
+    RegionContext() {
+        this(null);
+    }
+
+    RegionContext(@Nullable DecisionTimings timings) {
+        this.timings = timings;
+    }
+
+    void bind(SnapshotBuffer snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Decides for the entities in {@code order[from, to)}, writing into
+     * {@code out}. {@code pairs} and {@code clusters} must already have run
+     * over the snapshot; {@code paths} is null when pathfinding is disabled,
+     * {@code flows} also when flow fields are.
+     */
+    void run(SnapshotBuffer snapshot, SpatialHash spatialHash, BehaviorTable table, PairJoin pairs,
+             ItemClusters clusters, @Nullable PathService paths, @Nullable FlowFieldService flows,
+             CommandBuffer.Segment out, int[] order, int from, int to) {
+        this.snapshot = snapshot;
+        this.spatialHash = spatialHash;
+        this.table = table;
+        this.pairs = pairs;
+        this.clusters = clusters;
+        this.paths = paths;
+        this.flows = flows;
+        this.out = out;
+
+        // Pass 1: schedule, then gather neighbours for everything due
+        int dueCount = 0;
+        int neighborCount = 0;
+        for (int n = from; n < to; n++) {
+            int slot = order[n];
+            if (!table.isDue(snapshot, slot))
+                continue;
+
+            int type = snapshot.typeOrdinal(slot);
+
+            ensureCapacity(dueCount + 1, neighborCount + MAX_NEIGHBORS);
+            due[dueCount] = slot;
+            neighborStart[dueCount] = neighborCount;
+            if (table.radii[type] > 0) {
+                filterSelf = slot;
+                filterMask = table.neighborMasks[type];
+                neighborCount += spatialHash.collect(snapshot.world(slot),
+                        snapshot.x(slot), snapshot.y(slot), snapshot.z(slot), table.radii[type],
+                        neighborFilter, neighbors, neighborCount, MAX_NEIGHBORS);
+            }
+            dueCount++;
+        }
+        neighborStart[dueCount] = neighborCount;
+
+        // Pass 2: run each behavior against its prepared neighbours
+        for (int d = 0; d < dueCount; d++) {
+            self = due[d];
+            neighborFrom = neighborStart[d];
+            neighborTo = neighborStart[d + 1];
+            seeded = false;
+
+            out.begin(self);
+            int type = snapshot.typeOrdinal(self);
+            if (timings != null && decisions++ % DecisionTimings.SAMPLE_EVERY == 0) {
+                PipelineEvents.Decision event = new PipelineEvents.Decision();
+                event.begin();
+                long start = System.nanoTime();
+                table.behaviors[type].decide(this);
+                timings.record(type, System.nanoTime() - start);
+                boolean acted = out.end();
+                if (event.shouldCommit()) {
+                    event.entityType = DecisionTimings.TYPES[type].name();
+                    event.acted = acted;
+                    event.commit();
+                }
+            } else {
+                table.behaviors[type].decide(this);
+                out.end();
+            }
+        }
+
+        this.snapshot = null;
+        this.spatialHash = null;
+        this.table = null;
+        this.pairs = null;
+        this.clusters = null;
+        this.paths = null;
+        this.flows = null;
+        this.out = null;
+    }
+
+    private void ensureCapacity(int dueCount, int neighborCount) {
+        if (dueCount >= due.length) {
+            due = Arrays.copyOf(due, due.length * 2);
+            neighborStart = Arrays.copyOf(neighborStart, due.length + 1);
+        }
+        if (neighborCount > neighbors.length) {
+            neighbors = Arrays.copyOf(neighbors, Math.max(neighborCount, neighbors.length * 2));
+        }
+    }
+
+    @Override
+    public int self() {
+        return self;
+    }
+
+    @Override
+    public @NotNull EntityType type(int slot) {
+        return snapshot.type(slot);
+    }
+
+    @Override
+    public double x(int slot) {
+        return snapshot.x(slot);
+    }
+
+    @Override
+    public double y(int slot) {
+        return snapshot.y(slot);
+    }
+
+    @Override
+    public double z(int slot) {
+        return snapshot.z(slot);
+    }
+
+    @Override
+    public int ticksLived(int slot) {
+        return snapshot.ticksLived(slot);
+    }
+
+    @Override
+    public boolean canBreed(int slot) {
+        return snapshot.hasFlag(slot, SnapshotBuffer.FLAG_CAN_BREED);
+    }
+
+    @Override
+    public boolean isInLove(int slot) {
+        return snapshot.hasFlag(slot, SnapshotBuffer.FLAG_IN_LOVE);
+    }
+
+    @Override
+    public boolean every(int period) {
+        return snapshot.every(self, period);
+    }
+
+    @Override
+    public double random(int n) {
+        if (!seeded) {
+            seed = AiRandom.seed(snapshot, self);
+            seeded = true;
+        }
+        return AiRandom.nextDouble(seed, n);
+    }
+
+    @Override
+    public int neighborCount() {
+        return neighborTo - neighborFrom;
+    }
+
+    @Override
+    public int neighbor(int i) {
+        if (i < 0 || i >= neighborTo - neighborFrom)
+            throw new IndexOutOfBoundsException("neighbor " + i + " of " + (neighborTo - neighborFrom));
+        return neighbors[neighborFrom + i];
+    }
+
+    @Override
+    public int pairPartner() {
+        return pairs.partner(self);
+    }
+
+    @Override
+    public int clusterSize() {
+        return clusters.size(self);
+    }
+
+    @Override
+    public int clusterMember(int i) {
+        int size = clusters.size(self);
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("cluster member " + i + " of " + size);
+        return clusters.member(self, i);
+    }
+
+    @Override
+    public int nearestTargetablePlayer(double radius) {
+        PlayerIndex players = snapshot.players();
+        return players.nearestTargetable(snapshot.world(self), snapshot.x(self), snapshot.y(self), snapshot.z(self),
+                Math.min(radius, players.coverageRadius()));
+    }
+
+    @Override
+    public double playerX(int player) {
+        return snapshot.players().x(player);
+    }
+
+    @Override
+    public double playerY(int player) {
+        return snapshot.players().y(player);
+    }
+
+    @Override
+    public double playerZ(int player) {
+        return snapshot.players().z(player);
+    }
+
+    @Override
+    public double playerDistanceSq(int player) {
+        return snapshot.players().distanceSq(player, snapshot.x(self), snapshot.y(self), snapshot.z(self));
+    }
+
+    @Override
+    public void move(double velocityX, double velocityY, double velocityZ) {
+        out.move(velocityX, velocityY, velocityZ);
+    }
+
+    @Override
+    public boolean followPath(double goalX, double goalY, double goalZ, double speed) {
+        if (paths == null)
+            return false;
+        double x = snapshot.x(self);
+        double y = snapshot.y(self);
+        double z = snapshot.z(self);
+        Path path = paths.find(snapshot.epoch(), snapshot.world(self),
+                (int) Math.floor(x), (int) Math.floor(y), (int) Math.floor(z),
+                (int) Math.floor(goalX), (int) Math.floor(goalY), (int) Math.floor(goalZ));
+        if (path == null || !path.isReachable())
+            return false;
+
+        int next = path.nextNode(x, y, z);
+        if (next < 0)
+            return false; // at the end of the path: the goal is within a block
+        out.moveTo(path.nodeX(next), path.nodeY(next), path.nodeZ(next), speed);
+        return true;
+    }
+
+    @Override
+    public boolean followFlow(int player, double speed) {
+        if (flows == null)
+            return false;
+        FlowField field = flows.sample(snapshot.epoch(), snapshot.players().id(player));
+        if (field == null || field.world() != snapshot.world(self))
+            return false;
+
+        int next = field.next((int) Math.floor(snapshot.x(self)), (int) Math.floor(snapshot.y(self)),
+                (int) Math.floor(snapshot.z(self)));
+        if (next < 0)
+            return false;
+        out.moveTo(field.nodeX(next), field.nodeY(next), field.nodeZ(next), speed);
+        return true;
+    }
+
+    @Override
+    public void attackPlayer(int player, double damage) {
+        out.attack(SnapshotBuffer.playerRef(player), damage);
+    }
+
+    @Override
+    public void targetPlayer(int player) {
+        out.setTarget(SnapshotBuffer.playerRef(player));
+    }
+
+    @Override
+    public void breedWith(int mateSlot) {
+        out.startBreeding(mateSlot);
+    }
+
+    @Override
+    public void mergeWith(int otherSlot) {
+        out.mergeWith(otherSlot);
+    }
+
+    @Override
+    public void mergeCluster() {
+        int size = clusters.size(self);
+        if (size > 1) {
+            out.mergeCluster(clusters.memberArray(self), clusters.memberOffset(self), size);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.cloudcraft.engine.threading;
+
+import java.util.Arrays;
+
+/**
+ * Splits a snapshot into spatial regions, the unit of parallel work.
+ *
+ * Entities are first bucketed into square base regions of
+ * {@code region.size} chunks. A base region holding more than
+ * {@code max-entities} is split into quadrants, recursively, down to single
+ * chunks; consecutive regions where either side holds fewer than
+ * {@code min-entities} are merged as long as the result stays within
+ * {@code max-entities}. Partitioning runs every tick against the current
+ * counts, so regions follow the load as mobs gather or disperse.
+ *
+ * The result is a permutation of snapshot slots in which every region is
+ * one contiguous run. Base regions are laid out in key order, so merged
+ * neighbours in the run are usually spatial neighbours too. Regions only
+ * decide which task processes which subject; neighbour queries still go to
+ * the global spatial hash, so a query near an edge sees entities on the
+ * other side exactly as before.
+ *
+ * Single-threaded; storage is reused across ticks.
+ */
+final class RegionPartitioner {
+    // Never split below one chunk
+    private static final int MIN_REGION_BLOCKS = 16;
+
+    private final int regionBlocks;
+    private final int maxEntities;
+    private final int minEntities;
+
+    // Base regions: key -> dense id, with counts and origins per id
+    private long[] tableKeys = new long[0];
+    private int[] tableIds = new int[0];
+    private int tableMask;
+    private long[] regionKeys = new long[16];
+    private int[] regionCounts = new int[16];
+    private int[] regionX = new int[16];
+    private int[] regionZ = new int[16];
+    private int[] regionStarts = new int[16];
+    private int[] regionCursor = new int[16];
+    private long[] sortedKeys = new long[16];
+    private int baseCount;
+
+    // Per entity: base region id, then the grouped permutation
+    private int[] entityRegion = new int[0];
+    private int[] order = new int[0];
+    private int[] scratch = new int[0];
+    private final int[] quadrantCursor = new int[4];
+
+    // Output: region r covers order[regionStart[r], regionStart[r + 1])
+    private int[] regionStart = new int[17];
+    private int regionCount;
+    private int splits;
+    private int merges;
+
+    private SnapshotBuffer snapshot;
+
+    RegionPartitioner(int regionSizeChunks, int maxEntities, int minEntities) {
+        this.regionBlocks = regionSizeChunks * 16;
+        this.maxEntities = maxEntities;
+        this.minEntities = minEntities;
+    }
+
+    void partition(SnapshotBuffer snapshot) {
+        this.snapshot = snapshot;
+        int count = snapshot.size();
+        regionCount = 0;
+        splits = 0;
+        merges = 0;
+        ensureCapacity(count);
+
+        // Pass 1: assign base regions and count their entities
+        baseCount = 0;
+        Arrays.fill(tableKeys, GridKeys.EMPTY);
+        for (int i = 0; i < count; i++) {
+            int x = Math.floorDiv((int) Math.floor(snapshot.x(i)), regionBlocks);
+            int z = Math.floorDiv((int) Math.floor(snapshot.z(i)), regionBlocks);
+            int id = regionId(GridKeys.key(snapshot.world(i), x, z), x, z);
+            entityRegion[i] = id;
+            regionCounts[id]++;
+        }
+
+        // Lay base regions out in key order (world, then x, then z) and
+        // give each its run: regionStarts[id] is where its entities begin
+        System.arraycopy(regionKeys, 0, sortedKeys, 0, baseCount);
+        Arrays.sort(sortedKeys, 0, baseCount);
+        int offset = 0;
+        for (int rank = 0; rank < baseCount; rank++) {
+            int id = find(sortedKeys[rank]);
+            regionStarts[id] = offset;
+            regionCursor[id] = offset;
+            offset += regionCounts[id];
+        }
+
+        // Pass 2: scatter entities into their base region's run
+        for (int i = 0; i < count; i++) {
+            order[regionCursor[entityRegion[i]]++] = i;
+        }
+
+        // Split oversized regions, emitting (and merging) runs in order
+        for (int rank = 0; rank < baseCount; rank++) {
+            int id = find(sortedKeys[rank]);
+            split(regionStarts[id], regionStarts[id] + regionCounts[id],
+                    regionX[id] * regionBlocks, regionZ[id] * regionBlocks, regionBlocks);
+        }
+        regionStart[regionCount] = count;
+        this.snapshot = null;
+    }
+
+    /** Number of regions from the last partition. */
+    int regionCount() {
+        return regionCount;
+    }
+
+    /** Start of region {@code region} in {@link #order()}; {@code regionStart(regionCount())} is the end. */
+    int regionStart(int region) {
+        return regionStart[region];
+    }
+
+    /** Snapshot slots grouped by region. */
+    int[] order() {
+        return order;
+    }
+
+    /** Quadrant splits performed by the last partition. */
+    int splits() {
+        return splits;
+    }
+
+    /** Region merges performed by the last partition. */
+    int merges() {
+        return merges;
+    }
+
+    private void split(int start, int end, int minX, int minZ, int size) {
+        if (start == end)
+            return;
+        if (end - start <= maxEntities || size / 2 < MIN_REGION_BLOCKS) {
+            emit(start, end);
+            return;
+        }
+        splits++;
+
+        // Counting sort the run into quadrants: (low x, low z), (low x, high z), (high x, low z), (high x, high z)
+        int half = size / 2;
+        Arrays.fill(quadrantCursor, 0);
+        for (int n = start; n < end; n++) {
+            quadrantCursor[quadrant(order[n], minX + half, minZ + half)]++;
+        }
+        int q0 = start;
+        int q1 = q0 + quadrantCursor[0];
+        int q2 = q1 + quadrantCursor[1];
+        int q3 = q2 + quadrantCursor[2];
+        quadrantCursor[0] = q0;
+        quadrantCursor[1] = q1;
+        quadrantCursor[2] = q2;
+        quadrantCursor[3] = q3;
+        for (int n = start; n < end; n++) {
+            int slot = order[n];
+            scratch[quadrantCursor[quadrant(slot, minX + half, minZ + half)]++] = slot;
+        }
+        System.arraycopy(scratch, start, order, start, end - start);
+
+        split(q0, q1, minX, minZ, half);
+        split(q1, q2, minX, minZ + half, half);
+        split(q2, q3, minX + half, minZ, half);
+        split(q3, end, minX + half, minZ + half, half);
+    }
+
+    private int quadrant(int slot, double midX, double midZ) {
+        return (snapshot.x(slot) >= midX ? 2 : 0) | (snapshot.z(slot) >= midZ ? 1 : 0);
+    }
+
+    /** Appends the run as a region, or folds it into the previous one if either is too small. */
+    private void emit(int start, int end) {
+        if (regionCount > 0) {
+            int previous = start - regionStart[regionCount - 1];
+            int current = end - start;
+            if ((previous < minEntities || current < minEntities) && previous + current <= maxEntities) {
+                merges++;
+                return;
+            }
+        }
+        if (regionCount + 1 == regionStart.length) {
+            regionStart = Arrays.copyOf(regionStart, regionStart.length * 2);
+        }
+        regionStart[regionCount++] = start;
+    }
+
+    /** Id of an existing base region. */
+    private int find(long key) {
+        int slot = (int) GridKeys.mix(key) & tableMask;
+        while (tableKeys[slot] != key) {
+            slot = (slot + 1) & tableMask;
+        }
+        return tableIds[slot];
+    }
+
+    /** Id of the base region for {@code key}, registering it on first sight. */
+    private int regionId(long key, int x, int z) {
+        int slot = (int) GridKeys.mix(key) & tableMask;
+        while (true) {
+            long existing = tableKeys[slot];
+            if (existing == key)
+                return tableIds[slot];
+            if (existing == GridKeys.EMPTY)
+                break;
+            slot = (slot + 1) & tableMask;
+        }
+
+        if (baseCount == regionKeys.length) {
+            int capacity = baseCount * 2;
+            regionKeys = Arrays.copyOf(regionKeys, capacity);
+            regionCounts = Arrays.copyOf(regionCounts, capacity);
+            regionX = Arrays.copyOf(regionX, capacity);
+            regionZ = Arrays.copyOf(regionZ, capacity);
+            regionStarts = Arrays.copyOf(regionStarts, capacity);
+            regionCursor = Arrays.copyOf(regionCursor, capacity);
+            sortedKeys = Arrays.copyOf(sortedKeys, capacity);
+        }
+        int id = baseCount++;
+        tableKeys[slot] = key;
+        tableIds[slot] = id;
+        regionKeys[id] = key;
+        regionCounts[id] = 0;
+        regionX[id] = x;
+        regionZ[id] = z;
+        return id;
+    }
+
+    private void ensureCapacity(int count) {
+        if (order.length < count) {
+            int capacity = Math.max(16, Integer.highestOneBit(Math.max(count, 1) - 1) << 1);
+            entityRegion = new int[capacity];
+            order = new int[capacity];
+            scratch = new int[capacity];
+        }
+        int tableSize = GridKeys.tableSizeFor(count);
+        if (tableKeys.length < tableSize) {
+            tableKeys = new long[tableSize];
+            tableIds = new int[tableSize];
+            tableMask = tableSize - 1;
+        }
+    }
+}
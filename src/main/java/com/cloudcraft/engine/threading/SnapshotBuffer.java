@@ -0,0 +1,304 @@
+package com.cloudcraft.engine.threading;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Structure-of-arrays entity snapshot.
+ *
+ * One slot per captured entity, spread over primitive arrays instead of one
+ * object per entity: a neighbour scan that only needs positions streams
+ * through {@code xs/ys/zs} (8 entities per 64-byte cache line) without
+ * dragging ids or flags into cache. Arrays only ever grow, so once a buffer
+ * has seen the peak entity count, capturing into it allocates nothing.
+ *
+ * Lifecycle: the main thread calls {@link #begin}, appends, then
+ * {@link #seal}s the buffer before handing it to the async phase. A sealed
+ * buffer rejects writes, which is what makes the zero-copy handoff safe;
+ * readers share the arrays directly. The processor alternates two buffers by
+ * epoch, so the next capture never writes into the one being read.
+ */
+final class SnapshotBuffer {
+    static final int FLAG_CAN_BREED = 1;
+    static final int FLAG_IN_LOVE = 1 << 1;
+    // Due for AI this tick; inactive slots are still visible to neighbour queries
+    static final int FLAG_ACTIVE = 1 << 2;
+
+    private static final EntityType[] TYPES = EntityType.values();
+
+    private double[] xs;
+    private double[] ys;
+    private double[] zs;
+    private int[] worlds;
+    private int[] types;
+    private int[] ticksLived;
+    private int[] flags;
+    private int[] intervals;
+    private long[] uuidMost;
+    private long[] uuidLeast;
+    // Stackables (dropped items, experience orbs): similarity key, amount and stack limit
+    private long[] stackKeys;
+    private int[] amounts;
+    private int[] stackLimits;
+    private int size;
+
+    private final PlayerIndex players = new PlayerIndex();
+
+    // Per world index: the seed AI randomness derives from
+    private long[] worldSeeds = new long[4];
+
+    // Live handles for the apply phase, plus how many world scans they saved
+    private final HandleTable entityHandles = new HandleTable();
+    private final HandleTable playerHandles = new HandleTable();
+    private long lookupsSaved;
+
+    private long epoch;
+    private int tick;
+    private boolean sealed;
+
+    SnapshotBuffer(int initialCapacity) {
+        allocate(Math.max(16, initialCapacity));
+    }
+
+    /** Starts a new capture, discarding the previous contents. */
+    void begin(long epoch, int tick) {
+        this.epoch = epoch;
+        this.tick = tick;
+        this.size = 0;
+        this.sealed = false;
+        players.clear();
+    }
+
+    /**
+     * Appends one entity and returns its slot. {@code activationInterval} is
+     * how many ticks pass between AI runs for the entity's activation tier.
+     */
+    int append(long idMost, long idLeast, EntityType type, int world,
+               double x, double y, double z, int ticksLived, int flags, int activationInterval) {
+        if (sealed)
+            throw new IllegalStateException("Snapshot epoch " + epoch + " is sealed");
+        if (size == xs.length)
+            allocate(size * 2);
+
+        int slot = size++;
+        this.uuidMost[slot] = idMost;
+        this.uuidLeast[slot] = idLeast;
+        this.types[slot] = type.ordinal();
+        this.worlds[slot] = world;
+        this.xs[slot] = x;
+        this.ys[slot] = y;
+        this.zs[slot] = z;
+        this.ticksLived[slot] = ticksLived;
+        this.flags[slot] = flags;
+        this.intervals[slot] = activationInterval;
+        this.stackKeys[slot] = 0;
+        this.amounts[slot] = 0;
+        this.stackLimits[slot] = 0;
+        return slot;
+    }
+
+    /**
+     * Records what the stackable in {@code slot} holds: entities with equal
+     * {@code stackKey} may be folded together, up to {@code stackLimit} per
+     * entity. Capture only, right after {@link #append}.
+     */
+    void setStack(int slot, long stackKey, int amount, int stackLimit) {
+        if (sealed)
+            throw new IllegalStateException("Snapshot epoch " + epoch + " is sealed");
+        this.stackKeys[slot] = stackKey;
+        this.amounts[slot] = amount;
+        this.stackLimits[slot] = stackLimit;
+    }
+
+    /** Records the seed AI randomness uses for {@code world}; capture only. */
+    void setWorldSeed(int world, long seed) {
+        if (world >= worldSeeds.length) {
+            worldSeeds = Arrays.copyOf(worldSeeds, Math.max(world + 1, worldSeeds.length * 2));
+        }
+        worldSeeds[world] = seed;
+    }
+
+    long worldSeed(int world) {
+        return world < worldSeeds.length ? worldSeeds[world] : 0;
+    }
+
+    /** Records the live entity behind {@code slot}; capture only. */
+    void setHandle(int slot, Entity entity) {
+        entityHandles.set(slot, entity);
+    }
+
+    /** Records the live player behind player slot {@code player}; capture only. */
+    void setPlayerHandle(int player, Entity entity) {
+        playerHandles.set(player, entity);
+    }
+
+    /**
+     * Target reference for a player slot. Decisions address targets with one
+     * int: entity slots are non-negative, player slots are encoded negative.
+     */
+    static int playerRef(int player) {
+        return -(player + 1);
+    }
+
+    /**
+     * Resolves an entity slot or {@link #playerRef} to its live entity, or
+     * null if it died or unloaded since capture. Main thread only.
+     */
+    Entity resolve(int ref) {
+        Entity entity;
+        int world;
+        if (ref >= 0) {
+            entity = entityHandles.resolve(ref);
+            world = ref < size ? worlds[ref] : 0;
+        } else {
+            int player = -ref - 1;
+            entity = playerHandles.resolve(player);
+            world = player < players.size() ? players.world(player) : 0;
+        }
+
+        // The old path looped server.getWorlds() calling getEntity(uuid)
+        // until it reached the entity's world: world index + 1 hash lookups
+        lookupsSaved += world + 1;
+        return entity;
+    }
+
+    /** Returns and resets the lookups saved since the last call. */
+    long drainLookupsSaved() {
+        long saved = lookupsSaved;
+        lookupsSaved = 0;
+        return saved;
+    }
+
+    /** Freezes the buffer for handoff to the async phase. */
+    void seal() {
+        sealed = true;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    long epoch() {
+        return epoch;
+    }
+
+    int tick() {
+        return tick;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Players captured in the same tick as the entities. */
+    PlayerIndex players() {
+        return players;
+    }
+
+    EntityType type(int slot) {
+        return TYPES[types[slot]];
+    }
+
+    int typeOrdinal(int slot) {
+        return types[slot];
+    }
+
+    int world(int slot) {
+        return worlds[slot];
+    }
+
+    double x(int slot) {
+        return xs[slot];
+    }
+
+    double y(int slot) {
+        return ys[slot];
+    }
+
+    double z(int slot) {
+        return zs[slot];
+    }
+
+    int ticksLived(int slot) {
+        return ticksLived[slot];
+    }
+
+    boolean hasFlag(int slot, int flag) {
+        return (flags[slot] & flag) != 0;
+    }
+
+    int activationInterval(int slot) {
+        return intervals[slot];
+    }
+
+    /**
+     * True if something meant to happen every {@code period} ticks is due on
+     * this run: a multiple of {@code period} fell within the ticks since the
+     * entity's previous activation. With an interval of 1 this is simply
+     * {@code ticksLived % period == 0}.
+     */
+    boolean every(int slot, int period) {
+        return ticksLived[slot] % period < intervals[slot];
+    }
+
+    long stackKey(int slot) {
+        return stackKeys[slot];
+    }
+
+    /** Items in the stack, or experience in the orb; 0 for anything else. */
+    int amount(int slot) {
+        return amounts[slot];
+    }
+
+    int stackLimit(int slot) {
+        return stackLimits[slot];
+    }
+
+    long uuidMost(int slot) {
+        return uuidMost[slot];
+    }
+
+    long uuidLeast(int slot) {
+        return uuidLeast[slot];
+    }
+
+    UUID uuid(int slot) {
+        return new UUID(uuidMost[slot], uuidLeast[slot]);
+    }
+
+    /** Raw coordinate arrays for building spatial indexes; valid up to {@link #size}. */
+    int[] worldArray() {
+        return worlds;
+    }
+
+    double[] xArray() {
+        return xs;
+    }
+
+    double[] yArray() {
+        return ys;
+    }
+
+    double[] zArray() {
+        return zs;
+    }
+
+    private void allocate(int capacity) {
+        xs = xs == null ? new double[capacity] : Arrays.copyOf(xs, capacity);
+        ys = ys == null ? new double[capacity] : Arrays.copyOf(ys, capacity);
+        zs = zs == null ? new double[capacity] : Arrays.copyOf(zs, capacity);
+        worlds = worlds == null ? new int[capacity] : Arrays.copyOf(worlds, capacity);
+        types = types == null ? new int[capacity] : Arrays.copyOf(types, capacity);
+        ticksLived = ticksLived == null ? new int[capacity] : Arrays.copyOf(ticksLived, capacity);
+        flags = flags == null ? new int[capacity] : Arrays.copyOf(flags, capacity);
+        intervals = intervals == null ? new int[capacity] : Arrays.copyOf(intervals, capacity);
+        uuidMost = uuidMost == null ? new long[capacity] : Arrays.copyOf(uuidMost, capacity);
+        uuidLeast = uuidLeast == null ? new long[capacity] : Arrays.copyOf(uuidLeast, capacity);
+        stackKeys = stackKeys == null ? new long[capacity] : Arrays.copyOf(stackKeys, capacity);
+        amounts = amounts == null ? new int[capacity] : Arrays.copyOf(amounts, capacity);
+        stackLimits = stackLimits == null ? new int[capacity] : Arrays.copyOf(stackLimits, capacity);
+    }
+}
@@ -0,0 +1,138 @@
+package com.cloudcraft.engine.threading;
+
+import com.cloudcraft.engine.config.EngineConfig;
+import com.cloudcraft.engine.pathfinding.FlowFieldService;
+import com.cloudcraft.engine.pathfinding.PathService;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The async half of the pipeline: turns a sealed snapshot into sealed
+ * decisions. Pure computation over the snapshot's arrays - no Bukkit calls -
+ * so benchmarks can drive it with synthetic snapshots and no server.
+ *
+ * Two stages: {@link #index} builds the spatial hash, regions, breeding pairs
+ * and item clusters; {@link #decide} runs every region's behaviors into one
+ * of two command buffers, chosen by the snapshot's epoch parity. One
+ * snapshot at a time; call from inside a {@link java.util.concurrent.ForkJoinPool},
+ * which the region tasks fork into.
+ */
+final class SnapshotPipeline {
+    // Neighbor queries - 8-block columns keep a 16-block search to 5x5 cells
+    static final double SPATIAL_CELL_SIZE = 8.0;
+
+    private final SpatialHash spatialHash = new SpatialHash(SPATIAL_CELL_SIZE);
+    private final RegionPartitioner partitioner;
+    private final PairJoin pairJoin = new PairJoin();
+    private final ItemClusters itemClusters = new ItemClusters();
+    private final @Nullable PathService paths;
+    private final @Nullable FlowFieldService flows;
+    private final ThreadLocal<RegionContext> regionContexts;
+
+    // Encoded decisions, one buffer per snapshot buffer (same epoch parity).
+    // Each region task writes its own segment.
+    private final CommandBuffer[] commands = {new CommandBuffer(), new CommandBuffer()};
+
+    /** {@code timings} is null to skip decision sampling, {@code paths} and {@code flows} when disabled. */
+    SnapshotPipeline(EngineConfig config, @Nullable DecisionTimings timings,
+                     @Nullable PathService paths, @Nullable FlowFieldService flows) {
+        this.partitioner = new RegionPartitioner(
+                config.regionSizeChunks(), config.regionMaxEntities(), config.regionMinEntities());
+        this.paths = paths;
+        this.flows = flows;
+        this.regionContexts = ThreadLocal.withInitial(() -> new RegionContext(timings));
+    }
+
+    /** Both stages; the returned buffer stays valid until the next snapshot of the same parity. */
+    CommandBuffer process(SnapshotBuffer snapshot, BehaviorTable table, BooleanSupplier cancelled) {
+        index(snapshot, table);
+        return decide(snapshot, table, cancelled);
+    }
+
+    /**
+     * Builds the spatial hash straight over the snapshot's coordinate arrays
+     * and partitions it into regions. The hash spans every region, so
+     * neighbour queries see across region edges. Breeding candidates are
+     * paired in one batched join and stackables clustered in another before
+     * any behavior decides, so every pair or cluster is found once and no
+     * entity is claimed by two others.
+     */
+    void index(SnapshotBuffer snapshot, BehaviorTable table) {
+        int count = snapshot.size();
+        spatialHash.build(count, snapshot.worldArray(), snapshot.xArray(), snapshot.yArray(), snapshot.zArray());
+        partitioner.partition(snapshot);
+        pairJoin.run(snapshot, spatialHash, table);
+        itemClusters.run(snapshot, spatialHash, table);
+    }
+
+    /**
+     * One work-stealing task per region of the last {@link #index indexed}
+     * snapshot, each encoding into its own segment, then sealed. Regions not
+     * yet started when {@code cancelled} turns true are skipped.
+     */
+    CommandBuffer decide(SnapshotBuffer snapshot, BehaviorTable table, BooleanSupplier cancelled) {
+        CommandBuffer decisions = commands[(int) (snapshot.epoch() & 1)];
+        decisions.reset();
+        if (partitioner.regionCount() > 0) {
+            new RegionTask(snapshot, table, decisions, cancelled, 0, partitioner.regionCount()).invoke();
+        }
+        decisions.seal(snapshot);
+        return decisions;
+    }
+
+    /** Regions the last indexed snapshot was partitioned into. */
+    int regionCount() {
+        return partitioner.regionCount();
+    }
+
+    /**
+     * Processes regions [from, to): halves the range until one region is
+     * left, so idle workers steal the untouched halves.
+     */
+    private final class RegionTask extends RecursiveAction {
+        private final SnapshotBuffer snapshot;
+        private final BehaviorTable table;
+        private final CommandBuffer decisions;
+        private final BooleanSupplier cancelled;
+        private final int from;
+        private final int to;
+
+        RegionTask(SnapshotBuffer snapshot, BehaviorTable table, CommandBuffer decisions,
+                   BooleanSupplier cancelled, int from, int to) {
+            this.snapshot = snapshot;
+            this.table = table;
+            this.decisions = decisions;
+            this.cancelled = cancelled;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled.getAsBoolean())
+                return;
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RegionTask(snapshot, table, decisions, cancelled, from, mid),
+                        new RegionTask(snapshot, table, decisions, cancelled, mid, to));
+                return;
+            }
+
+            PipelineEvents.Region event = new PipelineEvents.Region();
+            event.begin();
+            CommandBuffer.Segment segment = decisions.acquire(from);
+            regionContexts.get().run(snapshot, spatialHash, table, pairJoin, itemClusters, paths, flows,
+                    segment, partitioner.order(), partitioner.regionStart(from), partitioner.regionStart(from + 1));
+            if (event.shouldCommit()) {
+                event.sourceTick = snapshot.tick();
+                event.region = from;
+                event.entities = partitioner.regionStart(from + 1) - partitioner.regionStart(from);
+                event.decisions = segment.decisionCount();
+                event.commit();
+            }
+            decisions.publish(segment);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.cloudcraft.engine.threading;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Uniform-grid spatial hash over a flat set of entity positions.
+ *
+ * Entities are bucketed into vertical columns of {@code cellSize x cellSize}
+ * blocks, keyed by world index and cell coordinates. Buckets are laid out
+ * contiguously (counting sort), so a radius query only touches the cells its
+ * bounding square overlaps and walks each cell as one sequential run of ints.
+ * Building is O(n) and every query is O(cells overlapped + entities in them),
+ * which keeps a full AI pass near-linear in entity count instead of O(n^2).
+ *
+ * The index stores snapshot indices, not entities; callers resolve them
+ * against their own position arrays. All storage is reused across builds, so
+ * a steady-state tick allocates nothing here. Queries are read-only and safe
+ * from any number of threads once {@link #build} has returned.
+ */
+final class SpatialHash {
+    private final double cellSize;
+    private final double inverseCellSize;
+
+    // Positions, borrowed from the caller for the lifetime of one build
+    private int[] worlds;
+    private double[] xs;
+    private double[] ys;
+    private double[] zs;
+    private int size;
+
+    // Open-addressing table: cell key -> [start, start + count) in cellEntities
+    private long[] tableKeys = new long[0];
+    private int[] tableStart = new int[0];
+    private int[] tableCount = new int[0];
+    private int tableMask;
+
+    // Cell coordinates per occupied table slot, for cell-level sweeps
+    private int[] tableWorld = new int[0];
+    private int[] tableCellX = new int[0];
+    private int[] tableCellZ = new int[0];
+
+    // Entity indices grouped by cell, plus each entity's slot in the table
+    private int[] cellEntities = new int[0];
+    private int[] entitySlot = new int[0];
+
+    SpatialHash(double cellSize) {
+        if (cellSize <= 0)
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1.0 / cellSize;
+    }
+
+    /**
+     * Rebuilds the index over the first {@code count} positions. The arrays
+     * are referenced, not copied, and must not change until the next build.
+     */
+    void build(int count, int[] worlds, double[] xs, double[] ys, double[] zs) {
+        this.worlds = worlds;
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.size = count;
+
+        ensureCapacity(count);
+        Arrays.fill(tableKeys, GridKeys.EMPTY);
+        Arrays.fill(tableCount, 0);
+
+        // Pass 1: assign every entity to its cell slot and count occupancy
+        for (int i = 0; i < count; i++) {
+            int cellX = cellCoord(xs[i]);
+            int cellZ = cellCoord(zs[i]);
+            int slot = slotFor(GridKeys.key(worlds[i], cellX, cellZ), true);
+            if (tableCount[slot]++ == 0) {
+                tableWorld[slot] = worlds[i];
+                tableCellX[slot] = cellX;
+                tableCellZ[slot] = cellZ;
+            }
+            entitySlot[i] = slot;
+        }
+
+        // Prefix sum gives each cell a contiguous run
+        int offset = 0;
+        for (int slot = 0; slot < tableKeys.length; slot++) {
+            tableStart[slot] = offset;
+            offset += tableCount[slot];
+        }
+
+        // Pass 2: scatter indices into their runs (reuses tableCount as cursor)
+        Arrays.fill(tableCount, 0);
+        for (int i = 0; i < count; i++) {
+            int slot = entitySlot[i];
+            cellEntities[tableStart[slot] + tableCount[slot]++] = i;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    double cellSize() {
+        return cellSize;
+    }
+
+    // Cell-level access for sweeps over every occupied cell. Table slots are
+    // numbered [0, tableLength()); empty slots have a cell count of 0.
+
+    int tableLength() {
+        return tableKeys.length;
+    }
+
+    int cellCount(int tableSlot) {
+        return tableCount[tableSlot];
+    }
+
+    int cellStart(int tableSlot) {
+        return tableStart[tableSlot];
+    }
+
+    int cellWorld(int tableSlot) {
+        return tableWorld[tableSlot];
+    }
+
+    int cellX(int tableSlot) {
+        return tableCellX[tableSlot];
+    }
+
+    int cellZ(int tableSlot) {
+        return tableCellZ[tableSlot];
+    }
+
+    /** Entity at position {@code n} of the cell-ordered run. */
+    int cellEntity(int n) {
+        return cellEntities[n];
+    }
+
+    /** Table slot of an occupied cell, or -1. */
+    int findCell(int world, int cellX, int cellZ) {
+        return slotFor(GridKeys.key(world, cellX, cellZ), false);
+    }
+
+    /**
+     * Returns the index of the closest entity within {@code radius} that
+     * passes {@code filter}, or -1. Cells are visited in rings around the
+     * query cell so the search stops as soon as no closer cell can exist.
+     */
+    int nearest(int world, double x, double y, double z, double radius, IntPredicate filter) {
+        if (size == 0)
+            return -1;
+
+        int centerX = cellCoord(x);
+        int centerZ = cellCoord(z);
+        int maxRing = (int) Math.ceil(radius * inverseCellSize);
+        double radiusSq = radius * radius;
+
+        int best = -1;
+        double bestSq = radiusSq;
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Anything in this ring is at least (ring - 1) cells away horizontally
+            double ringMin = (ring - 1) * cellSize;
+            if (ring > 1 && ringMin * ringMin > bestSq)
+                break;
+
+            for (int dx = -ring; dx <= ring; dx++) {
+                boolean edgeColumn = dx == -ring || dx == ring;
+                int step = edgeColumn ? 1 : ring * 2;
+                for (int dz = -ring; dz <= ring; dz += Math.max(step, 1)) {
+                    int slot = slotFor(GridKeys.key(world, centerX + dx, centerZ + dz), false);
+                    if (slot < 0)
+                        continue;
+
+                    int start = tableStart[slot];
+                    int end = start + tableCount[slot];
+                    for (int n = start; n < end; n++) {
+                        int index = cellEntities[n];
+                        double distSq = distanceSq(index, x, y, z);
+                        if (distSq <= bestSq && (best < 0 || distSq < bestSq) && filter.test(index)) {
+                            best = index;
+                            bestSq = distSq;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the first entity within {@code radius} that passes
+     * {@code filter}, or -1. Cheaper than {@link #nearest} when any match
+     * will do.
+     */
+    int findAny(int world, double x, double y, double z, double radius, IntPredicate filter) {
+        int minX = cellCoord(x - radius);
+        int maxX = cellCoord(x + radius);
+        int minZ = cellCoord(z - radius);
+        int maxZ = cellCoord(z + radius);
+        double radiusSq = radius * radius;
+
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                int slot = slotFor(GridKeys.key(world, cx, cz), false);
+                if (slot < 0)
+                    continue;
+
+                int start = tableStart[slot];
+                int end = start + tableCount[slot];
+                for (int n = start; n < end; n++) {
+                    int index = cellEntities[n];
+                    if (distanceSq(index, x, y, z) <= radiusSq && filter.test(index)) {
+                        return index;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies every entity within {@code radius} into {@code out} and returns
+     * how many were found. Stops early once {@code out} is full.
+     */
+    int collect(int world, double x, double y, double z, double radius, int[] out) {
+        int minX = cellCoord(x - radius);
+        int maxX = cellCoord(x + radius);
+        int minZ = cellCoord(z - radius);
+        int maxZ = cellCoord(z + radius);
+        double radiusSq = radius * radius;
+        int found = 0;
+
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                int slot = slotFor(GridKeys.key(world, cx, cz), false);
+                if (slot < 0)
+                    continue;
+
+                int start = tableStart[slot];
+                int end = start + tableCount[slot];
+                for (int n = start; n < end; n++) {
+                    int index = cellEntities[n];
+                    if (distanceSq(index, x, y, z) <= radiusSq) {
+                        if (found == out.length)
+                            return found;
+                        out[found++] = index;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Writes up to {@code limit} entities within {@code radius} that pass
+     * {@code filter} into {@code out} starting at {@code offset}, and returns
+     * how many were written.
+     */
+    int collect(int world, double x, double y, double z, double radius, IntPredicate filter,
+                int[] out, int offset, int limit) {
+        int minX = cellCoord(x - radius);
+        int maxX = cellCoord(x + radius);
+        int minZ = cellCoord(z - radius);
+        int maxZ = cellCoord(z + radius);
+        double radiusSq = radius * radius;
+        int found = 0;
+
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cz = minZ; cz <= maxZ; cz++) {
+                int slot = slotFor(GridKeys.key(world, cx, cz), false);
+                if (slot < 0)
+                    continue;
+
+                int start = tableStart[slot];
+                int end = start + tableCount[slot];
+                for (int n = start; n < end; n++) {
+                    int index = cellEntities[n];
+                    if (distanceSq(index, x, y, z) <= radiusSq && filter.test(index)) {
+                        if (found == limit)
+                            return found;
+                        out[offset + found++] = index;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private double distanceSq(int index, double x, double y, double z) {
+        double dx = xs[index] - x;
+        double dy = ys[index] - y;
+        double dz = zs[index] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private int cellCoord(double coordinate) {
+        return (int) Math.floor(coordinate * inverseCellSize);
+    }
+
+    /**
+     * Linear-probe lookup. With {@code insert} set, claims an empty slot for
+     * a new key; otherwise returns -1 when the key is absent.
+     */
+    private int slotFor(long key, boolean insert) {
+        int slot = (int) GridKeys.mix(key) & tableMask;
+        while (true) {
+            long existing = tableKeys[slot];
+            if (existing == key)
+                return slot;
+            if (existing == GridKeys.EMPTY) {
+                if (!insert)
+                    return -1;
+                tableKeys[slot] = key;
+                return slot;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+    }
+
+    private void ensureCapacity(int count) {
+        if (cellEntities.length < count) {
+            int capacity = Math.max(16, Integer.highestOneBit(Math.max(count, 1) - 1) << 1);
+            cellEntities = new int[capacity];
+            entitySlot = new int[capacity];
+        }
+
+        // Keep the table sparse so probe chains stay short
+        int tableSize = GridKeys.tableSizeFor(count);
+        if (tableKeys.length < tableSize) {
+            tableKeys = new long[tableSize];
+            tableStart = new int[tableSize];
+            tableCount = new int[tableSize];
+            tableWorld = new int[tableSize];
+            tableCellX = new int[tableSize];
+            tableCellZ = new int[tableSize];
+            tableMask = tableSize - 1;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.cloudcraft.engine.threading;
+
+import com.cloudcraft.engine.ai.BehaviorRegistry;
+import com.cloudcraft.engine.config.EngineConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays the same {@link SyntheticWorld} ticks through the async pipeline
+ * twice, with pathfinding off, on region pools of different sizes. Decisions
+ * must not depend on how regions are scheduled, so the sequences of
+ * {@link CommandBuffer#digest} values must match.
+ */
+class DecisionDeterminismTest {
+    private static final int ENTITIES = 5000;
+    private static final double BLOCKS_PER_ENTITY = 16.0;
+    private static final int TICKS = 40;
+
+    @Test
+    void digestsDoNotDependOnPoolSize() {
+        long[] single = replay(1);
+        long[] parallel = replay(4);
+        assertArrayEquals(single, parallel);
+    }
+
+    @Test
+    void replayIsRepeatable() {
+        assertArrayEquals(replay(4), replay(4));
+    }
+
+    /** Digest of every tick's decisions, captured and processed as the engine does. */
+    private static long[] replay(int threads) {
+        SyntheticWorld world = new SyntheticWorld(ENTITIES, BLOCKS_PER_ENTITY, 42);
+        SnapshotBuffer[] buffers = {new SnapshotBuffer(ENTITIES), new SnapshotBuffer(ENTITIES)};
+        BehaviorTable table = BehaviorTable.from(BehaviorRegistry.withDefaults());
+        SnapshotPipeline pipeline = new SnapshotPipeline(EngineConfig.defaults(), null, null, null);
+
+        long[] digests = new long[TICKS];
+        int decisions = 0;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int tick = 0; tick < TICKS; tick++) {
+                SnapshotBuffer snapshot = buffers[tick & 1];
+                world.capture(snapshot, tick, tick);
+                snapshot.seal();
+                CommandBuffer buffer = pool.invoke(ForkJoinTask.adapt(
+                        () -> pipeline.process(snapshot, table, () -> false)));
+                digests[tick] = buffer.digest();
+                decisions += buffer.size();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(decisions > 0, "replay produced no decisions");
+        return digests;
+    }
+}